@@ -1,5 +1,8 @@
 package DormRoom;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -18,43 +21,76 @@ public enum CampusLocation {
   Machado;
 
   /**
-   * Method that maps areas of campus to dorm buildings within that area of campus
+   * Holds the immutable set of dorm buildings within every area of campus, computed once when it
+   * is first used. Every building appears as its canonical {@link DormBuilding#of} instance.
+   *
+   * <p>It is a separate class because the canonical buildings refer back to the constants of this
+   * enum, which have to be initialized first.</p>
+   */
+  private static final class Index {
+    private static final Map<CampusLocation, Set<DormBuilding>> DORM_BUILDINGS;
+
+    static {
+      Map<CampusLocation, Set<DormBuilding>> dormBuildings = new EnumMap<>(CampusLocation.class);
+      for (CampusLocation campusLocation : values()) {
+        dormBuildings.put(campusLocation, campusLocation.computeDormBuildings());
+      }
+      DORM_BUILDINGS = Collections.unmodifiableMap(dormBuildings);
+    }
+  }
+
+  /**
+   * Method that maps areas of campus to dorm buildings within that area of campus.
+   *
+   * <p>The set is precomputed, so this method allocates nothing and every call returns the same
+   * immutable set.</p>
+   *
    * @return a set of the dorm buildings within a particle area of campus
    */
   public Set<DormBuilding> dormBuildingsInCampusLocation() {
+    return Index.DORM_BUILDINGS.get(this);
+  }
+
+  /**
+   * Builds the set of dorm buildings within this area of campus. Only called once per area, to
+   * populate the index.
+   *
+   * @return a set of the dorm buildings within this area of campus
+   */
+  private Set<DormBuilding> computeDormBuildings() {
     return switch (this) {
-      case WristonQuad -> Set.of(new DormBuilding(DormBuildingName.fromString("Buxton House")),
-          new DormBuilding(DormBuildingName.fromString("Chapin House")),
-          new DormBuilding(DormBuildingName.fromString("Diman House")),
-          new DormBuilding(DormBuildingName.fromString("Goddard House")),
-          new DormBuilding(DormBuildingName.fromString("Harkness House")),
-          new DormBuilding(DormBuildingName.fromString("Marcy House")),
-          new DormBuilding(DormBuildingName.fromString("Olney House")),
-          new DormBuilding(DormBuildingName.fromString("Sears House"))
+      case WristonQuad -> Set.of(DormBuilding.of(DormBuildingName.fromString("Buxton House")),
+          DormBuilding.of(DormBuildingName.fromString("Chapin House")),
+          DormBuilding.of(DormBuildingName.fromString("Diman House")),
+          DormBuilding.of(DormBuildingName.fromString("Goddard House")),
+          DormBuilding.of(DormBuildingName.fromString("Harkness House")),
+          DormBuilding.of(DormBuildingName.fromString("Marcy House")),
+          DormBuilding.of(DormBuildingName.fromString("Olney House")),
+          DormBuilding.of(DormBuildingName.fromString("Sears House"))
       );
-      case MainGreen -> Set.of(new DormBuilding(DormBuildingName.fromString("Hope College")),
-          new DormBuilding(DormBuildingName.fromString("Slater Hall")));
-      case GradCenter -> Set.of(new DormBuilding(DormBuildingName.fromString("Grad Center A")),
-          new DormBuilding(DormBuildingName.fromString("Grad Center B")),
-          new DormBuilding(DormBuildingName.fromString("Grad Center C")),
-          new DormBuilding(DormBuildingName.fromString("Grad Center D")));
-      case GregorianQuad -> Set.of(new DormBuilding(DormBuildingName.fromString("Vartan Gregorian Quad A")),
-          new DormBuilding(DormBuildingName.fromString("Vartan Gregorian Quad B")));
+      case MainGreen -> Set.of(DormBuilding.of(DormBuildingName.fromString("Hope College")),
+          DormBuilding.of(DormBuildingName.fromString("Slater Hall")));
+      case GradCenter -> Set.of(DormBuilding.of(DormBuildingName.fromString("Grad Center A")),
+          DormBuilding.of(DormBuildingName.fromString("Grad Center B")),
+          DormBuilding.of(DormBuildingName.fromString("Grad Center C")),
+          DormBuilding.of(DormBuildingName.fromString("Grad Center D")));
+      case GregorianQuad -> Set.of(DormBuilding.of(DormBuildingName.fromString("Vartan Gregorian Quad A")),
+          DormBuilding.of(DormBuildingName.fromString("Vartan Gregorian Quad B")));
 //      case Pembroke -> Set.of(new DormBuilding("New Pembroke #1"),
 //          new DormBuilding("New Pembroke #2"),
 //          new DormBuilding("New Pembroke #3"),
 //          new DormBuilding("West House"));
-      case RuthJSimmons -> Set.of(new DormBuilding(DormBuildingName.fromString("Hegeman Hall")),
-          new DormBuilding(DormBuildingName.fromString("Littlefield Hall")));
-      case ThayerStreet -> Set.of(new DormBuilding(DormBuildingName.fromString("Caswell Hall")));
-      case EastCampus -> Set.of(new DormBuilding(DormBuildingName.fromString("Barbour Hall")),
-          new DormBuilding(DormBuildingName.fromString("King House")),
-          new DormBuilding(DormBuildingName.fromString("Minden Hall")),
-          new DormBuilding(DormBuildingName.fromString("Perkins Hall")),
-          new DormBuilding(DormBuildingName.fromString("Young Orchard 10")),
-          new DormBuilding(DormBuildingName.fromString("Young Orchard 2")),
-          new DormBuilding(DormBuildingName.fromString("Young Orchard 4")));
-      case Machado -> Set.of(new DormBuilding(DormBuildingName.fromString("Machado House")));
+      case RuthJSimmons -> Set.of(DormBuilding.of(DormBuildingName.fromString("Hegeman Hall")),
+          DormBuilding.of(DormBuildingName.fromString("Littlefield Hall")));
+      case ThayerStreet -> Set.of(DormBuilding.of(DormBuildingName.fromString("Caswell Hall")));
+      case EastCampus -> Set.of(DormBuilding.of(DormBuildingName.fromString("Barbour Hall")),
+          DormBuilding.of(DormBuildingName.fromString("King House")),
+          DormBuilding.of(DormBuildingName.fromString("Minden Hall")),
+          DormBuilding.of(DormBuildingName.fromString("Perkins Hall")),
+          DormBuilding.of(DormBuildingName.fromString("Young Orchard 10")),
+          DormBuilding.of(DormBuildingName.fromString("Young Orchard 2")),
+          DormBuilding.of(DormBuildingName.fromString("Young Orchard 4")));
+      case Machado -> Set.of(DormBuilding.of(DormBuildingName.fromString("Machado House")));
     };
   }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package DormRoom;
 
+import java.util.Objects;
+
 /**
  * A record representing a dormitory building on campus, providing comprehensive information such as:
  * <ul>
@@ -11,13 +13,17 @@ package DormRoom;
  *   <li>Whether the building includes elevator access (hasElevatorAccess)</li>
  * </ul>
  *
- * <p>To create a new {@code DormBuilding} instance, you must provide a {@link DormBuildingName}.
+ * <p>To get a {@code DormBuilding} instance, you must provide a {@link DormBuildingName}.
  * The internal data (such as address, year, and so forth) is determined based on the building name.
  * This approach standardizes and centralizes building information, ensuring consistency across the application.</p>
  *
+ * <p>Only one canonical instance of every building is needed, so {@link #of(DormBuildingName)}
+ * returns it from a registry instead of creating a new record. Every room of a building then
+ * shares the same instance, and comparing two canonical buildings only compares references.</p>
+ *
  * <p>For example:</p>
  * <pre>{@code
- * DormBuilding dorm = new DormBuilding(DormBuildingName.HOPE_COLLEGE);
+ * DormBuilding dorm = DormBuilding.of(DormBuildingName.HOPE_COLLEGE);
  * System.out.println(dorm.address()); // Prints the address of Hope College
  * }</pre>
  *
@@ -45,11 +51,78 @@ public record DormBuilding(
    * @throws RuntimeException if {@code buildingName} does not match a known building
    */
   public DormBuilding(DormBuildingName buildingName) {
-    this(buildingName, getBuildingData(buildingName).peoplePerWasher(),
-        getBuildingData(buildingName).year(),
-        getBuildingData(buildingName).address(),
-        getBuildingData(buildingName).campusLocation(),
-        getBuildingData(buildingName).hasElevatorAccess());
+    this(buildingName, getBuildingData(buildingName));
+  }
+
+  /**
+   * Constructs a new {@code DormBuilding} from the attributes looked up for its name.
+   *
+   * @param buildingName the enum constant representing the dorm building
+   * @param buildingData the attributes of the building
+   */
+  private DormBuilding(DormBuildingName buildingName, BuildingData buildingData) {
+    this(buildingName, buildingData.peoplePerWasher(), buildingData.year(),
+        buildingData.address(), buildingData.campusLocation(), buildingData.hasElevatorAccess());
+  }
+
+  /**
+   * Returns the canonical {@code DormBuilding} instance of the provided {@link DormBuildingName}.
+   * The attributes of every building are looked up once, the first time any building is requested.
+   *
+   * @param buildingName the enum constant representing the dorm building
+   * @return the shared {@code DormBuilding} of that building
+   * @throws NullPointerException if {@code buildingName} is null
+   */
+  public static DormBuilding of(DormBuildingName buildingName) {
+    return Registry.BUILDINGS[buildingName.ordinal()];
+  }
+
+  /**
+   * Holds the canonical instances of every building, indexed by {@link DormBuildingName#ordinal()}.
+   * It is a separate class so that the registry is only filled once {@link #of} is first called,
+   * after {@link CampusLocation}, which the building data refers to, can be initialized.
+   */
+  private static final class Registry {
+    private static final DormBuilding[] BUILDINGS;
+
+    static {
+      DormBuildingName[] buildingNames = DormBuildingName.values();
+      BUILDINGS = new DormBuilding[buildingNames.length];
+      for (DormBuildingName buildingName : buildingNames) {
+        BUILDINGS[buildingName.ordinal()] = new DormBuilding(buildingName);
+      }
+    }
+  }
+
+  /**
+   * Compares this building to another object. Canonical instances are only equal to themselves,
+   * so the reference comparison settles most calls; otherwise every attribute is compared.
+   *
+   * @param o the object to compare to
+   * @return {@code true} if {@code o} is a {@code DormBuilding} with the same attributes
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    return o instanceof DormBuilding other
+        && this.buildingName == other.buildingName
+        && Float.compare(this.peoplePerWasher, other.peoplePerWasher) == 0
+        && this.year == other.year
+        && Objects.equals(this.address, other.address)
+        && this.campusLocation == other.campusLocation
+        && this.hasElevatorAccess == other.hasElevatorAccess;
+  }
+
+  /**
+   * Returns a hash code based on the building name alone, which every attribute is derived from.
+   *
+   * @return the hash code of this building
+   */
+  @Override
+  public int hashCode() {
+    return this.buildingName.hashCode();
   }
 
   /**
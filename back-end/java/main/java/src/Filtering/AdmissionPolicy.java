@@ -0,0 +1,28 @@
+package Filtering;
+
+/**
+ * The policies a {@link FilteringCache} can use to decide whether a freshly computed result is
+ * stored. Evicting entries is always done least recently used first; the policies only differ in
+ * what they let in.
+ */
+public enum AdmissionPolicy {
+
+  /**
+   * Every result is stored, so the cache behaves as a plain LRU cache. A burst of one-off queries
+   * evicts every hot entry.
+   */
+  LRU,
+
+  /**
+   * Results are stored freely while the cache has room. Once it is full, a result is only stored
+   * if a {@link FrequencySketch} of the recent queries has seen its criteria before, so one-off
+   * queries are served but never displace the entries of repeated ones.
+   */
+  TINY_LFU;
+
+  /**
+   * The estimated frequency, counting the current request, at which a full cache admits a result
+   * under {@link #TINY_LFU}. A key that has been requested once before is admitted.
+   */
+  public static final int ADMISSION_FREQUENCY = 2;
+}
@@ -0,0 +1,311 @@
+package Filtering.Bitmap_Index;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuildingName;
+import DormRoom.IDormRoom;
+import DormRoom.RoomCapacity;
+import Filtering.CompactRoom;
+import Filtering.CompiledCriteria;
+import Filtering.FacetCounts;
+import Filtering.IDormFilter;
+import Filtering.RoomIdSet;
+import Filtering.RoomTable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code BitmapIndex} class is a columnar {@link IDormFilter} that answers queries with
+ * bitwise operations instead of tree traversals.
+ *
+ * <p>Every room is given a bit position, which maps back to its {@link RoomTable} id, and every
+ * value of every categorical attribute keeps a bitset of the rooms that have that value:
+ * <ul>
+ *   <li>{@link DormBuildingName}: one bitset per building</li>
+ *   <li>{@code isSuite}: one bitset for {@code false} and one for {@code true}</li>
+ *   <li>{@code hasKitchen}: one bitset for {@code false} and one for {@code true}</li>
+ *   <li>{@link BathroomType}: one bitset per bathroom type</li>
+ *   <li>{@link RoomCapacity}: one bitset per capacity</li>
+ *   <li>{@code floorNumber}: one bitset per floor, 0 through 9</li>
+ * </ul>
+ *
+ * <p>Bit positions are handed out in order of room size, so the rooms within a room size range
+ * always occupy one contiguous run of bits that two binary searches find. A query ORs the bitsets
+ * of the allowed values within each attribute, ANDs the attributes together and only does so for
+ * the words covering the room size range, 64 rooms at a time. Attributes where every value is
+ * allowed are skipped entirely.
+ *
+ * <p>This class is immutable after construction.
+ */
+public class BitmapIndex implements IDormFilter {
+
+  /**
+   * The number of floor numbers that can be indexed. Floors are a single digit of the room
+   * number.
+   */
+  private static final int FLOOR_COUNT = 10;
+
+  /** The rooms this index was built from, whose ids the results refer to. */
+  private final RoomTable roomTable;
+
+  /** The {@link RoomTable} id of the room at every bit position, i.e. sorted by room size. */
+  private final int[] roomIds;
+
+  /** The room size of each bit position, in ascending order. */
+  private final int[] sortedRoomSizes;
+
+  /** The rooms of every building, indexed by {@link DormBuildingName#ordinal()}. */
+  private final long[][] buildingBits;
+
+  /** The rooms that are not suites at index 0 and those that are at index 1. */
+  private final long[][] suiteBits;
+
+  /** The rooms without a kitchen at index 0 and those with one at index 1. */
+  private final long[][] kitchenBits;
+
+  /** The rooms of every bathroom type, indexed by {@link BathroomType#ordinal()}. */
+  private final long[][] bathroomBits;
+
+  /** The rooms of every capacity, indexed by {@link RoomCapacity#ordinal()}. */
+  private final long[][] capacityBits;
+
+  /** The rooms on every floor, indexed by floor number. */
+  private final long[][] floorBits;
+
+  /** The number of rooms in every bitset of {@link #buildingBits}, at the same index. */
+  private final int[] buildingCounts;
+
+  /** The number of rooms in every bitset of {@link #suiteBits}, at the same index. */
+  private final int[] suiteCounts;
+
+  /** The number of rooms in every bitset of {@link #kitchenBits}, at the same index. */
+  private final int[] kitchenCounts;
+
+  /** The number of rooms in every bitset of {@link #bathroomBits}, at the same index. */
+  private final int[] bathroomCounts;
+
+  /** The number of rooms in every bitset of {@link #capacityBits}, at the same index. */
+  private final int[] capacityCounts;
+
+  /** The number of rooms in every bitset of {@link #floorBits}, at the same index. */
+  private final int[] floorCounts;
+
+  /**
+   * Constructs a new {@code BitmapIndex} over the provided list of {@link IDormRoom}s.
+   *
+   * @param dormRoomList a list of {@link IDormRoom} instances to be indexed
+   * @throws RuntimeException if a dorm room references an invalid or null building or bathroom
+   *                          type, or if the floor number of a room cannot be parsed
+   */
+  public BitmapIndex(List<IDormRoom> dormRoomList) throws RuntimeException {
+    this(new RoomTable(dormRoomList));
+  }
+
+  /**
+   * Constructs a new {@code BitmapIndex} over the rooms of a {@link RoomTable}, whose ids the
+   * results of this index refer to.
+   *
+   * @param roomTable the rooms to be indexed
+   * @throws RuntimeException if a dorm room references an invalid or null building or bathroom
+   *                          type, or if the floor number of a room cannot be parsed
+   */
+  public BitmapIndex(RoomTable roomTable) throws RuntimeException {
+    this.roomTable = roomTable;
+    int n = roomTable.size();
+
+    // Sort the ids by room size, with the size and id packed into one long so the sort runs on
+    //   primitives
+    long[] packed = new long[n];
+    for (int id = 0; id < n; id++) {
+      packed[id] = ((long) roomTable.compactRoom(id).roomSize() << 32) | id;
+    }
+    Arrays.sort(packed);
+    this.roomIds = new int[n];
+    for (int position = 0; position < n; position++) {
+      this.roomIds[position] = (int) packed[position];
+    }
+
+    this.sortedRoomSizes = new int[n];
+    int wordCount = (n + Long.SIZE - 1) / Long.SIZE;
+    this.buildingBits = new long[DormBuildingName.values().length][wordCount];
+    this.suiteBits = new long[2][wordCount];
+    this.kitchenBits = new long[2][wordCount];
+    this.bathroomBits = new long[BathroomType.values().length][wordCount];
+    this.capacityBits = new long[RoomCapacity.values().length][wordCount];
+    this.floorBits = new long[FLOOR_COUNT][wordCount];
+    this.buildingCounts = new int[this.buildingBits.length];
+    this.suiteCounts = new int[2];
+    this.kitchenCounts = new int[2];
+    this.bathroomCounts = new int[this.bathroomBits.length];
+    this.capacityCounts = new int[this.capacityBits.length];
+    this.floorCounts = new int[FLOOR_COUNT];
+
+    for (int position = 0; position < n; position++) {
+      CompactRoom room = roomTable.compactRoom(this.roomIds[position]);
+      this.sortedRoomSizes[position] = room.roomSize();
+      setBit(this.buildingBits, this.buildingCounts, room.buildingOrdinal(), position);
+      setBit(this.suiteBits, this.suiteCounts, room.isSuite() ? 1 : 0, position);
+      setBit(this.kitchenBits, this.kitchenCounts, room.hasKitchen() ? 1 : 0, position);
+      setBit(this.bathroomBits, this.bathroomCounts, room.bathroomOrdinal(), position);
+      setBit(this.capacityBits, this.capacityCounts, room.capacity() - 1, position);
+      setBit(this.floorBits, this.floorCounts, room.floorNumber(), position);
+    }
+  }
+
+  /**
+   * Sets the bit at a position of the bitset of one attribute value and counts the room.
+   *
+   * @param valueBits the bitset of every value of the attribute
+   * @param valueCounts the number of rooms in every bitset of {@code valueBits}
+   * @param value the value of the room
+   * @param position the position of the bit to set
+   */
+  private static void setBit(long[][] valueBits, int[] valueCounts, int value, int position) {
+    valueBits[value][position >>> 6] |= 1L << position;
+    valueCounts[value]++;
+  }
+
+  /**
+   * Filters the dorm rooms using the provided {@link CompiledCriteria}. The allowed values of each
+   * attribute are ORed together, the attributes are ANDed together and only the rooms within the
+   * room size range are considered.
+   *
+   * <p>An empty set for any criterion implies that no dorm rooms match, resulting in an empty
+   * set.</p>
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be returned
+   * @return the ids of the dorm rooms that match all the filtering criteria
+   */
+  @Override
+  public RoomIdSet filterDormSet(CompiledCriteria compiledCriteria) {
+    RoomIdSet result = new RoomIdSet(this.roomTable);
+    this.forEachMatch(compiledCriteria, result::add);
+    return result;
+  }
+
+  /**
+   * Counts the dorm rooms matching the criteria while the bitsets are evaluated: every match is
+   * added to the counts as it is found, so no result set is built.
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be counted
+   * @return the counts of the dorm rooms that match all the filtering criteria
+   */
+  @Override
+  public FacetCounts countFacets(CompiledCriteria compiledCriteria) {
+    FacetCounts counts = new FacetCounts();
+    this.forEachMatch(compiledCriteria, id -> counts.add(this.roomTable.compactRoom(id)));
+    return counts;
+  }
+
+  /**
+   * Passes the id of every matching dorm room to {@code action} as soon as its word of the
+   * bitsets is evaluated, so no result set is built. The ids are passed on in ascending order of
+   * room size.
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be passed on
+   * @param action the consumer receiving the id of every matching dorm room
+   */
+  @Override
+  public void forEachMatch(CompiledCriteria compiledCriteria, IntConsumer action) {
+    // The rooms within the size range are the bit positions [from, to)
+    int from = this.firstPositionWithSizeAtLeast(compiledCriteria.minRoomSize());
+    int to = compiledCriteria.maxRoomSize() == Integer.MAX_VALUE ? this.roomIds.length
+        : this.firstPositionWithSizeAtLeast(compiledCriteria.maxRoomSize() + 1);
+    if (from >= to) {
+      return;
+    }
+
+    // Drop attributes that allow every room, and stop early if one allows none. The capacity
+    // bitsets are indexed by ordinal, which is one below the capacity bit of the mask
+    List<long[][]> terms = new ArrayList<>();
+    if (!this.addTerm(terms, this.buildingBits, this.buildingCounts,
+            compiledCriteria.buildingMask())
+        || !this.addTerm(terms, this.suiteBits, this.suiteCounts, compiledCriteria.suiteMask())
+        || !this.addTerm(terms, this.kitchenBits, this.kitchenCounts,
+            compiledCriteria.kitchenMask())
+        || !this.addTerm(terms, this.bathroomBits, this.bathroomCounts,
+            compiledCriteria.bathroomMask())
+        || !this.addTerm(terms, this.capacityBits, this.capacityCounts,
+            compiledCriteria.capacityMask() >>> 1)
+        || !this.addTerm(terms, this.floorBits, this.floorCounts, compiledCriteria.floorMask())) {
+      return;
+    }
+
+    int firstWord = from >>> 6;
+    int lastWord = (to - 1) >>> 6;
+    for (int word = firstWord; word <= lastWord; word++) {
+      long bits = -1L;
+      if (word == firstWord) {
+        bits &= -1L << from;
+      }
+      if (word == lastWord) {
+        bits &= -1L >>> (Long.SIZE - 1 - ((to - 1) & 63));
+      }
+
+      for (int t = 0; t < terms.size() && bits != 0; t++) {
+        long anyValue = 0;
+        for (long[] valueBits : terms.get(t)) {
+          anyValue |= valueBits[word];
+        }
+        bits &= anyValue;
+      }
+
+      while (bits != 0) {
+        int position = (word << 6) + Long.numberOfTrailingZeros(bits);
+        action.accept(this.roomIds[position]);
+        bits &= bits - 1;
+      }
+    }
+  }
+
+  /**
+   * Adds the bitsets of the allowed values of one attribute to the terms of a query, unless they
+   * cover every room, in which case ANDing with them would not change the result.
+   *
+   * @param terms the terms of the query, one array of bitsets per restricting attribute
+   * @param valueBits the bitset of every value of the attribute
+   * @param valueCounts the number of rooms in every bitset of {@code valueBits}
+   * @param allowedMask the allowed values of the attribute, one bit per value
+   * @return {@code false} if no value of the attribute is allowed, so no room can match
+   */
+  private boolean addTerm(List<long[][]> terms, long[][] valueBits, int[] valueCounts,
+      long allowedMask) {
+    List<long[]> selected = new ArrayList<>();
+    int coveredRooms = 0;
+    for (int value = 0; value < valueBits.length; value++) {
+      if ((allowedMask & (1L << value)) != 0) {
+        selected.add(valueBits[value]);
+        coveredRooms += valueCounts[value];
+      }
+    }
+    if (selected.isEmpty()) {
+      return false;
+    }
+    // The values of one attribute are disjoint, so their room counts add up
+    if (coveredRooms < this.roomIds.length) {
+      terms.add(selected.toArray(new long[0][]));
+    }
+    return true;
+  }
+
+  /**
+   * Returns the first bit position whose room size is at least {@code size}.
+   *
+   * @param size the smallest room size wanted
+   * @return the first such position, or the number of rooms if there is none
+   */
+  private int firstPositionWithSizeAtLeast(int size) {
+    int lo = 0;
+    int hi = this.sortedRoomSizes.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (this.sortedRoomSizes[mid] < size) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,63 @@
+package Filtering;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuildingName;
+import DormRoom.IDormRoom;
+import DormRoom.RoomCapacity;
+
+/**
+ * The {@code CompactRoom} record is the primitive representation of an {@link IDormRoom} that the
+ * filters index and query. Every attribute is read from the room once, when the
+ * {@link RoomTable} is created, so building and searching an index never parses room numbers or
+ * compares strings.
+ *
+ * <p>The room number and floor plan link are dictionary encoded by the {@link RoomTable}: room
+ * number codes are ranks among all distinct room numbers, so comparing two codes orders the room
+ * numbers the same way {@link String#compareTo} would.</p>
+ *
+ * @param id               the id of the room in its {@link RoomTable}
+ * @param roomSize         the square footage of the room
+ * @param capacity         the {@link RoomCapacity#toInteger()} of the room
+ * @param floorNumber      the floor number of the room
+ * @param flags            the {@link #SUITE} and {@link #KITCHEN} bits of the room
+ * @param bathroomOrdinal  the {@link BathroomType#ordinal()} of the room's bathroom type
+ * @param buildingOrdinal  the {@link DormBuildingName#ordinal()} of the room's building
+ * @param roomNumberCode   the rank of the room number among all distinct room numbers
+ * @param floorPlanCode    the code of the floor plan link, or {@code -1} if the room has none
+ */
+public record CompactRoom(
+    int id,
+    int roomSize,
+    byte capacity,
+    byte floorNumber,
+    byte flags,
+    byte bathroomOrdinal,
+    byte buildingOrdinal,
+    int roomNumberCode,
+    int floorPlanCode
+) {
+
+  /** The bit of {@link #flags()} that is set if the room is a suite. */
+  public static final byte SUITE = 0b01;
+
+  /** The bit of {@link #flags()} that is set if the room has a kitchen. */
+  public static final byte KITCHEN = 0b10;
+
+  /**
+   * Returns whether the room is a suite.
+   *
+   * @return {@code true} if the room is a suite
+   */
+  public boolean isSuite() {
+    return (this.flags & SUITE) != 0;
+  }
+
+  /**
+   * Returns whether the room has a kitchen.
+   *
+   * @return {@code true} if the room has a kitchen
+   */
+  public boolean hasKitchen() {
+    return (this.flags & KITCHEN) != 0;
+  }
+}
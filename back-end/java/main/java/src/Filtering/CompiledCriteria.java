@@ -0,0 +1,197 @@
+package Filtering;
+
+import DormRoom.BathroomType;
+import DormRoom.CampusLocation;
+import DormRoom.DormBuilding;
+import DormRoom.DormBuildingName;
+import DormRoom.RoomCapacity;
+
+/**
+ * The {@code CompiledCriteria} record is the form of a {@link FilteringCriteria} that the filters
+ * evaluate. Every set of the criteria is reduced to a bitmask once per request, so checking a room
+ * against the criteria is a shift and a test per attribute, without boxing or iterating a set.
+ *
+ * <p>Bit {@code i} of a mask is set if the value {@code i} is allowed, where {@code i} is:
+ * <ul>
+ *   <li>{@code buildingMask}: the {@link DormBuildingName#ordinal()} of every building in one of
+ *       the campus locations</li>
+ *   <li>{@code suiteMask} and {@code kitchenMask}: 0 for {@code false} and 1 for {@code true}</li>
+ *   <li>{@code bathroomMask}: the {@link BathroomType#ordinal()}</li>
+ *   <li>{@code capacityMask}: the {@link RoomCapacity#toInteger()}</li>
+ *   <li>{@code floorMask}: the floor number. Floors outside {@code [0, 63]} are dropped, since no
+ *       room can be on them.</li>
+ * </ul>
+ *
+ * <p>An empty mask means no dorm room can match, just like an empty set in the criteria.</p>
+ *
+ * @param buildingMask  the allowed buildings
+ * @param suiteMask     the allowed suite statuses
+ * @param kitchenMask   the allowed kitchen statuses
+ * @param bathroomMask  the allowed bathroom types
+ * @param minRoomSize   the minimum allowed room square footage
+ * @param maxRoomSize   the maximum allowed room square footage
+ * @param capacityMask  the allowed room capacities
+ * @param floorMask     the allowed floor numbers
+ */
+public record CompiledCriteria(long buildingMask, int suiteMask, int kitchenMask, int bathroomMask,
+                               int minRoomSize, int maxRoomSize, int capacityMask, long floorMask) {
+
+  /** The building mask of every campus location, indexed by its ordinal. */
+  private static final long[] CAMPUS_LOCATION_BUILDINGS = new long[CampusLocation.values().length];
+
+  static {
+    for (CampusLocation campusLocation : CampusLocation.values()) {
+      for (DormBuilding building : campusLocation.dormBuildingsInCampusLocation()) {
+        CAMPUS_LOCATION_BUILDINGS[campusLocation.ordinal()] |= 1L << building.buildingName().ordinal();
+      }
+    }
+  }
+
+  /**
+   * Returns the bits of {@code buildingMask} that a campus location stands for.
+   *
+   * @param campusLocation the campus location
+   * @return the mask of the {@link DormBuildingName#ordinal()} of every building in it
+   */
+  public static long buildingsOf(CampusLocation campusLocation) {
+    return CAMPUS_LOCATION_BUILDINGS[campusLocation.ordinal()];
+  }
+
+  /**
+   * Reduces every set of the provided criteria to a bitmask.
+   *
+   * @param filteringCriteria the criteria to compile
+   * @return the compiled form of {@code filteringCriteria}
+   */
+  public static CompiledCriteria compile(FilteringCriteria filteringCriteria) {
+    long buildingMask = 0;
+    for (CampusLocation campusLocation : filteringCriteria.campusLocationCriteria()) {
+      buildingMask |= buildingsOf(campusLocation);
+    }
+
+    int suiteMask = 0;
+    for (Boolean isSuite : filteringCriteria.isSuiteCriteria()) {
+      suiteMask |= isSuite ? 0b10 : 0b01;
+    }
+
+    int kitchenMask = 0;
+    for (Boolean hasKitchen : filteringCriteria.hasKitchenCriteria()) {
+      kitchenMask |= hasKitchen ? 0b10 : 0b01;
+    }
+
+    int bathroomMask = 0;
+    for (BathroomType bathroomType : filteringCriteria.bathroomTypeCriteria()) {
+      bathroomMask |= 1 << bathroomType.ordinal();
+    }
+
+    int capacityMask = 0;
+    for (RoomCapacity roomCapacity : filteringCriteria.roomCapacityCriteria()) {
+      capacityMask |= 1 << roomCapacity.toInteger();
+    }
+
+    long floorMask = 0;
+    for (Integer floorNumber : filteringCriteria.floorNumberCriteria()) {
+      if (floorNumber >= 0 && floorNumber < Long.SIZE) {
+        floorMask |= 1L << floorNumber;
+      }
+    }
+
+    return new CompiledCriteria(buildingMask, suiteMask, kitchenMask, bathroomMask,
+        filteringCriteria.minRoomSizeCriteria(), filteringCriteria.maxRoomSizeCriteria(),
+        capacityMask, floorMask);
+  }
+
+  /**
+   * Returns whether no dorm room can match these criteria, because a mask is empty or the room
+   * size range is.
+   *
+   * @return {@code true} if nothing can match
+   */
+  public boolean isEmpty() {
+    return this.buildingMask == 0 || this.suiteMask == 0 || this.kitchenMask == 0
+        || this.bathroomMask == 0 || this.capacityMask == 0 || this.floorMask == 0
+        || this.minRoomSize > this.maxRoomSize;
+  }
+
+  /**
+   * Returns the smallest allowed room capacity.
+   *
+   * @return the lowest bit of {@link #capacityMask()}, or 32 if no capacity is allowed
+   */
+  public int minCapacity() {
+    return Integer.numberOfTrailingZeros(this.capacityMask);
+  }
+
+  /**
+   * Returns the largest allowed room capacity.
+   *
+   * @return the highest bit of {@link #capacityMask()}, or -1 if no capacity is allowed
+   */
+  public int maxCapacity() {
+    return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(this.capacityMask);
+  }
+
+  /**
+   * Returns the lowest allowed floor number.
+   *
+   * @return the lowest bit of {@link #floorMask()}, or 64 if no floor is allowed
+   */
+  public int minFloor() {
+    return Long.numberOfTrailingZeros(this.floorMask);
+  }
+
+  /**
+   * Returns the highest allowed floor number.
+   *
+   * @return the highest bit of {@link #floorMask()}, or -1 if no floor is allowed
+   */
+  public int maxFloor() {
+    return Long.SIZE - 1 - Long.numberOfLeadingZeros(this.floorMask);
+  }
+
+  /**
+   * Returns whether a room size is within the allowed range.
+   *
+   * @param roomSize the square footage of a room
+   * @return {@code true} if the room size is allowed
+   */
+  public boolean allowsRoomSize(int roomSize) {
+    return roomSize >= this.minRoomSize && roomSize <= this.maxRoomSize;
+  }
+
+  /**
+   * Returns whether a room capacity is allowed.
+   *
+   * @param capacity the {@link RoomCapacity#toInteger()} of a room
+   * @return {@code true} if the capacity is allowed
+   */
+  public boolean allowsCapacity(int capacity) {
+    return (this.capacityMask & (1 << capacity)) != 0;
+  }
+
+  /**
+   * Returns whether a floor number is allowed.
+   *
+   * @param floorNumber the floor number of a room, in {@code [0, 63]}
+   * @return {@code true} if the floor is allowed
+   */
+  public boolean allowsFloor(int floorNumber) {
+    return (this.floorMask & (1L << floorNumber)) != 0;
+  }
+
+  /**
+   * Returns whether a room matches every criterion.
+   *
+   * @param room the compact representation of a room
+   * @return {@code true} if the room matches
+   */
+  public boolean matches(CompactRoom room) {
+    return (this.buildingMask & (1L << room.buildingOrdinal())) != 0
+        && (this.suiteMask & (room.isSuite() ? 0b10 : 0b01)) != 0
+        && (this.kitchenMask & (room.hasKitchen() ? 0b10 : 0b01)) != 0
+        && (this.bathroomMask & (1 << room.bathroomOrdinal())) != 0
+        && this.allowsRoomSize(room.roomSize())
+        && this.allowsCapacity(room.capacity())
+        && this.allowsFloor(room.floorNumber());
+  }
+}
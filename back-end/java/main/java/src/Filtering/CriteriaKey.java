@@ -0,0 +1,157 @@
+package Filtering;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuildingName;
+import DormRoom.RoomCapacity;
+
+/**
+ * The {@code CriteriaKey} record is the canonical form of a {@link CompiledCriteria}, packed into
+ * two longs. {@link FilteringCache} keys its entries by it, so looking up a cached result compares
+ * two words instead of hashing and comparing the eight sets of a {@link FilteringCriteria}.
+ *
+ * <p>The key only keeps what can change the result of a query, so criteria that always match the
+ * same rooms share one key:
+ * <ul>
+ *   <li>Floors are a single digit of the room number, so only floors 0 through 9 are kept, e.g.
+ *       {@code floorNumber=all} (1 through 10) and {@code 1,...,9} share a key.</li>
+ *   <li>A negative minimum room size is raised to 0. The maximum room size is kept as it is: a
+ *       key does not know the largest room of the dataset, so no larger bound can be lowered
+ *       without possibly dropping rooms. A key with a larger maximum still
+ *       {@link #covers(CriteriaKey) covers} one with a smaller maximum.</li>
+ *   <li>Criteria that no room can match all share the key {@link #EMPTY}.</li>
+ * </ul>
+ *
+ * <p>The {@code categories} word holds, from the lowest bit up, the floor mask
+ * ({@value #FLOOR_COUNT} bits), the capacity mask shifted down to start at capacity one, the
+ * bathroom mask, the kitchen mask, the suite mask and the building mask. The {@code roomSizes} word
+ * holds the minimum room size in its upper half and the maximum room size in its lower half.</p>
+ *
+ * @param categories the packed masks of every categorical criterion
+ * @param roomSizes  the packed room size bounds
+ */
+public record CriteriaKey(long categories, long roomSizes) {
+
+  /** The number of floors a room can be on. Floors are a single digit of the room number. */
+  public static final int FLOOR_COUNT = 10;
+
+  /** The maximum room size {@code maxRoomSize=all} stands for. */
+  public static final int MAX_ROOM_SIZE = 99999;
+
+  /** The key of every criteria that no room can match. */
+  public static final CriteriaKey EMPTY = new CriteriaKey(0L, 0L);
+
+  private static final int CAPACITY_SHIFT = FLOOR_COUNT;
+  private static final int BATHROOM_SHIFT = CAPACITY_SHIFT + RoomCapacity.values().length;
+  private static final int KITCHEN_SHIFT = BATHROOM_SHIFT + BathroomType.values().length;
+  private static final int SUITE_SHIFT = KITCHEN_SHIFT + 2;
+  private static final int BUILDING_SHIFT = SUITE_SHIFT + 2;
+
+  static {
+    if (BUILDING_SHIFT + DormBuildingName.values().length > Long.SIZE) {
+      throw new IllegalStateException("Too many dorm buildings to pack a criteria key.");
+    }
+  }
+
+  /**
+   * Returns the canonical key of the provided criteria.
+   *
+   * @param compiledCriteria the criteria to pack
+   * @return the key of {@code compiledCriteria}
+   */
+  public static CriteriaKey of(CompiledCriteria compiledCriteria) {
+    long floorMask = compiledCriteria.floorMask() & ((1L << FLOOR_COUNT) - 1);
+    int minRoomSize = Math.max(0, compiledCriteria.minRoomSize());
+    int maxRoomSize = compiledCriteria.maxRoomSize();
+    if (floorMask == 0 || minRoomSize > maxRoomSize || compiledCriteria.isEmpty()) {
+      return EMPTY;
+    }
+
+    long categories = floorMask
+        | (long) (compiledCriteria.capacityMask() >>> 1) << CAPACITY_SHIFT
+        | (long) compiledCriteria.bathroomMask() << BATHROOM_SHIFT
+        | (long) compiledCriteria.kitchenMask() << KITCHEN_SHIFT
+        | (long) compiledCriteria.suiteMask() << SUITE_SHIFT
+        | compiledCriteria.buildingMask() << BUILDING_SHIFT;
+    long roomSizes = (long) minRoomSize << Integer.SIZE | maxRoomSize;
+    return new CriteriaKey(categories, roomSizes);
+  }
+
+  /**
+   * Returns the canonical key of the provided criteria.
+   *
+   * @param filteringCriteria the criteria to pack
+   * @return the key of {@code filteringCriteria}
+   */
+  public static CriteriaKey of(FilteringCriteria filteringCriteria) {
+    return of(CompiledCriteria.compile(filteringCriteria));
+  }
+
+  /**
+   * Returns the masks of the building, suite, kitchen and bathroom criteria, i.e. the categories
+   * without the floor and capacity masks. Two keys can only cover one another if these are
+   * equal or one is a subset of the other.
+   *
+   * @return the building, suite, kitchen and bathroom bits of {@link #categories()}
+   */
+  public long partitionCategories() {
+    return this.categories & -(1L << BATHROOM_SHIFT);
+  }
+
+  /**
+   * Returns whether every room matching {@code other} also matches this key, i.e. whether every
+   * mask of {@code other} is a subset of the mask of this key and its room size range lies within
+   * the room size range of this key. A key covers itself.
+   *
+   * @param other the key to compare to
+   * @return {@code true} if this key covers {@code other}
+   */
+  public boolean covers(CriteriaKey other) {
+    return (other.categories & ~this.categories) == 0
+        && (other.roomSizes >>> Integer.SIZE) >= (this.roomSizes >>> Integer.SIZE)
+        && (int) other.roomSizes <= (int) this.roomSizes;
+  }
+
+  /**
+   * Returns a hash code mixing every bit of both words. The record's default hash XORs the halves
+   * of each word, so the minimum and maximum room size cancel out: every range
+   * {@code [2k, 2k + 1]} would share one hash, one hash bucket and one {@link FrequencySketch}
+   * counter.
+   *
+   * @return the hash code of this key
+   */
+  @Override
+  public int hashCode() {
+    long hash = (this.categories * 0x9E3779B97F4A7C15L + this.roomSizes) * 0xC2B2AE3D27D4EB4FL;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /**
+   * Unpacks this key into the criteria a filter evaluates. The result matches exactly the rooms
+   * that the criteria this key was made from match.
+   *
+   * @return the compiled criteria of this key
+   */
+  public CompiledCriteria toCompiledCriteria() {
+    return new CompiledCriteria(
+        this.categories >>> BUILDING_SHIFT,
+        (int) bits(this.categories, SUITE_SHIFT, 2),
+        (int) bits(this.categories, KITCHEN_SHIFT, 2),
+        (int) bits(this.categories, BATHROOM_SHIFT, BathroomType.values().length),
+        (int) (this.roomSizes >>> Integer.SIZE),
+        (int) this.roomSizes,
+        (int) bits(this.categories, CAPACITY_SHIFT, RoomCapacity.values().length) << 1,
+        bits(this.categories, 0, FLOOR_COUNT));
+  }
+
+  /**
+   * Returns {@code width} bits of {@code word}, starting at bit {@code shift}.
+   *
+   * @param word the packed word
+   * @param shift the lowest bit to read
+   * @param width the number of bits to read
+   * @return the bits, shifted down to start at bit 0
+   */
+  private static long bits(long word, int shift, int width) {
+    return (word >>> shift) & ((1L << width) - 1);
+  }
+}
@@ -0,0 +1,97 @@
+package Filtering;
+
+import DormRoom.CampusLocation;
+import DormRoom.DormBuildingName;
+import DormRoom.RoomCapacity;
+
+/**
+ * The {@code FacetCounts} class counts the rooms matching a query, grouped by building, by
+ * {@link CampusLocation} and by {@link RoomCapacity}, e.g. to show how many rooms every option of
+ * a filter would leave before the user picks it.
+ *
+ * <p>The counts are accumulated room by room from their {@link CompactRoom}s into primitive arrays,
+ * so a filter can count its matches while it visits them, without collecting them into a
+ * {@link RoomIdSet} or resolving them to rooms. The count of a campus location is the sum of the
+ * counts of its buildings.</p>
+ *
+ * <p>Instances are not thread-safe: each one is filled by a single query, then only read.</p>
+ */
+public final class FacetCounts {
+
+  /** The number of matching rooms of every building, by {@link DormBuildingName} ordinal. */
+  private final int[] buildingCounts = new int[DormBuildingName.values().length];
+
+  /** The number of matching rooms of every capacity, by {@link RoomCapacity#toInteger()}. */
+  private final int[] capacityCounts = new int[RoomCapacity.values().length + 1];
+
+  /** The number of matching rooms. */
+  private int total;
+
+  /**
+   * Counts the rooms of a set.
+   *
+   * @param roomIdSet the rooms to count
+   * @return the counts of the rooms of {@code roomIdSet}
+   */
+  public static FacetCounts of(RoomIdSet roomIdSet) {
+    FacetCounts counts = new FacetCounts();
+    RoomTable roomTable = roomIdSet.roomTable();
+    roomIdSet.forEachId(id -> counts.add(roomTable.compactRoom(id)));
+    return counts;
+  }
+
+  /**
+   * Counts one more matching room.
+   *
+   * @param room the matching room
+   */
+  public void add(CompactRoom room) {
+    this.buildingCounts[room.buildingOrdinal()]++;
+    this.capacityCounts[room.capacity()]++;
+    this.total++;
+  }
+
+  /**
+   * Returns the number of matching rooms.
+   *
+   * @return the number of rooms counted
+   */
+  public int total() {
+    return this.total;
+  }
+
+  /**
+   * Returns the number of matching rooms in a building.
+   *
+   * @param buildingName the building
+   * @return the number of rooms counted in {@code buildingName}
+   */
+  public int count(DormBuildingName buildingName) {
+    return this.buildingCounts[buildingName.ordinal()];
+  }
+
+  /**
+   * Returns the number of matching rooms in the buildings of a campus location.
+   *
+   * @param campusLocation the campus location
+   * @return the number of rooms counted in {@code campusLocation}
+   */
+  public int count(CampusLocation campusLocation) {
+    int count = 0;
+    for (long buildings = CompiledCriteria.buildingsOf(campusLocation); buildings != 0;
+        buildings &= buildings - 1) {
+      count += this.buildingCounts[Long.numberOfTrailingZeros(buildings)];
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of matching rooms of a capacity.
+   *
+   * @param roomCapacity the capacity
+   * @return the number of rooms counted with {@code roomCapacity}
+   */
+  public int count(RoomCapacity roomCapacity) {
+    return this.capacityCounts[roomCapacity.toInteger()];
+  }
+}
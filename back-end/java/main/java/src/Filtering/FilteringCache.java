@@ -2,9 +2,20 @@ package Filtering;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 import org.jetbrains.annotations.NotNull;
 import DormRoom.IDormRoom;
 
@@ -19,6 +30,27 @@ import DormRoom.IDormRoom;
  * the filtering logic. The cached results can significantly reduce computation costs for
  * frequently repeated filters, improving overall performance.</p>
  *
+ * <p>Entries are keyed by the {@link CriteriaKey} of the criteria rather than by the criteria
+ * themselves, so a lookup compares two longs, and criteria that always match the same rooms, such
+ * as {@code floorNumber=all} and {@code floorNumber=1,...,9}, share one entry.</p>
+ *
+ * <p>The cache is bounded: every entry is weighed by the {@link RoomIdSet#estimatedBytes()} of its
+ * result, the least recently used entries are evicted once the total weight exceeds the maximum
+ * weight, and entries that have not been read for the expiry duration are dropped. Hits, misses,
+ * evictions and load times are recorded and exposed through {@link #stats()}.</p>
+ *
+ * <p>What is stored is decided by an {@link AdmissionPolicy}. Under {@link AdmissionPolicy#LRU}
+ * every result is stored. Under {@link AdmissionPolicy#TINY_LFU}, once the cache is full, a result
+ * is only stored if its criteria were requested before according to a {@link FrequencySketch}, so
+ * a long tail of one-off queries is computed and returned without evicting the hot entries.</p>
+ *
+ * <p>A miss is first answered from a cached broader result if there is one: when a cached key
+ * {@link CriteriaKey#covers covers} the requested one, e.g. because only the room size range was
+ * narrowed or floors or capacities were left out, its result is post-filtered with
+ * {@link RoomIdSet#select} instead of searching the whole dataset again. The cached keys are
+ * indexed by their {@link CriteriaKey#partitionCategories()}, so only keys asking for the same
+ * buildings, suite and kitchen statuses and bathroom types are considered.</p>
+ *
  * <p><strong>Usage Example:</strong>
  * <pre>{@code
  * IDormFilter filter = ...; // An implementation of the filter interface
@@ -30,61 +62,488 @@ import DormRoom.IDormRoom;
 public class FilteringCache {
 
   /**
-   * A loading cache mapping {@link FilteringCriteria} to {@link Set} of {@link IDormRoom}.
-   * Each time a new FilteringCriteria key is requested, the cache uses the {@link IDormFilter}
+   * A loading cache mapping the {@link CriteriaKey} of some criteria to the {@link RoomIdSet} of
+   * matching {@link IDormRoom}s, so every cached result takes one bit per room.
+   * Each time a new key is requested, the cache uses the {@link IDormFilter}
    * to produce the corresponding filtered set of dorm rooms.
    */
-  private final LoadingCache<FilteringCriteria, Set<IDormRoom>> cache;
+  private final LoadingCache<CriteriaKey, RoomIdSet> cache;
+
+  /** The filter computing the results, also used directly for results that are not admitted. */
+  private final IDormFilter filter;
+
+  /** The policy deciding which results are stored. */
+  private final AdmissionPolicy admissionPolicy;
+
+  /** The recent frequency of every requested key, used by {@link AdmissionPolicy#TINY_LFU}. */
+  private final FrequencySketch sketch;
+
+  /** The maximum total weight of the cached results, in bytes. */
+  private final long maximumWeight;
 
   /**
-   * Constructs a new {@code FilteringCache} using the provided {@link IDormFilter} for data loading.
+   * The weight of one result, which only depends on the size of the room table. It is 0 until
+   * the first result has been computed.
+   */
+  private volatile long entryWeight;
+
+  /** The number of results that were computed but not stored by the admission policy. */
+  private final LongAdder rejectionCount = new LongAdder();
+
+  /** The number of misses that were answered by post-filtering a broader cached result. */
+  private final LongAdder subsumedCount = new LongAdder();
+
+  /** The cached keys, grouped by their {@link CriteriaKey#partitionCategories()}. */
+  private final Map<Long, Set<CriteriaKey>> cachedKeys = new ConcurrentHashMap<>();
+
+  /** The default maximum total weight of the cached results, in bytes. */
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024 * 1024;
+
+  /** The default time after which an entry that has not been read is dropped. */
+  public static final Duration DEFAULT_EXPIRE_AFTER_ACCESS = Duration.ofMinutes(30);
+
+  /**
+   * Constructs a new {@code FilteringCache} using the provided {@link IDormFilter} for data loading,
+   * bounded by {@link #DEFAULT_MAXIMUM_WEIGHT} and {@link #DEFAULT_EXPIRE_AFTER_ACCESS}, that
+   * stores every result.
    *
    * @param filter an {@link IDormFilter} implementation used to filter dorm rooms based on criteria
    * @throws NullPointerException if {@code filter} is null
    */
   public FilteringCache(IDormFilter filter) {
+    this(filter, DEFAULT_MAXIMUM_WEIGHT, DEFAULT_EXPIRE_AFTER_ACCESS);
+  }
+
+  /**
+   * Constructs a new {@code FilteringCache} using the provided {@link IDormFilter} for data loading,
+   * that stores every result.
+   *
+   * @param filter an {@link IDormFilter} implementation used to filter dorm rooms based on criteria
+   * @param maximumWeight the maximum total {@link RoomIdSet#estimatedBytes()} of the cached results
+   * @param expireAfterAccess the time after which an entry that has not been read is dropped
+   * @throws NullPointerException if {@code filter} or {@code expireAfterAccess} is null
+   * @throws IllegalArgumentException if {@code maximumWeight} or {@code expireAfterAccess} is
+   *                                  negative
+   */
+  public FilteringCache(IDormFilter filter, long maximumWeight, Duration expireAfterAccess) {
+    this(filter, maximumWeight, expireAfterAccess, AdmissionPolicy.LRU);
+  }
+
+  /**
+   * Constructs a new {@code FilteringCache} using the provided {@link IDormFilter} for data loading.
+   *
+   * @param filter an {@link IDormFilter} implementation used to filter dorm rooms based on criteria
+   * @param maximumWeight the maximum total {@link RoomIdSet#estimatedBytes()} of the cached results
+   * @param expireAfterAccess the time after which an entry that has not been read is dropped
+   * @param admissionPolicy the policy deciding which results are stored
+   * @throws NullPointerException if {@code filter}, {@code expireAfterAccess} or
+   *                              {@code admissionPolicy} is null
+   * @throws IllegalArgumentException if {@code maximumWeight} or {@code expireAfterAccess} is
+   *                                  negative
+   */
+  public FilteringCache(IDormFilter filter, long maximumWeight, Duration expireAfterAccess,
+      AdmissionPolicy admissionPolicy) {
     if (filter == null) {
       throw new NullPointerException("IDormFilter cannot be null.");
     }
-    this.cache = this.cacheBuilder(filter);
+    if (expireAfterAccess == null) {
+      throw new NullPointerException("The cache expiry cannot be null.");
+    }
+    if (admissionPolicy == null) {
+      throw new NullPointerException("The admission policy cannot be null.");
+    }
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("The maximum cache weight cannot be negative: " + maximumWeight);
+    }
+    if (expireAfterAccess.isNegative()) {
+      throw new IllegalArgumentException("The cache expiry cannot be negative: " + expireAfterAccess);
+    }
+    this.filter = filter;
+    this.admissionPolicy = admissionPolicy;
+    this.sketch = admissionPolicy == AdmissionPolicy.TINY_LFU
+        ? new FrequencySketch(FrequencySketch.DEFAULT_EXPECTED_KEYS) : null;
+    this.maximumWeight = maximumWeight;
+    this.cache = this.cacheBuilder(maximumWeight, expireAfterAccess);
   }
 
   /**
    * Builds the {@link LoadingCache} instance that caches the association between
-   * {@link FilteringCriteria} and the resulting set of filtered {@link IDormRoom}s.
+   * {@link CriteriaKey}s and the resulting set of filtered {@link IDormRoom}s.
    *
    * <p>This method is only intended to be called once by the constructor. The returned cache
    * uses the provided {@link IDormFilter} to load dorm room data on cache misses.</p>
    *
-   * @param filter the filter used to load {@link IDormRoom} lists for given {@link FilteringCriteria}
+   * @param maximumWeight the maximum total weight of the cached results, in bytes
+   * @param expireAfterAccess the time after which an entry that has not been read is dropped
    * @return a newly created {@link LoadingCache} instance
    */
-  private LoadingCache<FilteringCriteria, Set<IDormRoom>> cacheBuilder(IDormFilter filter) {
+  private LoadingCache<CriteriaKey, RoomIdSet> cacheBuilder(long maximumWeight,
+      Duration expireAfterAccess) {
+    // A single segment evicts by recency across the whole cache, and lets the admission policy
+    //   tell when the cache as a whole is full
     return CacheBuilder.newBuilder()
+        .concurrencyLevel(1)
+        .maximumWeight(maximumWeight)
+        .weigher((CriteriaKey key, RoomIdSet result) ->
+            (int) Math.min(Integer.MAX_VALUE, result.estimatedBytes()))
+        .expireAfterAccess(expireAfterAccess)
+        .recordStats()
+        .removalListener((RemovalNotification<CriteriaKey, RoomIdSet> notification) ->
+            this.unindex(notification.getKey()))
         .build(
             new CacheLoader<>() {
               @Override
-              public @NotNull Set<IDormRoom> load(@NotNull FilteringCriteria filteringCriteria) {
-                return filter.filterDormSet(filteringCriteria);
+              public @NotNull RoomIdSet load(@NotNull CriteriaKey criteriaKey) {
+                RoomIdSet result = FilteringCache.this.compute(criteriaKey);
+                FilteringCache.this.index(criteriaKey);
+                return result;
               }
             }
         );
   }
 
+  /**
+   * Computes the result of a key, remembering the weight of a result. The result is post-filtered
+   * from the smallest cached result covering the key if there is one, and searched for with the
+   * filter otherwise.
+   *
+   * @param criteriaKey the key of the criteria to filter by
+   * @return the rooms matching the criteria
+   */
+  private RoomIdSet compute(CriteriaKey criteriaKey) {
+    RoomIdSet broader = this.broaderResult(criteriaKey);
+    RoomIdSet result;
+    if (broader != null) {
+      result = broader.select(criteriaKey.toCompiledCriteria());
+      this.subsumedCount.increment();
+    } else {
+      result = this.filter.filterDormSet(criteriaKey.toCompiledCriteria());
+    }
+    this.entryWeight = result.estimatedBytes();
+    return result;
+  }
+
+  /**
+   * Returns the smallest cached result whose key covers the provided key.
+   *
+   * @param criteriaKey the key to find a broader result for
+   * @return the smallest covering result, or {@code null} if no cached key covers the key
+   */
+  private RoomIdSet broaderResult(CriteriaKey criteriaKey) {
+    // Nothing matches the empty key, so there is nothing to save by post-filtering
+    if (criteriaKey.equals(CriteriaKey.EMPTY)) {
+      return null;
+    }
+    Set<CriteriaKey> candidates = this.cachedKeys.get(criteriaKey.partitionCategories());
+    if (candidates == null) {
+      return null;
+    }
+
+    RoomIdSet smallest = null;
+    for (CriteriaKey candidate : candidates) {
+      if (candidate.covers(criteriaKey)) {
+        // Reading through the map view does not count as a hit or miss of the request
+        RoomIdSet cached = this.cache.asMap().get(candidate);
+        if (cached != null && (smallest == null || cached.size() < smallest.size())) {
+          smallest = cached;
+        }
+      }
+    }
+    return smallest;
+  }
+
+  /**
+   * Adds a key whose result is being stored to the index of cached keys.
+   *
+   * @param criteriaKey the cached key
+   */
+  private void index(CriteriaKey criteriaKey) {
+    this.cachedKeys.compute(criteriaKey.partitionCategories(), (categories, keys) -> {
+      Set<CriteriaKey> updated = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+      updated.add(criteriaKey);
+      return updated;
+    });
+  }
+
+  /**
+   * Removes a key whose result was evicted or expired from the index of cached keys.
+   *
+   * @param criteriaKey the removed key
+   */
+  private void unindex(CriteriaKey criteriaKey) {
+    this.cachedKeys.computeIfPresent(criteriaKey.partitionCategories(), (categories, keys) -> {
+      keys.remove(criteriaKey);
+      return keys.isEmpty() ? null : keys;
+    });
+  }
+
+  /**
+   * Returns whether the result of a key may be stored. Under {@link AdmissionPolicy#TINY_LFU} a
+   * result is admitted while the cache has room for it, and afterwards only if the key has been
+   * requested recently.
+   *
+   * @param criteriaKey the key of the current request, already counted by the sketch
+   * @return {@code true} if the result may be stored
+   */
+  private boolean admits(CriteriaKey criteriaKey) {
+    long weight = this.entryWeight;
+    boolean full = weight > 0 && (this.cache.size() + 1) * weight > this.maximumWeight;
+    return !full || this.sketch.frequency(criteriaKey) >= AdmissionPolicy.ADMISSION_FREQUENCY;
+  }
+
   /**
    * Retrieves a set of {@link IDormRoom}s that match the specified {@link FilteringCriteria}.
    * If the criteria have been requested before, the cached result is returned. Otherwise,
-   * the associated {@link IDormFilter} is used to compute and store the result in the cache.
+   * the associated {@link IDormFilter} is used to compute the result, which is stored in the cache
+   * if the {@link AdmissionPolicy} admits it.
    *
    * @param filteringCriteria the criteria specifying which dorm rooms to retrieve
    * @return a set of dorm rooms matching the provided criteria
    * @throws ExecutionException if the computation (filtering) threw an exception
    * @throws NullPointerException if {@code filteringCriteria} is null
    */
-  public Set<IDormRoom> getFilteredDormSet(FilteringCriteria filteringCriteria) throws ExecutionException {
+  public RoomIdSet getFilteredDormSet(FilteringCriteria filteringCriteria) throws ExecutionException {
     if (filteringCriteria == null) {
       throw new NullPointerException("FilteringCriteria cannot be null.");
     }
-    return this.cache.get(filteringCriteria);
+    return this.getFilteredDormSet(CriteriaKey.of(filteringCriteria));
+  }
+
+  /**
+   * Retrieves a set of {@link IDormRoom}s that match the criteria of the specified
+   * {@link CriteriaKey}, for callers that already packed the criteria into a key.
+   *
+   * @param criteriaKey the key of the criteria specifying which dorm rooms to retrieve
+   * @return a set of dorm rooms matching the criteria
+   * @throws ExecutionException if the computation (filtering) threw an exception
+   * @throws NullPointerException if {@code criteriaKey} is null
+   * @see #getFilteredDormSet(FilteringCriteria)
+   */
+  public RoomIdSet getFilteredDormSet(CriteriaKey criteriaKey) throws ExecutionException {
+    if (criteriaKey == null) {
+      throw new NullPointerException("CriteriaKey cannot be null.");
+    }
+    if (this.admissionPolicy == AdmissionPolicy.TINY_LFU) {
+      this.sketch.increment(criteriaKey);
+      if (!this.admits(criteriaKey)) {
+        RoomIdSet cached = this.cache.getIfPresent(criteriaKey);
+        if (cached != null) {
+          return cached;
+        }
+        // Serve the one-off query without storing it, so it cannot evict a hot entry
+        this.rejectionCount.increment();
+        return this.compute(criteriaKey);
+      }
+    }
+    return this.cache.get(criteriaKey);
+  }
+
+  /**
+   * Retrieves the sets of {@link IDormRoom}s matching several keys at once, e.g. for a batch
+   * request. Cached results and results that can be post-filtered from a broader cached result are
+   * served as by {@link #getFilteredDormSet(CriteriaKey)}. The remaining keys are computed together
+   * with {@link IDormFilter#filterDormSets}, so the filter can share one traversal between them,
+   * and each result is stored if the {@link AdmissionPolicy} admits it.
+   *
+   * <p>Every key counts as a hit or a miss in {@link #stats()}, but results computed together are
+   * stored without counting as loads.</p>
+   *
+   * @param criteriaKeys the keys of the criteria of every query
+   * @return the dorm rooms matching every key, in the order of {@code criteriaKeys}
+   * @throws NullPointerException if a key is null
+   */
+  public List<RoomIdSet> getFilteredDormSets(List<CriteriaKey> criteriaKeys) {
+    Map<CriteriaKey, RoomIdSet> found = new HashMap<>();
+    Set<CriteriaKey> missing = new LinkedHashSet<>();
+    for (CriteriaKey criteriaKey : criteriaKeys) {
+      if (criteriaKey == null) {
+        throw new NullPointerException("CriteriaKey cannot be null.");
+      }
+      if (this.admissionPolicy == AdmissionPolicy.TINY_LFU) {
+        this.sketch.increment(criteriaKey);
+      }
+      if (found.containsKey(criteriaKey) || missing.contains(criteriaKey)) {
+        continue;
+      }
+      RoomIdSet cached = this.cache.getIfPresent(criteriaKey);
+      if (cached == null && !criteriaKey.equals(CriteriaKey.EMPTY)) {
+        RoomIdSet broader = this.broaderResult(criteriaKey);
+        if (broader != null) {
+          cached = broader.select(criteriaKey.toCompiledCriteria());
+          this.subsumedCount.increment();
+          this.store(criteriaKey, cached);
+        }
+      }
+      if (cached != null) {
+        found.put(criteriaKey, cached);
+      } else {
+        missing.add(criteriaKey);
+      }
+    }
+
+    // Compute the remaining keys with one call to the filter
+    if (!missing.isEmpty()) {
+      List<CompiledCriteria> criteriaList = new ArrayList<>(missing.size());
+      for (CriteriaKey criteriaKey : missing) {
+        criteriaList.add(criteriaKey.toCompiledCriteria());
+      }
+      List<RoomIdSet> computed = this.filter.filterDormSets(criteriaList);
+      int i = 0;
+      for (CriteriaKey criteriaKey : missing) {
+        RoomIdSet result = computed.get(i++);
+        this.entryWeight = result.estimatedBytes();
+        this.store(criteriaKey, result);
+        found.put(criteriaKey, result);
+      }
+    }
+
+    List<RoomIdSet> results = new ArrayList<>(criteriaKeys.size());
+    for (CriteriaKey criteriaKey : criteriaKeys) {
+      results.add(found.get(criteriaKey));
+    }
+    return results;
+  }
+
+  /**
+   * Counts the {@link IDormRoom}s matching the criteria of a key, grouped by building, campus
+   * location and capacity. The counts are taken from the cached result of the key, or from the
+   * matching rooms of a broader cached result, if there is one. Otherwise the filter counts its
+   * matches with {@link IDormFilter#countFacets}, without building a result set.
+   *
+   * <p>The counts are not cached, and counting does not count as a hit or miss in
+   * {@link #stats()} or as a request to the admission policy, since no result is requested.</p>
+   *
+   * @param criteriaKey the key of the criteria specifying which dorm rooms to count
+   * @return the counts of the dorm rooms matching the criteria
+   * @throws NullPointerException if {@code criteriaKey} is null
+   */
+  public FacetCounts countFacets(CriteriaKey criteriaKey) {
+    if (criteriaKey == null) {
+      throw new NullPointerException("CriteriaKey cannot be null.");
+    }
+    // Reading through the map view does not count as a hit or miss
+    RoomIdSet cached = this.cache.asMap().get(criteriaKey);
+    if (cached != null) {
+      return FacetCounts.of(cached);
+    }
+    CompiledCriteria compiledCriteria = criteriaKey.toCompiledCriteria();
+    RoomIdSet broader = this.broaderResult(criteriaKey);
+    if (broader == null) {
+      return this.filter.countFacets(compiledCriteria);
+    }
+    FacetCounts counts = new FacetCounts();
+    RoomTable roomTable = broader.roomTable();
+    broader.forEachId(id -> {
+      CompactRoom room = roomTable.compactRoom(id);
+      if (compiledCriteria.matches(room)) {
+        counts.add(room);
+      }
+    });
+    return counts;
+  }
+
+  /**
+   * Passes the id of every {@link IDormRoom} matching the criteria of a key to {@code action}, e.g.
+   * to stream the result. The ids are read from the cached result of the key, or from the matching
+   * rooms of a broader cached result, if there is one, and otherwise passed on by the filter as it
+   * finds them with {@link IDormFilter#forEachMatch}. The result is never built or stored, so
+   * the memory used does not grow with its size.
+   *
+   * <p>Like {@link #countFacets}, this does not count as a hit or miss in {@link #stats()}.</p>
+   *
+   * @param criteriaKey the key of the criteria specifying which dorm rooms to pass on
+   * @param action the consumer receiving the id of every matching room
+   * @throws NullPointerException if {@code criteriaKey} is null
+   */
+  public void forEachMatch(CriteriaKey criteriaKey, IntConsumer action) {
+    if (criteriaKey == null) {
+      throw new NullPointerException("CriteriaKey cannot be null.");
+    }
+    RoomIdSet cached = this.cache.asMap().get(criteriaKey);
+    if (cached != null) {
+      cached.forEachId(action);
+      return;
+    }
+    CompiledCriteria compiledCriteria = criteriaKey.toCompiledCriteria();
+    RoomIdSet broader = this.broaderResult(criteriaKey);
+    if (broader == null) {
+      this.filter.forEachMatch(compiledCriteria, action);
+      return;
+    }
+    RoomTable roomTable = broader.roomTable();
+    broader.forEachId(id -> {
+      if (compiledCriteria.matches(roomTable.compactRoom(id))) {
+        action.accept(id);
+      }
+    });
+  }
+
+  /**
+   * Stores a result computed outside of the loading cache if the admission policy admits it.
+   *
+   * @param criteriaKey the key of the result
+   * @param result the rooms matching the key
+   */
+  private void store(CriteriaKey criteriaKey, RoomIdSet result) {
+    if (this.admissionPolicy == AdmissionPolicy.TINY_LFU && !this.admits(criteriaKey)) {
+      this.rejectionCount.increment();
+      return;
+    }
+    this.cache.put(criteriaKey, result);
+    this.index(criteriaKey);
+  }
+
+  /**
+   * Returns a snapshot of the hit, miss, eviction and load time counters of this cache.
+   *
+   * @return the statistics recorded since this cache was created
+   */
+  public CacheStats stats() {
+    return this.cache.stats();
+  }
+
+  /**
+   * Returns the number of results that were computed but not stored because the
+   * {@link AdmissionPolicy} did not admit them. These requests count as misses in {@link #stats()}
+   * but not as loads.
+   *
+   * @return the number of rejected results since this cache was created
+   */
+  public long rejectionCount() {
+    return this.rejectionCount.sum();
+  }
+
+  /**
+   * Returns the number of misses that were answered by post-filtering a broader cached result
+   * instead of calling the filter.
+   *
+   * @return the number of subsumed misses since this cache was created
+   */
+  public long subsumedCount() {
+    return this.subsumedCount.sum();
+  }
+
+  /**
+   * Returns the approximate number of cached results.
+   *
+   * @return the number of entries in this cache
+   */
+  public long size() {
+    return this.cache.size();
+  }
+
+  /**
+   * Returns the total weight of the cached results, i.e. the sum of their
+   * {@link RoomIdSet#estimatedBytes()}. This walks every entry, so it is meant for monitoring
+   * rather than for every request.
+   *
+   * @return the estimated heap bytes retained by the cached results
+   */
+  public long weightedSize() {
+    long weight = 0;
+    for (RoomIdSet result : this.cache.asMap().values()) {
+      weight += result.estimatedBytes();
+    }
+    return weight;
   }
 }
@@ -0,0 +1,413 @@
+package Filtering.Flat_KDTree;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuilding;
+import DormRoom.DormBuildingName;
+import DormRoom.IDormRoom;
+import DormRoom.RoomCapacity;
+import Filtering.CompactRoom;
+import Filtering.CompiledCriteria;
+import Filtering.FacetCounts;
+import Filtering.IDormFilter;
+import Filtering.RoomIdSet;
+import Filtering.RoomTable;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code FlatKDTree} class is an {@link IDormFilter} that stores its KD-trees implicitly in
+ * parallel primitive arrays instead of as a graph of {@link Filtering.Node_KDTree.KDTreeNode}
+ * objects.
+ *
+ * <p>Rooms are first grouped into partitions by the same categorical attributes that
+ * {@link Filtering.Node_KDTree.KDTreeWrapper} uses: {@link DormBuilding}, suite status, kitchen
+ * availability and {@link BathroomType}. Every partition occupies one contiguous slice of the
+ * arrays, and inside that slice the rooms are laid out in build order: the median room of a slice
+ * {@code [lo, hi)} sits at {@code (lo + hi) / 2}, the left subtree fills {@code [lo, mid)} and the
+ * right subtree fills {@code (mid, hi)}. Because the position of every child can be computed, no
+ * child pointers are stored at all.
+ *
+ * <p>The tree splits on three dimensions:
+ * <ul>
+ *   <li>Dimension 0: {@code roomSize}</li>
+ *   <li>Dimension 1: {@code roomCapacity}</li>
+ *   <li>Dimension 2: {@code floorNumber}</li>
+ * </ul>
+ * The {@code roomNumber} dimension of {@link Filtering.Node_KDTree.KDTreeNode} is left out since
+ * there is no room number criteria to prune on.
+ *
+ * <p>Every value a query needs is read once from the {@link IDormRoom} at construction time, so
+ * filtering never calls a getter or parses a room number string. This class is immutable after
+ * construction.
+ */
+public class FlatKDTree implements IDormFilter {
+
+  /** The number of dimensions: roomSize, roomCapacity, floorNumber. */
+  private static final int K = 3;
+
+  /** The number of {@link BathroomType}s. */
+  private static final int BATHROOM_TYPE_COUNT = BathroomType.values().length;
+
+  /** The number of distinct (building, isSuite, hasKitchen, bathroomType) partitions. */
+  private static final int PARTITION_COUNT =
+      DormBuildingName.values().length * 2 * 2 * BATHROOM_TYPE_COUNT;
+
+  /** The rooms this tree was built from, whose ids the results refer to. */
+  private final RoomTable roomTable;
+
+  /** The square footage of the room stored at each position. */
+  private final int[] size;
+
+  /** The {@link RoomCapacity#toInteger()} of the room stored at each position. */
+  private final byte[] capacity;
+
+  /** The floor number of the room stored at each position. */
+  private final byte[] floor;
+
+  /** The {@link RoomTable} id of the room stored at each position. */
+  private final int[] roomId;
+
+  /**
+   * The first position of every partition. Partition {@code p} occupies
+   * {@code [partitionStart[p], partitionStart[p + 1])}, so this array has one more entry than
+   * there are partitions.
+   */
+  private final int[] partitionStart;
+
+  /**
+   * Constructs a new {@code FlatKDTree} from a provided list of {@link IDormRoom}s.
+   *
+   * @param dormRoomList a list of {@link IDormRoom} instances to be integrated into the structure
+   * @throws RuntimeException if a dorm room references an invalid or null building or bathroom
+   *                          type, or if the floor number of a room cannot be parsed
+   */
+  public FlatKDTree(List<IDormRoom> dormRoomList) throws RuntimeException {
+    this(new RoomTable(dormRoomList));
+  }
+
+  /**
+   * Constructs a new {@code FlatKDTree} over the rooms of a {@link RoomTable}, whose ids the
+   * results of this tree refer to.
+   *
+   * @param roomTable the rooms to be integrated into the structure
+   * @throws RuntimeException if a dorm room references an invalid or null building or bathroom
+   *                          type, or if the floor number of a room cannot be parsed
+   */
+  public FlatKDTree(RoomTable roomTable) throws RuntimeException {
+    int n = roomTable.size();
+    this.roomTable = roomTable;
+    this.size = new int[n];
+    this.capacity = new byte[n];
+    this.floor = new byte[n];
+    this.roomId = new int[n];
+    this.partitionStart = new int[PARTITION_COUNT + 1];
+
+    // Read every attribute once and count how many rooms fall into each partition
+    int[] partitionOf = new int[n];
+    int[] roomSizes = new int[n];
+    byte[] roomCapacities = new byte[n];
+    byte[] roomFloors = new byte[n];
+    for (int i = 0; i < n; i++) {
+      CompactRoom room = roomTable.compactRoom(i);
+      partitionOf[i] = partitionIndex(room.buildingOrdinal(), room.isSuite(), room.hasKitchen(),
+          room.bathroomOrdinal());
+      roomSizes[i] = room.roomSize();
+      roomCapacities[i] = room.capacity();
+      roomFloors[i] = room.floorNumber();
+      this.partitionStart[partitionOf[i] + 1]++;
+    }
+
+    // Turn the counts into start positions and place each room into its partition's slice
+    for (int p = 0; p < PARTITION_COUNT; p++) {
+      this.partitionStart[p + 1] += this.partitionStart[p];
+    }
+    int[] nextFree = this.partitionStart.clone();
+    for (int i = 0; i < n; i++) {
+      int position = nextFree[partitionOf[i]]++;
+      this.roomId[position] = i;
+      this.size[position] = roomSizes[i];
+      this.capacity[position] = roomCapacities[i];
+      this.floor[position] = roomFloors[i];
+    }
+
+    // Lay out the KD-tree of every partition inside its slice
+    for (int p = 0; p < PARTITION_COUNT; p++) {
+      this.build(this.partitionStart[p], this.partitionStart[p + 1], 0);
+    }
+  }
+
+  /**
+   * Returns the partition that a room with the given categorical attributes belongs to.
+   *
+   * @param buildingOrdinal the {@link DormBuildingName#ordinal()} of the room's building
+   * @param isSuite whether the room is a suite
+   * @param hasKitchen whether the room has a kitchen
+   * @param bathroomOrdinal the {@link BathroomType#ordinal()} of the room's bathroom type
+   * @return an index in {@code [0, PARTITION_COUNT)}
+   */
+  private static int partitionIndex(int buildingOrdinal, boolean isSuite, boolean hasKitchen,
+      int bathroomOrdinal) {
+    int index = buildingOrdinal;
+    index = index * 2 + (isSuite ? 1 : 0);
+    index = index * 2 + (hasKitchen ? 1 : 0);
+    return index * BATHROOM_TYPE_COUNT + bathroomOrdinal;
+  }
+
+  /**
+   * Recursively lays out the slice {@code [lo, hi)} as a KD-tree. The median along the current
+   * axis is moved to the middle of the slice, everything that is not greater goes to its left and
+   * everything that is not smaller goes to its right.
+   *
+   * @param lo the first position of the slice
+   * @param hi one past the last position of the slice
+   * @param depth the current tree depth, used to determine the splitting axis
+   */
+  private void build(int lo, int hi, int depth) {
+    if (hi - lo <= 1) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    this.select(lo, hi - 1, mid, depth % K);
+    this.build(lo, mid, depth + 1);
+    this.build(mid + 1, hi, depth + 1);
+  }
+
+  /**
+   * Rearranges the positions {@code [lo, hi]} so that the element at {@code k} is the one that
+   * would be there if the slice were sorted along {@code axis} (quickselect).
+   *
+   * @param lo the first position of the slice
+   * @param hi the last position of the slice, inclusive
+   * @param k the position to select
+   * @param axis the axis to compare on
+   */
+  private void select(int lo, int hi, int k, int axis) {
+    while (hi > lo) {
+      // Median of three pivot, which is robust against the already sorted input parsing produces
+      int middle = (lo + hi) >>> 1;
+      if (this.key(middle, axis) < this.key(lo, axis)) {
+        this.swap(middle, lo);
+      }
+      if (this.key(hi, axis) < this.key(lo, axis)) {
+        this.swap(hi, lo);
+      }
+      if (this.key(hi, axis) < this.key(middle, axis)) {
+        this.swap(hi, middle);
+      }
+      int pivot = this.key(middle, axis);
+
+      // Hoare partition around the pivot value
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (this.key(i, axis) < pivot) {
+          i++;
+        }
+        while (this.key(j, axis) > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          this.swap(i, j);
+          i++;
+          j--;
+        }
+      }
+
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the value of the room at a position along the given axis.
+   *
+   * @param position the position in the arrays
+   * @param axis the axis, between 0 and 2 inclusive
+   * @return the room's value along that axis
+   */
+  private int key(int position, int axis) {
+    return switch (axis) {
+      case 0 -> this.size[position];
+      case 1 -> this.capacity[position];
+      case 2 -> this.floor[position];
+      default -> throw new IllegalArgumentException("Invalid axis: " + axis + ". Axis must be 0,1, or 2.");
+    };
+  }
+
+  /**
+   * Swaps the rooms stored at two positions in every parallel array.
+   *
+   * @param a the first position
+   * @param b the second position
+   */
+  private void swap(int a, int b) {
+    int tmpSize = this.size[a];
+    this.size[a] = this.size[b];
+    this.size[b] = tmpSize;
+
+    byte tmpCapacity = this.capacity[a];
+    this.capacity[a] = this.capacity[b];
+    this.capacity[b] = tmpCapacity;
+
+    byte tmpFloor = this.floor[a];
+    this.floor[a] = this.floor[b];
+    this.floor[b] = tmpFloor;
+
+    int tmpId = this.roomId[a];
+    this.roomId[a] = this.roomId[b];
+    this.roomId[b] = tmpId;
+  }
+
+  /**
+   * Filters the dorm rooms using the provided {@link CompiledCriteria}. Every partition whose
+   * categorical attributes are allowed by the criteria is searched with a range query over its
+   * implicit KD-tree.
+   *
+   * <p>An empty set for any criterion implies that no dorm rooms match, resulting in an empty set.</p>
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be returned
+   * @return the ids of the dorm rooms that match all the filtering criteria
+   */
+  @Override
+  public RoomIdSet filterDormSet(CompiledCriteria compiledCriteria) {
+    RoomIdSet result = new RoomIdSet(this.roomTable);
+    this.forEachMatch(compiledCriteria, result::add);
+    return result;
+  }
+
+  /**
+   * Counts the dorm rooms matching the criteria while the partitions are searched: every match is
+   * added to the counts as it is found, so no result set is built.
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be counted
+   * @return the counts of the dorm rooms that match all the filtering criteria
+   */
+  @Override
+  public FacetCounts countFacets(CompiledCriteria compiledCriteria) {
+    FacetCounts counts = new FacetCounts();
+    this.forEachMatch(compiledCriteria, id -> counts.add(this.roomTable.compactRoom(id)));
+    return counts;
+  }
+
+  /**
+   * Passes the id of every matching dorm room to {@code action} as soon as the search of its
+   * partition finds it, so no result set is built. The partitions are searched one after the
+   * other, in the order of their slices.
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be passed on
+   * @param action the consumer receiving the id of every matching dorm room
+   */
+  @Override
+  public void forEachMatch(CompiledCriteria compiledCriteria, IntConsumer action) {
+    if (compiledCriteria.isEmpty()) {
+      return;
+    }
+
+    Query query = new Query(compiledCriteria.minRoomSize(), compiledCriteria.maxRoomSize(),
+        compiledCriteria.minCapacity(), compiledCriteria.maxCapacity(),
+        compiledCriteria.capacityMask(), compiledCriteria.minFloor(), compiledCriteria.maxFloor(),
+        compiledCriteria.floorMask(), action);
+
+    // Only the partitions whose bits are set in every categorical mask are searched
+    for (long buildings = compiledCriteria.buildingMask(); buildings != 0; buildings &= buildings - 1) {
+      int building = Long.numberOfTrailingZeros(buildings);
+      for (int suite = 0; suite < 2; suite++) {
+        if ((compiledCriteria.suiteMask() & (1 << suite)) == 0) {
+          continue;
+        }
+        for (int kitchen = 0; kitchen < 2; kitchen++) {
+          if ((compiledCriteria.kitchenMask() & (1 << kitchen)) == 0) {
+            continue;
+          }
+          for (int bathroom = 0; bathroom < BATHROOM_TYPE_COUNT; bathroom++) {
+            if ((compiledCriteria.bathroomMask() & (1 << bathroom)) == 0) {
+              continue;
+            }
+            int partition = partitionIndex(building, suite == 1, kitchen == 1, bathroom);
+            this.search(this.partitionStart[partition], this.partitionStart[partition + 1], 0, query);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The per query state that {@link #search(int, int, int, Query)} reads at every visited node.
+   *
+   * @param minSize the minimum allowed room size
+   * @param maxSize the maximum allowed room size
+   * @param minCapacity the smallest allowed room capacity
+   * @param maxCapacity the largest allowed room capacity
+   * @param capacityMask the allowed room capacities, one bit per integer value
+   * @param minFloor the lowest allowed floor number
+   * @param maxFloor the highest allowed floor number
+   * @param floorMask the allowed floor numbers, one bit per floor
+   * @param sink the consumer that the ids of matching rooms are passed to
+   */
+  private record Query(int minSize, int maxSize, int minCapacity, int maxCapacity,
+                       int capacityMask, int minFloor, int maxFloor,
+                       long floorMask, IntConsumer sink) {}
+
+  /**
+   * Searches the KD-tree laid out in the slice {@code [lo, hi)}, passing every matching room to
+   * the query's sink.
+   *
+   * @param lo the first position of the slice
+   * @param hi one past the last position of the slice
+   * @param depth the current tree depth, used to determine the splitting axis
+   * @param query the criteria of the current query
+   */
+  private void search(int lo, int hi, int depth, Query query) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int roomSize = this.size[mid];
+      int roomCapacity = this.capacity[mid];
+      int roomFloor = this.floor[mid];
+
+      if (roomSize >= query.minSize() && roomSize <= query.maxSize()
+          && (query.capacityMask() & (1 << roomCapacity)) != 0
+          && (query.floorMask() & (1L << roomFloor)) != 0) {
+        query.sink().accept(this.roomId[mid]);
+      }
+
+      int currVal;
+      int min;
+      int max;
+      switch (depth % K) {
+        case 0 -> {
+          currVal = roomSize;
+          min = query.minSize();
+          max = query.maxSize();
+        }
+        case 1 -> {
+          currVal = roomCapacity;
+          min = query.minCapacity();
+          max = query.maxCapacity();
+        }
+        default -> {
+          currVal = roomFloor;
+          min = query.minFloor();
+          max = query.maxFloor();
+        }
+      }
+
+      depth++;
+      if (currVal < min) {
+        // Only the right subtree can hold values that reach the minimum
+        lo = mid + 1;
+      } else if (currVal > max) {
+        // Only the left subtree can hold values that stay below the maximum
+        hi = mid;
+      } else {
+        // Within range, explore the left subtree recursively and continue with the right one
+        this.search(lo, mid, depth, query);
+        lo = mid + 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package Filtering;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code FrequencySketch} class estimates how often each key has been seen recently, using a
+ * count-min sketch of 4-bit counters. It is the frequency filter behind
+ * {@link AdmissionPolicy#TINY_LFU}.
+ *
+ * <p>Every key increments one counter in each of {@value #DEPTH} rows, picked by a differently
+ * seeded hash, and its estimated frequency is the smallest of those counters, so collisions can
+ * only make a key look more frequent than it is. Counters saturate at 15.</p>
+ *
+ * <p>To keep the estimates about recent traffic, every counter is halved once the number of
+ * increments reaches ten times the number of counters per row. Keys that were popular a long time
+ * ago therefore fade away instead of being protected forever.</p>
+ *
+ * <p>All methods hold a {@link ReentrantLock}, since the sketch is shared by every request thread
+ * and updating it is cheap next to filtering. A lock rather than {@code synchronized} lets a
+ * virtual thread that waits for the sketch unmount from its carrier on JDK 21. Every cache that admits with {@link AdmissionPolicy#TINY_LFU},
+ * e.g. the {@link FilteringCache} and the server's response cache, keeps its own sketch.</p>
+ */
+public class FrequencySketch {
+
+  /** The number of distinct recent keys a cache's sketch is sized for by default. */
+  public static final int DEFAULT_EXPECTED_KEYS = 1 << 14;
+
+  /** The number of rows, i.e. counters a key increments. */
+  private static final int DEPTH = 4;
+
+  /** The seed of the hash of every row. */
+  private static final long[] SEEDS = {
+      0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+  };
+
+  /** The counters of every row, 16 counters of 4 bits per long. */
+  private final long[][] rows;
+
+  /** The number of counters per row minus one. The number of counters is a power of two. */
+  private final int counterMask;
+
+  /** The number of increments after which every counter is halved. */
+  private final int sampleSize;
+
+  /** The number of increments since the counters were last halved. */
+  private int additions;
+
+  /** The lock guarding the counters and {@link #additions}. */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Constructs a {@code FrequencySketch} sized for about {@code expectedKeys} distinct keys.
+   *
+   * @param expectedKeys the number of keys the sketch should tell apart
+   * @throws IllegalArgumentException if {@code expectedKeys} is not positive
+   */
+  public FrequencySketch(int expectedKeys) {
+    if (expectedKeys <= 0) {
+      throw new IllegalArgumentException("The expected number of keys must be positive: " + expectedKeys);
+    }
+    int counters = Math.max(16, Integer.highestOneBit(Math.min(expectedKeys, 1 << 26) - 1) << 1);
+    this.rows = new long[DEPTH][counters / 16];
+    this.counterMask = counters - 1;
+    this.sampleSize = 10 * counters;
+  }
+
+  /**
+   * Records one occurrence of a key.
+   *
+   * @param key the key that was seen
+   */
+  public void increment(Object key) {
+    int hash = key.hashCode();
+    this.lock.lock();
+    try {
+      for (int row = 0; row < DEPTH; row++) {
+        int counter = this.indexOf(hash, row);
+        int word = counter >>> 4;
+        int shift = (counter & 15) << 2;
+        if (((this.rows[row][word] >>> shift) & 0xF) != 0xF) {
+          this.rows[row][word] += 1L << shift;
+        }
+      }
+      if (++this.additions == this.sampleSize) {
+        this.reset();
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the estimated number of recent occurrences of a key.
+   *
+   * @param key the key to look up
+   * @return the estimated frequency, in {@code [0, 15]}
+   */
+  public int frequency(Object key) {
+    int hash = key.hashCode();
+    int frequency = 0xF;
+    this.lock.lock();
+    try {
+      for (int row = 0; row < DEPTH; row++) {
+        int counter = this.indexOf(hash, row);
+        frequency = Math.min(frequency,
+            (int) (this.rows[row][counter >>> 4] >>> ((counter & 15) << 2)) & 0xF);
+      }
+    } finally {
+      this.lock.unlock();
+    }
+    return frequency;
+  }
+
+  /**
+   * Returns the counter of a hash in a row.
+   *
+   * @param hash the hash of the key
+   * @param row the row
+   * @return the index of the counter in the row
+   */
+  private int indexOf(int hash, int row) {
+    long mixed = (hash + SEEDS[row]) * SEEDS[row];
+    return (int) (mixed ^ (mixed >>> 32)) & this.counterMask;
+  }
+
+  /** Halves every counter. */
+  private void reset() {
+    for (long[] row : this.rows) {
+      for (int word = 0; word < row.length; word++) {
+        // Shift every nibble right by one and clear the bit that crossed into the nibble below
+        row[word] = (row[word] >>> 1) & 0x7777777777777777L;
+      }
+    }
+    this.additions /= 2;
+  }
+}
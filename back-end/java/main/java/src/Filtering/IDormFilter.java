@@ -1,7 +1,9 @@
 package Filtering;
 
-import java.util.Set;
 import DormRoom.IDormRoom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * The {@code IDormFilter} interface defines the contract for filtering
@@ -12,6 +14,9 @@ import DormRoom.IDormRoom;
  * <p>This interface is intended for integration with various room-finding
  * utilities, enabling the application to dynamically apply different filters
  * or combine them as needed.</p>
+ *
+ * <p>Implementations identify rooms by their id in a {@link RoomTable} and return their results
+ * as a {@link RoomIdSet}, which only resolves the ids to rooms when it is iterated.</p>
  */
 public interface IDormFilter {
 
@@ -25,5 +30,64 @@ public interface IDormFilter {
    * @return a set of {@link IDormRoom} instances that meet all the specified
    *         filtering conditions
    */
-  Set<IDormRoom> filterDormSet(FilteringCriteria filteringCriteria);
+  default RoomIdSet filterDormSet(FilteringCriteria filteringCriteria) {
+    return this.filterDormSet(CompiledCriteria.compile(filteringCriteria));
+  }
+
+  /**
+   * Filters the dorm rooms according to criteria that have already been reduced to bitmasks. This
+   * is the method implementations provide; callers holding a {@link FilteringCriteria} can use
+   * {@link #filterDormSet(FilteringCriteria)}, which compiles it first.
+   *
+   * @param compiledCriteria the compiled criteria defining which rooms should be included in the
+   *                         filtered result
+   * @return a set of {@link IDormRoom} instances that meet all the specified
+   *         filtering conditions
+   */
+  RoomIdSet filterDormSet(CompiledCriteria compiledCriteria);
+
+  /**
+   * Filters the dorm rooms according to several compiled criteria at once, e.g. the queries of a
+   * batch request. The default implementation runs one query after the other; implementations
+   * that can share work between the queries, such as a single traversal of their index, override
+   * it.
+   *
+   * @param criteriaList the compiled criteria of every query
+   * @return the result of every query, in the order of {@code criteriaList}
+   */
+  default List<RoomIdSet> filterDormSets(List<CompiledCriteria> criteriaList) {
+    List<RoomIdSet> results = new ArrayList<>(criteriaList.size());
+    for (CompiledCriteria compiledCriteria : criteriaList) {
+      results.add(this.filterDormSet(compiledCriteria));
+    }
+    return results;
+  }
+
+  /**
+   * Passes the id of every dorm room matching compiled criteria to {@code action}, in no particular
+   * order, e.g. to stream a result without holding it in memory. The default implementation walks
+   * the result of {@link #filterDormSet(CompiledCriteria)}; implementations that can pass on their
+   * matches while they search override it, so no set is built.
+   *
+   * <p>An exception thrown by {@code action} stops the search and is rethrown.</p>
+   *
+   * @param compiledCriteria the criteria defining which rooms are passed on
+   * @param action the consumer receiving the id of every matching room
+   */
+  default void forEachMatch(CompiledCriteria compiledCriteria, IntConsumer action) {
+    this.filterDormSet(compiledCriteria).forEachId(action);
+  }
+
+  /**
+   * Counts the dorm rooms matching compiled criteria, grouped by building, campus location and
+   * capacity, without returning the rooms themselves. The default implementation counts the
+   * result of {@link #filterDormSet(CompiledCriteria)}; implementations that can count their
+   * matches while they search override it, so no set is built.
+   *
+   * @param compiledCriteria the criteria defining which rooms are counted
+   * @return the counts of the rooms that meet all the specified filtering conditions
+   */
+  default FacetCounts countFacets(CompiledCriteria compiledCriteria) {
+    return FacetCounts.of(this.filterDormSet(compiledCriteria));
+  }
 }
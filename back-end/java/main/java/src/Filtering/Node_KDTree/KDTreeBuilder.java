@@ -0,0 +1,222 @@
+package Filtering.Node_KDTree;
+
+import DormRoom.IDormRoom;
+import Filtering.CompactRoom;
+import Filtering.RoomTable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The {@code KDTreeBuilder} class holds the working state used to construct a {@link KDTreeNode}
+ * tree in O(n log n) time.
+ *
+ * <p>Instead of copying and re-sorting the rooms at every level, the builder sorts the rooms once
+ * per dimension into index arrays. Every subtree then owns the same slice {@code [from, to)} of
+ * all four index arrays. Splitting a slice at the median of one dimension is a linear, stable,
+ * in-place partition of the other three arrays, so every array stays sorted inside every slice.
+ *
+ * <p>Every key is read from the {@link CompactRoom} of a room once. The {@code roomNumber}
+ * dimension uses the room number code, which is the rank of the room number among all room
+ * numbers, so building the tree never compares room number strings.
+ *
+ * <p>A builder is used for a single tree and is not thread safe.
+ */
+class KDTreeBuilder {
+
+  /** The number of dimensions: roomSize, roomCapacity, roomNumber, floorNumber. */
+  static final int K = 4;
+
+  /** Marks a room that belongs to the left subtree of the current split. */
+  private static final byte LEFT = 0;
+
+  /** Marks the median room of the current split. */
+  private static final byte MEDIAN = 1;
+
+  /** Marks a room that belongs to the right subtree of the current split. */
+  private static final byte RIGHT = 2;
+
+  /** The table holding the rooms being built into a tree. */
+  private final RoomTable roomTable;
+
+  /** The ids of the rooms being built into a tree. */
+  private final int[] ids;
+
+  /**
+   * For every dimension, the indices into {@link #ids} sorted by that dimension. Ties are broken
+   * by index, so every array is sorted by a strict total order.
+   */
+  private final int[][] sorted;
+
+  /** The side of the current split that each room, indexed like {@link #ids}, belongs to. */
+  private final byte[] side;
+
+  /** Scratch space for the stable partition of one slice. */
+  private final int[] buffer;
+
+  /**
+   * Returns a builder over every room of a list, whose ids are their ids in a new
+   * {@link RoomTable} of the list.
+   *
+   * @param dormRoomList the non-empty list of rooms to build a tree from
+   * @return a builder over the rooms of the list
+   * @throws IllegalArgumentException if the provided list is null or empty
+   */
+  static KDTreeBuilder forList(List<IDormRoom> dormRoomList) {
+    if (dormRoomList == null || dormRoomList.isEmpty()) {
+      throw new IllegalArgumentException("Cannot create a KDTreeNode from an empty or null list of rooms.");
+    }
+    return forTable(new RoomTable(dormRoomList));
+  }
+
+  /**
+   * Returns a builder over every room of a {@link RoomTable}.
+   *
+   * @param roomTable the non-empty table of rooms to build a tree from
+   * @return a builder over the rooms of the table
+   * @throws NullPointerException if {@code roomTable} is null
+   * @throws IllegalArgumentException if the table holds no rooms
+   */
+  static KDTreeBuilder forTable(RoomTable roomTable) {
+    if (roomTable == null) {
+      throw new NullPointerException("The room table cannot be null.");
+    }
+    return new KDTreeBuilder(roomTable, IntStream.range(0, roomTable.size()).toArray());
+  }
+
+  /**
+   * Reads the keys of every room and sorts the rooms once per dimension.
+   *
+   * @param roomTable the table holding the rooms
+   * @param ids the non-empty array of ids of the rooms to build a tree from
+   * @throws IllegalArgumentException if the provided array is null or empty
+   */
+  KDTreeBuilder(RoomTable roomTable, int[] ids) {
+    if (ids == null || ids.length == 0) {
+      throw new IllegalArgumentException("Cannot create a KDTreeNode from an empty or null list of rooms.");
+    }
+
+    this.roomTable = roomTable;
+    this.ids = ids;
+    int n = ids.length;
+    this.side = new byte[n];
+    this.buffer = new int[n];
+
+    int[][] keys = new int[K][n];
+    for (int i = 0; i < n; i++) {
+      CompactRoom room = roomTable.compactRoom(ids[i]);
+      keys[0][i] = room.roomSize();
+      keys[1][i] = room.capacity();
+      keys[2][i] = room.roomNumberCode();
+      keys[3][i] = room.floorNumber();
+    }
+
+    this.sorted = new int[K][];
+    for (int axis = 0; axis < K; axis++) {
+      this.sorted[axis] = sortByKey(keys[axis]);
+    }
+  }
+
+  /**
+   * Returns the number of rooms of this builder.
+   *
+   * @return the number of rooms being built into a tree
+   */
+  int size() {
+    return this.ids.length;
+  }
+
+  /**
+   * Returns the table holding the rooms of this builder.
+   *
+   * @return the room table the ids of the tree refer to
+   */
+  RoomTable roomTable() {
+    return this.roomTable;
+  }
+
+  /**
+   * Returns the compact representation of the room at a position of the slice sorted by the given
+   * axis.
+   *
+   * @param axis the axis whose sorted order is used
+   * @param position the position within the sorted index array
+   * @return the {@link CompactRoom} at that position
+   */
+  CompactRoom compactRoomAt(int axis, int position) {
+    return this.roomTable.compactRoom(this.ids[this.sorted[axis][position]]);
+  }
+
+  /**
+   * Splits the slice {@code [from, to)} at its median along {@code axis}. Afterwards every index
+   * array holds the rooms of the left subtree in {@code [from, median)}, the median room at
+   * {@code median} and the rooms of the right subtree in {@code (median, to)}, each part still
+   * sorted.
+   *
+   * @param from the first position of the slice
+   * @param to one past the last position of the slice
+   * @param axis the axis to split on
+   * @return the position of the median room
+   */
+  int splitAtMedian(int from, int to, int axis) {
+    int median = from + (to - from) / 2;
+    int[] splitOrder = this.sorted[axis];
+
+    // The split axis is already in left, median, right order. Mark each room's side from it.
+    for (int position = from; position < to; position++) {
+      this.side[splitOrder[position]] = position < median ? LEFT : (position == median ? MEDIAN : RIGHT);
+    }
+
+    // Stable partition every other axis into the same three parts
+    for (int other = 0; other < K; other++) {
+      if (other != axis) {
+        this.partition(this.sorted[other], from, to, median);
+      }
+    }
+    return median;
+  }
+
+  /**
+   * Stably reorders {@code order[from, to)} so that rooms marked {@link #LEFT} come first, then
+   * the room marked {@link #MEDIAN} at {@code median}, then the rooms marked {@link #RIGHT}.
+   *
+   * @param order the index array to reorder
+   * @param from the first position of the slice
+   * @param to one past the last position of the slice
+   * @param median the position the median room ends up at
+   */
+  private void partition(int[] order, int from, int to, int median) {
+    int leftPosition = from;
+    int rightPosition = median + 1;
+    for (int position = from; position < to; position++) {
+      int room = order[position];
+      switch (this.side[room]) {
+        case LEFT -> this.buffer[leftPosition++] = room;
+        case MEDIAN -> this.buffer[median] = room;
+        default -> this.buffer[rightPosition++] = room;
+      }
+    }
+    System.arraycopy(this.buffer, from, order, from, to - from);
+  }
+
+  /**
+   * Returns the indices {@code 0..n-1} sorted by key, breaking ties by index. The key and index
+   * are packed into one {@code long} so the sort runs on primitives.
+   *
+   * @param key the key of every room
+   * @return the sorted indices
+   */
+  private static int[] sortByKey(int[] key) {
+    long[] packed = new long[key.length];
+    for (int i = 0; i < key.length; i++) {
+      packed[i] = ((long) key[i] << 32) | i;
+    }
+    Arrays.sort(packed);
+
+    int[] order = new int[key.length];
+    for (int i = 0; i < key.length; i++) {
+      order[i] = (int) packed[i];
+    }
+    return order;
+  }
+}
@@ -1,19 +1,20 @@
 package Filtering.Node_KDTree;
 
+import Filtering.CompactRoom;
+import Filtering.CompiledCriteria;
 import Filtering.FilteringCriteria;
-import java.util.ArrayList;
+import Filtering.RoomTable;
 import java.util.HashSet;
 import java.util.Set;
-import org.jetbrains.annotations.NotNull;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import DormRoom.IDormRoom;
-import DormRoom.RoomCapacity;
 import java.util.List;
-import java.util.Comparator;
 
 /**
- * The {@code KDTreeNode} class represents a single node in a 4-dimensional KD-Tree
- * used to organize {@link IDormRoom} instances. Each node corresponds to one room
- * and partitions the dataset based on one of four dimensions at each level:
+ * The {@code KDTreeNode} class is the root of a 4-dimensional KD-Tree used to organize
+ * {@link IDormRoom} instances. Each node of the tree corresponds to one room and partitions the
+ * dataset based on one of four dimensions at each level:
  *
  * <ul>
  *   <li>Dimension 0: {@code roomSize}</li>
@@ -23,101 +24,92 @@ import java.util.Comparator;
  * </ul>
  *
  * The KD-Tree is constructed by recursively splitting a list of rooms around the median
- * in the current dimension. As a result, querying the tree (e.g., filtering) can be more
- * efficient than linear scans, especially for large datasets.
+ * in the current dimension, using index arrays that a {@link KDTreeBuilder} sorts once per
+ * dimension. As a result, querying the tree (e.g., filtering) can be more efficient than linear
+ * scans, especially for large datasets.
  *
  * <p>Each node stores:
  * <ol>
- *   <li>A reference to a dorm room ({@link IDormRoom}) acting as the pivot.</li>
+ *   <li>The {@link CompactRoom} of the room acting as the pivot, which the build and query read
+ *       every key and the id of the room from.</li>
  *   <li>References to left and right child nodes, representing subsets of the data
  *       that are respectively "less than" or "greater or equal to" the pivot room
  *       along the current dimension.</li>
  * </ol>
+ * The rooms themselves are only resolved through the {@link RoomTable} of the tree, which the
+ * root holds once, when a query asks for {@link IDormRoom}s rather than ids.
  *
  * <p>An empty set for any criterion implies that no dorm rooms can match that criterion.</p>
  *
- * This node is immutable after construction.
+ * This tree is immutable after construction.
  */
 public class KDTreeNode {
 
   /** The number of dimensions: roomSize, roomCapacity, roomNumber, floorNumber. */
-  private static final int K = 4;
+  private static final int K = KDTreeBuilder.K;
 
-  private final IDormRoom value;
-  private final KDTreeNode left;
-  private final KDTreeNode right;
+  /** The table holding the rooms of this tree, whose ids the nodes and queries refer to. */
+  private final RoomTable roomTable;
+
+  /** The root node of this tree. */
+  private final Node root;
 
   /**
-   * Constructs a {@code KDTreeNode} from a provided list of {@link IDormRoom} instances,
-   * starting at depth 0.
+   * Constructs a KD-tree from a provided list of {@link IDormRoom} instances, starting at depth
+   * 0.
+   *
+   * <p>The rooms are sorted once per dimension by a {@link KDTreeBuilder}, so building the whole
+   * tree takes O(n log n) time. The rooms are given ids in a new {@link RoomTable} of the list,
+   * which {@link #roomTable()} returns to resolve the ids of {@link #filterDormIds}.</p>
    *
-   * @param dormRoomList the non-empty list of rooms to build this KD-tree node from
+   * @param dormRoomList the non-empty list of rooms to build this KD-tree from
    * @throws IllegalArgumentException if the provided list is null or empty
    */
   public KDTreeNode(List<IDormRoom> dormRoomList) {
-    this(dormRoomList, 0);
+    this(KDTreeBuilder.forList(dormRoomList));
   }
 
   /**
-   * Recursive constructor that picks a median room based on the current axis and
-   * splits the list into left and right subsets.
+   * Constructs a KD-tree from every room of a {@link RoomTable}, starting at depth 0. The ids of
+   * {@link #filterDormIds} are the ids of the rooms in that table.
    *
-   * @param rooms a non-empty list of rooms
-   * @param depth the current tree depth, used to determine the splitting axis
-   * @throws IllegalArgumentException if rooms is null or empty
+   * @param roomTable the non-empty table of rooms to build this KD-tree from
+   * @throws NullPointerException if {@code roomTable} is null
+   * @throws IllegalArgumentException if the table holds no rooms
    */
-  private KDTreeNode(List<IDormRoom> rooms, int depth) {
-    if (rooms == null || rooms.isEmpty()) {
-      throw new IllegalArgumentException("Cannot create a KDTreeNode from an empty or null list of rooms.");
-    }
-
-    int axis = depth % K;
-    List<IDormRoom> sortableDormList = new ArrayList<>(rooms);
-    sortableDormList.sort(this.getComparatorForAxis(axis));
-
-    int medianIndex = sortableDormList.size() / 2;
-    this.value = sortableDormList.get(medianIndex);
-
-    // Left subtree
-    if (medianIndex > 0) {
-      List<IDormRoom> leftRooms = sortableDormList.subList(0, medianIndex);
-      this.left = new KDTreeNode(leftRooms, depth + 1);
-    } else {
-      this.left = null;
-    }
+  public KDTreeNode(RoomTable roomTable) {
+    this(KDTreeBuilder.forTable(roomTable));
+  }
 
-    // Right subtree
-    if (medianIndex < rooms.size() - 1) {
-      List<IDormRoom> rightRooms = sortableDormList.subList(medianIndex + 1, rooms.size());
-      this.right = new KDTreeNode(rightRooms, depth + 1);
-    } else {
-      this.right = null;
-    }
+  /**
+   * Constructs a KD-tree from some of the rooms of a {@link RoomTable}, starting at depth 0.
+   *
+   * @param roomTable the table holding the rooms
+   * @param ids the non-empty array of ids of the rooms to build this KD-tree from
+   * @throws IllegalArgumentException if the provided array is null or empty
+   */
+  KDTreeNode(RoomTable roomTable, int[] ids) {
+    this(new KDTreeBuilder(roomTable, ids));
   }
 
   /**
-   * Returns a comparator that orders {@link IDormRoom} objects along the specified axis.
+   * Constructs the KD-tree of all the rooms of a builder.
    *
-   * <p>Axis mapping:
-   * <ul>
-   *   <li>0: roomSize</li>
-   *   <li>1: roomCapacity</li>
-   *   <li>2: roomNumber</li>
-   *   <li>3: floorNumber</li>
-   * </ul>
+   * @param builder the builder holding the presorted index arrays
+   */
+  private KDTreeNode(KDTreeBuilder builder) {
+    this.roomTable = builder.roomTable();
+    this.root = new Node(builder, 0, builder.size(), 0);
+  }
+
+  /**
+   * Returns the table holding the rooms of this tree, which resolves the ids passed to the sinks
+   * of {@link #filterDormIds}.
    *
-   * @param axis the axis to sort on, must be between 0 and 3 inclusive
-   * @return a comparator for sorting rooms on the given axis
-   * @throws IllegalArgumentException if the axis is out of range
+   * @return the room table of this tree
    */
-  private Comparator<IDormRoom> getComparatorForAxis(int axis) {
-    return switch (axis) {
-      case 0 -> Comparator.comparingInt(IDormRoom::getRoomSize);
-      case 1 -> Comparator.comparingInt(IDormRoom::getRoomCapacityInt);
-      case 2 -> Comparator.comparing(IDormRoom::getRoomNumber);
-      case 3 -> Comparator.comparingInt(IDormRoom::getFloorNumber);
-      default -> throw new IllegalArgumentException("Invalid axis: " + axis + ". Axis must be 0,1,2, or 3.");
-    };
+  public RoomTable roomTable() {
+    return this.roomTable;
   }
 
   /**
@@ -132,242 +124,218 @@ public class KDTreeNode {
    * @throws IllegalArgumentException if the axis is out of range
    */
   public Set<IDormRoom> filterDormSet(FilteringCriteria filteringCriteria, int axis) {
-    return switch (axis % K) {
-      case 0 -> this.roomSizeFilter(filteringCriteria, axis);
-      case 1 -> this.roomCapacityFilter(filteringCriteria, axis);
-      case 2 -> this.roomNumberFilter(filteringCriteria, axis);
-      case 3 -> this.floorNumberFilter(filteringCriteria, axis);
-      default -> throw new IllegalArgumentException("Invalid axis: " + axis + ". Axis must be in [0,3].");
-    };
+    Set<IDormRoom> output = new HashSet<>();
+    this.filterDormSet(filteringCriteria, axis, output::add);
+    return output;
   }
 
   /**
-   * Filters rooms by their room size dimension. Uses min and max room size bounds from
-   * {@link FilteringCriteria} to prune subtrees.
+   * Filters the dorm rooms in this subtree based on the given {@link FilteringCriteria} and the
+   * specified axis, handing every matching room to {@code sink} instead of building a set.
    *
-   * <p>If the min and max room sizes result in no possible rooms, returns empty.
+   * <p>The criteria are compiled once here, and the traversal reads its bounds from the
+   * {@link CompiledCriteria}, so the traversal itself allocates nothing. Every room in this
+   * subtree is passed to {@code sink} at most once.</p>
    *
-   * @param filteringCriteria criteria including min and max room size
-   * @param axis the current axis (0 for roomSize)
-   * @return a set of matching rooms
+   * <p>An empty set for any criterion implies that no dorm rooms match that criterion, so nothing
+   * is passed to the sink.</p>
+   *
+   * @param filteringCriteria the criteria specifying which rooms should be included
+   * @param axis the current dimension axis (0 to 3)
+   * @param sink the caller owned consumer that receives every matching room
    */
-  private Set<IDormRoom> roomSizeFilter(FilteringCriteria filteringCriteria, int axis) {
-    int min = filteringCriteria.minRoomSizeCriteria();
-    int max = filteringCriteria.maxRoomSizeCriteria();
-    int currVal = this.value.getRoomSize();
-
-    if (min > max) {
-      // No possible rooms if min > max
-      return new HashSet<>();
-    }
-
-    FilteringCriteria newMinFiltering = this.getNewMinFilteringCriteria(filteringCriteria, currVal);
-    FilteringCriteria newMaxFiltering = this.getNewMaxFilteringCriteria(filteringCriteria, currVal);
-
-    return this.rangeFilter(filteringCriteria, axis, currVal, min, max, newMinFiltering, newMaxFiltering);
+  public void filterDormSet(FilteringCriteria filteringCriteria, int axis, Consumer<IDormRoom> sink) {
+    this.filterDormIds(CompiledCriteria.compile(filteringCriteria), axis,
+        id -> sink.accept(this.roomTable.room(id)));
   }
 
   /**
-   * Filters rooms by room capacity. If {@link FilteringCriteria#roomCapacityCriteria()} is empty,
-   * that implies no possible rooms match, so returns empty immediately.
+   * Filters the dorm rooms in this subtree based on the given {@link CompiledCriteria} and the
+   * specified axis, handing the id of every matching room to {@code sink}. The categorical masks of
+   * the criteria are not checked here, since they are resolved by the caller choosing the tree.
    *
-   * @param filteringCriteria criteria including allowed room capacities
-   * @param axis the current axis (1 for roomCapacity)
-   * @return a set of matching rooms
+   * <p>The query runs as a batch of one, see {@link #filterDormIds(CompiledCriteria[], long,
+   * IntConsumer[])}.</p>
+   *
+   * @param compiledCriteria the criteria specifying which rooms should be included
+   * @param axis the current dimension axis (0 to 3)
+   * @param sink the caller owned consumer that receives the id of every matching room
+   * @see #filterDormSet(FilteringCriteria, int, Consumer)
    */
-  private Set<IDormRoom> roomCapacityFilter(FilteringCriteria filteringCriteria, int axis) {
-    Set<RoomCapacity> capacities = filteringCriteria.roomCapacityCriteria();
-
-    // Compute min and max capacity
-    int min = Integer.MAX_VALUE;
-    int max = Integer.MIN_VALUE;
-    for (RoomCapacity rc : capacities) {
-      int val = rc.toInteger();
-      min = Math.min(min, val);
-      max = Math.max(max, val);
-    }
-
-    return this.rangeFilter(filteringCriteria, axis, this.value.getRoomCapacityInt(), min, max, filteringCriteria, filteringCriteria);
+  public void filterDormIds(CompiledCriteria compiledCriteria, int axis, IntConsumer sink) {
+    this.collect(new CompiledCriteria[] {compiledCriteria}, 1L, axis, new IntConsumer[] {sink});
   }
 
   /**
-   * Filters rooms by room number. There's no set-based range, so if any set-based criterion is empty,
-   * that means no rooms match. If roomNumber is unrestricted by sets, it defaults to exploring both sides.
+   * Filters the dorm rooms in this subtree for several queries in a single traversal, handing the
+   * id of every room matching query {@code i} to {@code sinks[i]}. The queries share the walk down
+   * the tree: a subtree is only entered while at least one query can still match in it, and only
+   * those queries are checked inside it. Like {@link #filterDormIds(CompiledCriteria, int,
+   * IntConsumer)}, the categorical masks of the criteria are not checked here.
    *
-   * @param filteringCriteria criteria including allowed room numbers, if any sets are used for roomNumber
-   *                          and are empty, return empty.
-   * @param axis the current axis (2 for roomNumber)
-   * @return a set of matching rooms
+   * @param criteria the criteria of the queries, at most {@link Long#SIZE} of them
+   * @param queryMask the bit {@code 1L << i} of every query {@code i} to run on this subtree
+   * @param sinks the caller owned consumers receiving the ids of the matches of every query
+   * @throws IllegalArgumentException if there are more than {@link Long#SIZE} queries
    */
-  private Set<IDormRoom> roomNumberFilter(FilteringCriteria filteringCriteria, int axis) {
-    Set<IDormRoom> output = this.addCurrentRoomIfValid(filteringCriteria);
-
-    if (this.left != null) {
-      output.addAll(this.left.filterDormSet(filteringCriteria, axis + 1));
-    }
-    if (this.right != null) {
-      output.addAll(this.right.filterDormSet(filteringCriteria, axis + 1));
+  public void filterDormIds(CompiledCriteria[] criteria, long queryMask, IntConsumer[] sinks) {
+    if (criteria.length > Long.SIZE) {
+      throw new IllegalArgumentException(
+          "A traversal runs at most " + Long.SIZE + " queries: " + criteria.length);
     }
-    return output;
+    this.collect(criteria, queryMask, 0, sinks);
   }
 
   /**
-   * Filters rooms by floor number. If {@link FilteringCriteria#floorNumberCriteria()} is empty,
-   * that implies no possible rooms, so returns empty.
+   * Drops the queries that cannot match any room and walks the tree for the others.
    *
-   * @param filteringCriteria criteria including allowed floor numbers
-   * @param axis the current axis (3 for floorNumber)
-   * @return a set of matching rooms
+   * @param criteria the criteria of the queries
+   * @param queryMask the bit {@code 1L << i} of every query {@code i} to run
+   * @param axis the dimension axis of the root (0 to 3)
+   * @param sinks the consumers receiving the ids of the matches of every query
    */
-  private Set<IDormRoom> floorNumberFilter(FilteringCriteria filteringCriteria, int axis) {
-    Set<Integer> floors = filteringCriteria.floorNumberCriteria();
-
-    // Empty floor set means no possible rooms
-    if (floors.isEmpty()) {
-      return new HashSet<>();
+  private void collect(CompiledCriteria[] criteria, long queryMask, int axis, IntConsumer[] sinks) {
+    // Empty capacity or floor masks mean no possible rooms for that query
+    long active = 0;
+    for (long queries = queryMask; queries != 0; queries &= queries - 1) {
+      int query = Long.numberOfTrailingZeros(queries);
+      if (criteria[query].capacityMask() != 0 && criteria[query].floorMask() != 0) {
+        active |= 1L << query;
+      }
     }
-
-    int min = Integer.MAX_VALUE;
-    int max = Integer.MIN_VALUE;
-    for (Integer floor : floors) {
-      min = Math.min(min, floor);
-      max = Math.max(max, floor);
+    if (active != 0) {
+      this.root.collect(criteria, sinks, active, axis, Integer.MIN_VALUE, Integer.MAX_VALUE);
     }
-
-    return this.rangeFilter(filteringCriteria, axis, this.value.getFloorNumber(), min, max, filteringCriteria, filteringCriteria);
   }
 
   /**
-   * Generic range-based filtering helper.
-   * <p>If sets corresponding to other criteria are empty, returns empty immediately.</p>
-   *
-   * @param filteringCriteria the original filtering criteria
-   * @param axis the current axis
-   * @param currVal the current node's dimension value
-   * @param min the minimum allowed value for this dimension
-   * @param max the maximum allowed value for this dimension
-   * @param newMinFiltering updated criteria for the right subtree
-   * @param newMaxFiltering updated criteria for the left subtree
-   * @return a set of matching rooms
+   * A node of the tree, holding the {@link CompactRoom} of its pivot room and its children.
    */
-  private Set<IDormRoom> rangeFilter(FilteringCriteria filteringCriteria, int axis, int currVal, int min, int max,
-      FilteringCriteria newMinFiltering, FilteringCriteria newMaxFiltering) {
-
-    Set<IDormRoom> output = this.addCurrentRoomIfValid(filteringCriteria);
-
-    // Pruning logic
-    // If currVal is less than the min, than only the right subtree can have higher values that might
-    //   be greater than the min.
-    if (currVal < min) {
-      if (this.right != null) {
-        output.addAll(this.right.filterDormSet(filteringCriteria, axis + 1));
+  private static final class Node {
+    private final CompactRoom room;
+    private final Node left;
+    private final Node right;
+
+    /**
+     * Recursive constructor that picks the median room of a presorted slice based on the current
+     * axis and builds the left and right subtrees from the slices on either side of it.
+     *
+     * @param builder the builder holding the presorted index arrays
+     * @param from the first position of this subtree's slice
+     * @param to one past the last position of this subtree's slice
+     * @param depth the current tree depth, used to determine the splitting axis
+     */
+    Node(KDTreeBuilder builder, int from, int to, int depth) {
+      int axis = depth % K;
+      int medianIndex = builder.splitAtMedian(from, to, axis);
+      this.room = builder.compactRoomAt(axis, medianIndex);
+
+      // Left subtree
+      if (medianIndex > from) {
+        this.left = new Node(builder, from, medianIndex, depth + 1);
+      } else {
+        this.left = null;
       }
-      return output;
-    }
 
-    // If currVal is greater than the max, than only the left subtree can have lower values that might
-    //   be less than the max.
-    if (currVal > max) {
-      if (this.left != null) {
-        output.addAll(this.left.filterDormSet(filteringCriteria, axis + 1));
+      // Right subtree
+      if (medianIndex < to - 1) {
+        this.right = new Node(builder, medianIndex + 1, to, depth + 1);
+      } else {
+        this.right = null;
       }
-      return output;
     }
 
-    // Within range, explore both sides of the subtree.
-    if (this.left != null) {
-      output.addAll(this.left.filterDormSet(newMaxFiltering, axis + 1));
-    }
-    if (this.right != null) {
-      output.addAll(this.right.filterDormSet(newMinFiltering, axis + 1));
-    }
-
-    return output;
-  }
-
-  /**
-   * Adds the current room to the result set if it meets all filtering criteria.
-   *
-   * @param filteringCriteria the criteria to validate against
-   * @return a set containing the current room if it is valid, otherwise empty
-   */
-  private Set<IDormRoom> addCurrentRoomIfValid(FilteringCriteria filteringCriteria) {
-    Set<IDormRoom> result = new HashSet<>();
-    if (this.isValidDormRoom(this.value, filteringCriteria)) {
-      result.add(this.value);
-    }
-    return result;
-  }
-
-
-  /**
-   * Returns a new {@link FilteringCriteria} with an adjusted maximum room size.
-   *
-   * @param filteringCriteria the original criteria
-   * @param newMaxRoomSizeCriteria the new maximum room size
-   * @return a new {@link FilteringCriteria} with updated max room size
-   */
-  @NotNull
-  private FilteringCriteria getNewMaxFilteringCriteria(FilteringCriteria filteringCriteria, int newMaxRoomSizeCriteria) {
-    return new FilteringCriteria(
-        filteringCriteria.campusLocationCriteria(),
-        filteringCriteria.isSuiteCriteria(),
-        filteringCriteria.hasKitchenCriteria(),
-        filteringCriteria.bathroomTypeCriteria(),
-        filteringCriteria.minRoomSizeCriteria(),
-        newMaxRoomSizeCriteria,
-        filteringCriteria.roomCapacityCriteria(),
-        filteringCriteria.floorNumberCriteria());
-  }
-
-  /**
-   * Returns a new {@link FilteringCriteria} with an adjusted minimum room size.
-   *
-   * @param filteringCriteria the original criteria
-   * @param newMinRoomSizeCriteria the new minimum room size
-   * @return a new {@link FilteringCriteria} with updated min room size
-   */
-  @NotNull
-  private FilteringCriteria getNewMinFilteringCriteria(FilteringCriteria filteringCriteria, int newMinRoomSizeCriteria) {
-    return new FilteringCriteria(
-        filteringCriteria.campusLocationCriteria(),
-        filteringCriteria.isSuiteCriteria(),
-        filteringCriteria.hasKitchenCriteria(),
-        filteringCriteria.bathroomTypeCriteria(),
-        newMinRoomSizeCriteria,
-        filteringCriteria.maxRoomSizeCriteria(),
-        filteringCriteria.roomCapacityCriteria(),
-        filteringCriteria.floorNumberCriteria());
-  }
-
-  /**
-   * Checks if a given dorm room meets all specified filtering criteria. This includes:
-   * <ul>
-   *   <li>Room size within min and max bounds.</li>
-   *   <li>Room capacity must be allowed if capacity criteria is not empty.</li>
-   *   <li>Floor number must be allowed if floor criteria is not empty.</li>
-   * </ul>
-   *
-   * <p>An empty set for any of these criteria means no possible rooms, so if that set applies
-   * to this dimension, this room can never be valid.</p>
-   *
-   * @param dormRoom the room to validate
-   * @param filteringCriteria the conditions the room must meet
-   * @return true if the room meets all criteria, false otherwise
-   */
-  private boolean isValidDormRoom(IDormRoom dormRoom, FilteringCriteria filteringCriteria) {
-    // RoomSize must be between minimum and maximum room sizes
-    if (dormRoom.getRoomSize() < filteringCriteria.minRoomSizeCriteria() ||
-        dormRoom.getRoomSize() > filteringCriteria.maxRoomSizeCriteria()) {
-      return false;
-    }
+    /**
+     * Recursively hands the id of every room in this subtree to the sinks of the queries it
+     * matches. Every query prunes the subtrees on its own: if the key of this node is below the
+     * query's range along the current axis, only the right subtree can hold matches, and if it is
+     * above, only the left one. A subtree is entered while at least one query needs it.
+     *
+     * <p>The room size range of the subtree itself is narrowed to the current node's room size
+     * when descending along the room size axis, and every query is intersected with it. The
+     * capacity and floor bounds are read from the {@link CompiledCriteria}, and every key from the
+     * node's {@link CompactRoom}, so the traversal never touches the room itself.</p>
+     *
+     * @param criteria the criteria of the queries
+     * @param sinks the consumers receiving the ids of the matches of every query
+     * @param active the bit of every query that can still match in this subtree
+     * @param axis the current dimension axis
+     * @param lowSize the smallest room size this subtree can hold
+     * @param highSize the largest room size this subtree can hold
+     */
+    void collect(CompiledCriteria[] criteria, IntConsumer[] sinks, long active, int axis,
+        int lowSize, int highSize) {
+      int roomSize = this.room.roomSize();
+      int capacity = this.room.capacity();
+      int floorNumber = this.room.floorNumber();
+      int dimension = axis % K;
+      long goLeft = 0;
+      long goRight = 0;
+
+      for (long queries = active; queries != 0; queries &= queries - 1) {
+        int query = Long.numberOfTrailingZeros(queries);
+        long bit = queries & -queries;
+        CompiledCriteria queryCriteria = criteria[query];
+        int minSize = Math.max(queryCriteria.minRoomSize(), lowSize);
+        int maxSize = Math.min(queryCriteria.maxRoomSize(), highSize);
+        if (minSize > maxSize) {
+          // No possible rooms for this query in this subtree
+          continue;
+        }
+
+        if (roomSize >= minSize && roomSize <= maxSize
+            && (queryCriteria.capacityMask() & (1 << capacity)) != 0
+            && (queryCriteria.floorMask() & (1L << floorNumber)) != 0) {
+          sinks[query].accept(this.room.id());
+        }
+
+        int currVal;
+        int min;
+        int max;
+        switch (dimension) {
+          case 0 -> {
+            currVal = roomSize;
+            min = minSize;
+            max = maxSize;
+          }
+          case 1 -> {
+            currVal = capacity;
+            min = queryCriteria.minCapacity();
+            max = queryCriteria.maxCapacity();
+          }
+          case 2 -> {
+            // There's no room number criteria, so both sides are always explored
+            currVal = 0;
+            min = Integer.MIN_VALUE;
+            max = Integer.MAX_VALUE;
+          }
+          default -> {
+            currVal = floorNumber;
+            min = queryCriteria.minFloor();
+            max = queryCriteria.maxFloor();
+          }
+        }
+        if (currVal < min) {
+          goRight |= bit;
+        } else if (currVal > max) {
+          goLeft |= bit;
+        } else {
+          goLeft |= bit;
+          goRight |= bit;
+        }
+      }
 
-    // RoomCapacity must be a valid roomCapacity
-    if (!filteringCriteria.roomCapacityCriteria().contains(dormRoom.getRoomCapacity())) {
-      return false;
+      // Along the room size axis the left subtree can not exceed the current size and the right
+      //   subtree can not go below it
+      boolean sizeAxis = dimension == 0;
+      if (this.left != null && goLeft != 0) {
+        this.left.collect(criteria, sinks, goLeft, axis + 1, lowSize,
+            sizeAxis ? roomSize : highSize);
+      }
+      if (this.right != null && goRight != 0) {
+        this.right.collect(criteria, sinks, goRight, axis + 1, sizeAxis ? roomSize : lowSize,
+            highSize);
+      }
     }
-
-    // the floor number must be a valid floor number
-    return filteringCriteria.floorNumberCriteria().contains(dormRoom.getFloorNumber());
   }
 }
@@ -1,242 +1,398 @@
 package Filtering.Node_KDTree;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import DormRoom.DormBuilding;
 import DormRoom.BathroomType;
+import DormRoom.DormBuildingName;
 import DormRoom.DormRoom;
 import DormRoom.IDormRoom;
-import Filtering.FilteringCriteria;
+import Filtering.CompactRoom;
+import Filtering.CompiledCriteria;
+import Filtering.FacetCounts;
 import Filtering.IDormFilter;
+import Filtering.RoomIdSet;
+import Filtering.RoomTable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 /**
- * The {@code KDTreeWrapper} class is a hierarchical data structure that organizes
+ * The {@code KDTreeWrapper} class is a partitioned data structure that organizes
  * {@link IDormRoom} instances according to multiple categorical attributes:
  * {@link DormBuilding}, suite availability, kitchen availability, and
  * {@link BathroomType} respectively.
  *
- * <p>Internally, it maintains a nested {@link HashMap} structure keyed by these
- * categorical attributes, ultimately storing rooms in {@link KDTreeNode} instances, which
- * themselves manage spatial (k=3 dimensions) searching of rooms based on the
- * square footage, people per washer, and room capacity.
+ * <p>Internally, it maintains a dense table with one slot for every combination of these
+ * categorical attributes, storing the rooms of each combination in a {@link KDTreeNode}, which
+ * itself manages spatial searching of rooms based on the square footage, room capacity, room
+ * number and floor number.
  *
- * <p>The outer layers of these nested maps categorize rooms, while the
- * {@link KDTreeNode} at the leaves is responsible for efficient quantitative
- * queries and filtering.
+ * <p>The table categorizes rooms, while the {@link KDTreeNode} in each slot is responsible for
+ * efficient quantitative queries and filtering. A query turns each categorical criterion into a
+ * bitmask and visits the slots whose bits are set in all four masks, so finding the
+ * {@link KDTreeNode}s of a query never hashes or boxes anything.
+ *
+ * <p>The {@link KDTreeNode}s of different categories are independent of each other, so a query
+ * that reaches enough rooms searches them in parallel on the common {@link ForkJoinPool}. Queries
+ * that reach fewer rooms than the parallel threshold are searched on the calling thread, where
+ * forking would cost more than it saves. In the same way, a dataset of at least the parallel
+ * threshold builds its {@link KDTreeNode}s in parallel.
  *
  * <p>This class implements the {@link IDormFilter} interface, allowing it to
  * be integrated with other dorm filtering systems.
  */
 public class KDTreeWrapper implements IDormFilter {
   /**
-   * A nested hierarchical data structure:
+   * The default number of rooms a query has to reach across its {@link KDTreeNode}s before they
+   * are searched in parallel.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 8192;
+
+  /** The number of {@link DormBuildingName}s, which must fit in the bits of a {@code long}. */
+  private static final int BUILDING_COUNT = DormBuildingName.values().length;
+
+  /** The number of {@link BathroomType}s. */
+  private static final int BATHROOM_TYPE_COUNT = BathroomType.values().length;
+
+  /** The number of slots in the partition table. */
+  private static final int PARTITION_COUNT = BUILDING_COUNT * 2 * 2 * BATHROOM_TYPE_COUNT;
+
+  /**
+   * A dense table of {@link KDTreeNode}s indexed by {@link #partitionIndex}, i.e. by:
    * <ul>
-   *   <li>{@link DormBuilding}: Building the dorm room belongs to</li>
-   *   <li>{@code Boolean} (isSuite): Whether the room is a suite</li>
-   *   <li>{@code Boolean} (hasKitchen): Whether the room has a kitchen</li>
-   *   <li>{@link BathroomType}: Type of bathroom available</li>
+   *   <li>{@link DormBuildingName#ordinal()}: Building the dorm room belongs to</li>
+   *   <li>isSuite bit: Whether the room is a suite</li>
+   *   <li>hasKitchen bit: Whether the room has a kitchen</li>
+   *   <li>{@link BathroomType#ordinal()}: Type of bathroom available</li>
    * </ul>
-   * Each terminal node of this structure is a {@link KDTreeNode}, containing
-   * a KD-tree of rooms that share all these categorical attributes.
+   * Each non-null slot of this table is a {@link KDTreeNode}, containing a KD-tree of rooms that
+   * share all these categorical attributes. Slots without rooms are {@code null}.
    */
-  private final HashMap<DormBuilding, HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, KDTreeNode>>>> dormRoomHierarchy;
+  private final KDTreeNode[] partitions;
+
+  /** The number of rooms in the {@link KDTreeNode} of every slot of {@link #partitions}. */
+  private final int[] roomCounts;
+
+  /** The rooms of this wrapper, whose ids the results refer to. */
+  private final RoomTable roomTable;
+
+  /** The number of rooms a query or the build has to reach before it runs in parallel. */
+  private final int parallelThreshold;
 
   /**
    * Constructs a new {@code KDTreeWrapper} from a provided list of {@link DormRoom}s.
    * Rooms are first grouped by building, suite status, kitchen availability,
    * and bathroom type. Each group is then managed by a {@link KDTreeNode},
    * which organizes rooms in a KD-tree structure using the specified dimensionality
-   * for square footage, people per washer, and room capacity.
+   * for square footage, room capacity, room number and floor number.
+   *
+   * <p>Queries use the {@link #DEFAULT_PARALLEL_THRESHOLD}.
    *
    * @param dormRoomList a list of {@link DormRoom} instances to be integrated into the structure
    * @throws RuntimeException if a dorm room references an invalid or null building or bathroom type
    */
   public KDTreeWrapper(List<IDormRoom> dormRoomList) throws RuntimeException {
-    this.dormRoomHierarchy = new HashMap<>();
-
-    // This is a map of all the categorical variables to a list of the dormBuildings that satisfy those
-    // categorical variables
-    HashMap<DormBuilding, HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>>>> roomCategorizationMap = new HashMap<>();
-
-    /*
-     * This for loops does 2 main things
-     * 1: Prevents NullPointerExceptions by initializing all the nested HashMaps within this for
-     *    this.dormRoomHierarchy and roomCategorizationMap
-     * 2: Places the list of dorm rooms that have specific categorical variables into roomCategorizationMap,
-     *    so those lists can then be used to create a KDTreeNode.
-     */
-    for (IDormRoom dormRoom : dormRoomList) {
-      DormBuilding dormBuilding = dormRoom.getDormBuilding();
-      if (dormBuilding == null) {
-        throw new RuntimeException("Dorm building cannot be null for dorm room: " + dormRoom);
-      }
+    this(dormRoomList, DEFAULT_PARALLEL_THRESHOLD);
+  }
 
-      boolean isSuite = dormRoom.isSuite();
-      boolean hasKitchen = dormRoom.hasKitchen();
-      BathroomType bathroomType = dormRoom.getBathroomType();
-      if (bathroomType == null) {
-        throw new RuntimeException("BathroomType cannot be null for dorm room: " + dormRoom);
-      }
+  /**
+   * Constructs a new {@code KDTreeWrapper} from a provided list of {@link DormRoom}s, searching
+   * the {@link KDTreeNode}s of a query in parallel once they hold at least
+   * {@code parallelThreshold} rooms between them. If the list itself holds at least
+   * {@code parallelThreshold} rooms, the {@link KDTreeNode}s are also built in parallel.
+   *
+   * @param dormRoomList a list of {@link DormRoom} instances to be integrated into the structure
+   * @param parallelThreshold the number of rooms a query or build has to reach before it runs in
+   *                          parallel; {@link Integer#MAX_VALUE} keeps everything sequential
+   * @throws RuntimeException if a dorm room references an invalid or null building or bathroom type
+   * @throws IllegalArgumentException if {@code parallelThreshold} is negative
+   */
+  public KDTreeWrapper(List<IDormRoom> dormRoomList, int parallelThreshold) throws RuntimeException {
+    this(new RoomTable(dormRoomList), parallelThreshold);
+  }
 
-      // Ensure maps for KDTreeNode and for specificRoomListMap are initialized
-      ensureHierarchyStructure(dormBuilding, isSuite, hasKitchen);
-      ensureRoomListStructure(roomCategorizationMap, dormBuilding, isSuite, hasKitchen, bathroomType);
-
-      // Adds the dormRoom to the list
-      List<IDormRoom> specificRoomList = roomCategorizationMap
-          .get(dormBuilding)
-          .get(isSuite)
-          .get(hasKitchen)
-          .get(bathroomType);
-      specificRoomList.add(dormRoom);
+  /**
+   * Constructs a new {@code KDTreeWrapper} over the rooms of a {@link RoomTable}, whose ids the
+   * results of this wrapper refer to.
+   *
+   * @param roomTable the rooms to be integrated into the structure
+   * @param parallelThreshold the number of rooms a query or build has to reach before it runs in
+   *                          parallel; {@link Integer#MAX_VALUE} keeps everything sequential
+   * @throws IllegalArgumentException if {@code parallelThreshold} is negative
+   * @see #KDTreeWrapper(List, int)
+   */
+  public KDTreeWrapper(RoomTable roomTable, int parallelThreshold) {
+    if (parallelThreshold < 0) {
+      throw new IllegalArgumentException("The parallel threshold cannot be negative: " + parallelThreshold);
     }
+    this.roomTable = roomTable;
+    this.parallelThreshold = parallelThreshold;
+    this.partitions = new KDTreeNode[PARTITION_COUNT];
+    this.roomCounts = new int[PARTITION_COUNT];
 
-    // Create KDTreeNodes for each category and populate them with the respective rooms
-    for (DormBuilding dormBuilding : roomCategorizationMap.keySet()) {
-      HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>>> isSuiteMap =
-          roomCategorizationMap.get(dormBuilding);
-      for (Boolean isSuite : isSuiteMap.keySet()) {
-        HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>> hasKitchenMap = isSuiteMap.get(isSuite);
-        for (Boolean hasKitchen : hasKitchenMap.keySet()) {
-          HashMap<BathroomType, List<IDormRoom>> bathroomTypeMap = hasKitchenMap.get(hasKitchen);
-          for (BathroomType bathroomType : bathroomTypeMap.keySet()) {
-            List<IDormRoom> specificRoomList = bathroomTypeMap.get(bathroomType);
-            // Initialize the KDTreeNode with the list of rooms
-            this.dormRoomHierarchy.get(dormBuilding)
-                .get(isSuite)
-                .get(hasKitchen)
-                .put(bathroomType, new KDTreeNode(specificRoomList));
-          }
-        }
-      }
+    // Find the partition of every room and count the rooms of each partition
+    int n = roomTable.size();
+    int[] partitionOf = new int[n];
+    for (int id = 0; id < n; id++) {
+      CompactRoom room = roomTable.compactRoom(id);
+      partitionOf[id] = partitionIndex(room.buildingOrdinal(), room.isSuite(), room.hasKitchen(),
+          room.bathroomOrdinal());
+      this.roomCounts[partitionOf[id]]++;
+    }
+
+    // Lay the ids of every partition out next to each other, in id order
+    int[] partitionStart = new int[PARTITION_COUNT + 1];
+    for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+      partitionStart[partition + 1] = partitionStart[partition] + this.roomCounts[partition];
+    }
+    int[] next = Arrays.copyOf(partitionStart, PARTITION_COUNT);
+    int[] partitionedIds = new int[n];
+    for (int id = 0; id < n; id++) {
+      partitionedIds[next[partitionOf[id]]++] = id;
     }
+
+    // Initialize a KDTreeNode with the rooms of each non-empty partition. Large datasets build
+    //   them in parallel; each slot is written by one task and the parallel stream completes
+    //   before the constructor returns.
+    IntStream partitionIndices = IntStream.range(0, PARTITION_COUNT)
+        .filter(partition -> this.roomCounts[partition] > 0);
+    if (n >= parallelThreshold) {
+      partitionIndices = partitionIndices.parallel();
+    }
+    partitionIndices.forEach(partition -> {
+      int[] ids = Arrays.copyOfRange(partitionedIds, partitionStart[partition], partitionStart[partition + 1]);
+      this.partitions[partition] = new KDTreeNode(roomTable, ids);
+    });
   }
 
   /**
-   * Ensures that the main nested hierarchy {@link #dormRoomHierarchy} is fully initialized for
-   * the given keys: {@link DormBuilding}, suite status, and kitchen availability.
-   *
-   * <p>This method guarantees that a {@link HashMap} is in place at each level, so that
-   * {@link KDTreeNode} instances can be safely created later without encountering null references.
+   * Returns the slot of the partition table holding the rooms with the given categorical
+   * attributes.
    *
-   * @param dormBuilding the building associated with the dorm room
-   * @param isSuite whether the dorm room is a suite
-   * @param hasKitchen whether the dorm room includes a kitchen
+   * @param buildingOrdinal the {@link DormBuildingName#ordinal()} of the building
+   * @param isSuite whether the rooms are suites
+   * @param hasKitchen whether the rooms have a kitchen
+   * @param bathroomOrdinal the {@link BathroomType#ordinal()} of the bathroom type
+   * @return an index in {@code [0, PARTITION_COUNT)}
    */
-  private void ensureHierarchyStructure(DormBuilding dormBuilding, boolean isSuite, boolean hasKitchen) {
-    HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, KDTreeNode>>> isSuiteMap =
-        this.dormRoomHierarchy.computeIfAbsent(dormBuilding, k -> new HashMap<>());
-
-    HashMap<Boolean, HashMap<BathroomType, KDTreeNode>> hasKitchenMap = isSuiteMap.computeIfAbsent(
-        isSuite, k -> new HashMap<>());
-
-    hasKitchenMap.computeIfAbsent(hasKitchen, k -> new HashMap<>());
+  private static int partitionIndex(int buildingOrdinal, boolean isSuite, boolean hasKitchen,
+      int bathroomOrdinal) {
+    int index = buildingOrdinal;
+    index = index * 2 + (isSuite ? 1 : 0);
+    index = index * 2 + (hasKitchen ? 1 : 0);
+    return index * BATHROOM_TYPE_COUNT + bathroomOrdinal;
   }
 
   /**
-   * Ensures that the intermediate mapping structure for categorizing dorm rooms
-   * into lists (prior to creating their {@link KDTreeNode}) is fully initialized.
-   * This structure, passed in as {@code roomCategorizationMap}, groups
-   * {@link IDormRoom} objects by building, suite status, kitchen availability,
-   * and bathroom type.
+   * Filters the dorm rooms using the provided {@link CompiledCriteria}, returning only those that meet
+   * the specified conditions. The method reads the bitmasks of the categorical criteria (building,
+   * suite, kitchen availability, and bathroom type), enumerates the matching {@link KDTreeNode}
+   * instances of the partition table, and then applies quantitative filters through the KD-tree
+   * search.
    *
-   * <p>This method guarantees that a {@link HashMap} is in place at each level, so that
-   * {@link List<IDormRoom>} instances can be safely created later without encountering null
-   * references.
+   * <p>If the matching KD-trees hold fewer rooms than the parallel threshold, every KD-tree adds the
+   * ids of its matches directly to the single result set. Otherwise the KD-trees are searched in
+   * parallel and their matching ids are merged afterwards.
    *
-   * @param roomCategorizationMap the nested mapping of rooms being built
-   * @param dormBuilding the building associated with the dorm room
-   * @param isSuite whether the dorm room is a suite
-   * @param hasKitchen whether the dorm room includes a kitchen
-   * @param bathroomType the type of bathroom in the dorm room
+   * @param compiledCriteria the criteria specifying which dorm rooms should be returned
+   * @return the ids of the dorm rooms that match all the filtering criteria
    */
-  private void ensureRoomListStructure(
-      HashMap<DormBuilding, HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>>>> roomCategorizationMap,
-      DormBuilding dormBuilding, boolean isSuite, boolean hasKitchen, BathroomType bathroomType) {
+  @Override
+  public RoomIdSet filterDormSet(CompiledCriteria compiledCriteria) {
+    long buildingMask = compiledCriteria.buildingMask();
+    int suiteMask = compiledCriteria.suiteMask();
+    int kitchenMask = compiledCriteria.kitchenMask();
+    int bathroomMask = compiledCriteria.bathroomMask();
 
-    HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>>> isSuiteMap =
-        roomCategorizationMap.computeIfAbsent(dormBuilding, k -> new HashMap<>());
+    // Enumerate the partitions whose bits are set in every mask
+    List<KDTreeNode> matchingTrees = new ArrayList<>();
+    int roomsReached = 0;
+    for (long buildings = buildingMask; buildings != 0; buildings &= buildings - 1) {
+      int building = Long.numberOfTrailingZeros(buildings);
+      for (int suites = suiteMask; suites != 0; suites &= suites - 1) {
+        boolean isSuite = Integer.numberOfTrailingZeros(suites) == 1;
+        for (int kitchens = kitchenMask; kitchens != 0; kitchens &= kitchens - 1) {
+          boolean hasKitchen = Integer.numberOfTrailingZeros(kitchens) == 1;
+          for (int bathrooms = bathroomMask; bathrooms != 0; bathrooms &= bathrooms - 1) {
+            int partition = partitionIndex(building, isSuite, hasKitchen,
+                Integer.numberOfTrailingZeros(bathrooms));
+            KDTreeNode kdTreeNode = this.partitions[partition];
+            if (kdTreeNode != null) {
+              matchingTrees.add(kdTreeNode);
+              roomsReached += this.roomCounts[partition];
+            }
+          }
+        }
+      }
+    }
 
-    HashMap<Boolean, HashMap<BathroomType, List<IDormRoom>>> hasKitchenMap = isSuiteMap.computeIfAbsent(
-        isSuite, k -> new HashMap<>());
+    RoomIdSet result = new RoomIdSet(this.roomTable);
+    IntConsumer sink = result::add;
+    if (matchingTrees.size() < 2 || roomsReached < this.parallelThreshold) {
+      // Collect the ids of the matching dorm rooms of every KD-tree straight into the result
+      for (KDTreeNode kdTreeNode : matchingTrees) {
+        kdTreeNode.filterDormIds(compiledCriteria, 0, sink);
+      }
+      return result;
+    }
 
-    HashMap<BathroomType, List<IDormRoom>> bathroomTypeMap = hasKitchenMap.computeIfAbsent(
-        hasKitchen, k -> new HashMap<>());
+    int[] matches = ForkJoinPool.commonPool().invoke(
+        new ParallelSearch(compiledCriteria, matchingTrees, 0, matchingTrees.size()));
+    for (int id : matches) {
+      result.add(id);
+    }
+    return result;
+  }
 
-    bathroomTypeMap.computeIfAbsent(bathroomType, k -> new ArrayList<>());
+  /**
+   * Counts the dorm rooms matching the criteria while the matching KD-trees are searched: every
+   * match is added to the counts as it is found, so no result set is built.
+   *
+   * @param compiledCriteria the criteria specifying which dorm rooms should be counted
+   * @return the counts of the dorm rooms that match all the filtering criteria
+   */
+  @Override
+  public FacetCounts countFacets(CompiledCriteria compiledCriteria) {
+    FacetCounts counts = new FacetCounts();
+    this.forEachMatch(compiledCriteria, id -> counts.add(this.roomTable.compactRoom(id)));
+    return counts;
   }
 
   /**
-   * Filters the dorm rooms using the provided {@link FilteringCriteria}, returning only those that meet
-   * the specified conditions. The method traverses through the nested hierarchy of dorm rooms
-   * (organized by building, suite, kitchen availability, and bathroom type) to find the matching
-   * {@link KDTreeNode} instances, and then applies quantitative filters through the KD-tree search.
+   * Passes the id of every matching dorm room to {@code action} as soon as its KD-tree finds it,
+   * so no result set is built. The matching KD-trees are searched one after the other on the
+   * calling thread, and the ids are passed on in the order of the partition table.
    *
-   * @param filteringCriteria the criteria specifying which dorm rooms should be returned
-   * @return a set of dorm rooms that match all the filtering criteria
+   * @param compiledCriteria the criteria specifying which dorm rooms should be passed on
+   * @param action the consumer receiving the id of every matching dorm room
    */
   @Override
-  public Set<IDormRoom> filterDormSet(FilteringCriteria filteringCriteria) {
-    Set<IDormRoom> result = new HashSet<>();
-
-    // The dorm room hierarchy is organized as:
-    // dormBuilding -> isSuite -> hasKitchen -> bathroomType -> KDTreeNode
-    Set<DormBuilding> dormBuildingsInHierarchy = this.dormRoomHierarchy.keySet();
-
-    // Intersect the dorm buildings in the criteria with those actually present in the hierarchy
-    // This step avoids unnecessary looping over buildings not present in the hierarchy.
-    Set<DormBuilding> dormBuildingCriteriaSet = filteringCriteria.campusLocationCriteria().stream(). // Gets the set of all potential rooms
-        flatMap(campusLocation -> campusLocation.dormBuildingsInCampusLocation().stream()).collect(
-            Collectors.toSet());
-    for (DormBuilding building : dormBuildingCriteriaSet) {
-      if (!dormBuildingsInHierarchy.contains(building)) {
-        continue; // Skip if the building is not in the hierarchy
+  public void forEachMatch(CompiledCriteria compiledCriteria, IntConsumer action) {
+    for (long buildings = compiledCriteria.buildingMask(); buildings != 0; buildings &= buildings - 1) {
+      int building = Long.numberOfTrailingZeros(buildings);
+      for (int suites = compiledCriteria.suiteMask(); suites != 0; suites &= suites - 1) {
+        boolean isSuite = Integer.numberOfTrailingZeros(suites) == 1;
+        for (int kitchens = compiledCriteria.kitchenMask(); kitchens != 0; kitchens &= kitchens - 1) {
+          boolean hasKitchen = Integer.numberOfTrailingZeros(kitchens) == 1;
+          for (int bathrooms = compiledCriteria.bathroomMask(); bathrooms != 0;
+              bathrooms &= bathrooms - 1) {
+            KDTreeNode kdTreeNode = this.partitions[partitionIndex(building, isSuite, hasKitchen,
+                Integer.numberOfTrailingZeros(bathrooms))];
+            if (kdTreeNode != null) {
+              kdTreeNode.filterDormIds(compiledCriteria, 0, action);
+            }
+          }
+        }
       }
+    }
+  }
 
-      HashMap<Boolean, HashMap<Boolean, HashMap<BathroomType, KDTreeNode>>> isSuiteMap = this.dormRoomHierarchy.get(building);
-      Set<Boolean> suiteSetInHierarchy = isSuiteMap.keySet();
+  /**
+   * Filters the dorm rooms for several criteria with one traversal of every {@link KDTreeNode}.
+   * Each non-empty slot of the partition table is visited once per batch of up to
+   * {@link Long#SIZE} queries: the queries whose categorical masks select the slot are searched
+   * together, so the work of descending the KD-tree is shared between them instead of repeated for
+   * each query.
+   *
+   * <p>The batch is searched on the calling thread.</p>
+   *
+   * @param criteriaList the compiled criteria of every query
+   * @return the ids of the dorm rooms matching every query, in the order of {@code criteriaList}
+   */
+  @Override
+  public List<RoomIdSet> filterDormSets(List<CompiledCriteria> criteriaList) {
+    List<RoomIdSet> results = new ArrayList<>(criteriaList.size());
+    for (int i = 0; i < criteriaList.size(); i++) {
+      results.add(new RoomIdSet(this.roomTable));
+    }
 
-      // Loop through suite criteria
-      for (Boolean suiteCriteria : filteringCriteria.isSuiteCriteria()) {
-        if (!suiteSetInHierarchy.contains(suiteCriteria)) {
-          continue; // Skip if suite criteria is not in hierarchy
-        }
+    for (int from = 0; from < criteriaList.size(); from += Long.SIZE) {
+      int to = Math.min(criteriaList.size(), from + Long.SIZE);
+      CompiledCriteria[] batch = criteriaList.subList(from, to).toArray(new CompiledCriteria[0]);
+      IntConsumer[] sinks = new IntConsumer[batch.length];
+      for (int query = 0; query < batch.length; query++) {
+        sinks[query] = results.get(from + query)::add;
+      }
 
-        HashMap<Boolean, HashMap<BathroomType, KDTreeNode>> kitchenMap = isSuiteMap.get(suiteCriteria);
-        Set<Boolean> kitchenSetInHierarchy = kitchenMap.keySet();
+      for (int partition = 0; partition < PARTITION_COUNT; partition++) {
+        KDTreeNode kdTreeNode = this.partitions[partition];
+        if (kdTreeNode == null) {
+          continue;
+        }
 
-        // Loop through kitchen criteria
-        for (Boolean kitchenCriteria : filteringCriteria.hasKitchenCriteria()) {
-          if (!kitchenSetInHierarchy.contains(kitchenCriteria)) {
-            continue; // Skip if kitchen criteria is not in hierarchy
+        // Decode the slot back into its categorical attributes, see partitionIndex
+        int bathroom = partition % BATHROOM_TYPE_COUNT;
+        int hasKitchen = (partition / BATHROOM_TYPE_COUNT) & 1;
+        int isSuite = (partition / BATHROOM_TYPE_COUNT >> 1) & 1;
+        int building = partition / BATHROOM_TYPE_COUNT >> 2;
+        long queryMask = 0;
+        for (int query = 0; query < batch.length; query++) {
+          CompiledCriteria compiledCriteria = batch[query];
+          if ((compiledCriteria.buildingMask() & (1L << building)) != 0
+              && (compiledCriteria.suiteMask() & (1 << isSuite)) != 0
+              && (compiledCriteria.kitchenMask() & (1 << hasKitchen)) != 0
+              && (compiledCriteria.bathroomMask() & (1 << bathroom)) != 0) {
+            queryMask |= 1L << query;
           }
+        }
+        if (queryMask != 0) {
+          kdTreeNode.filterDormIds(batch, queryMask, sinks);
+        }
+      }
+    }
+    return results;
+  }
 
-          HashMap<BathroomType, KDTreeNode> bathroomTypeMap = kitchenMap.get(kitchenCriteria);
-          Set<BathroomType> bathroomTypeSetInHierarchy = bathroomTypeMap.keySet();
+  /**
+   * A {@link RecursiveTask} that searches a range of KD-trees by splitting it in half until a
+   * single KD-tree is left. The KD-trees hold disjoint rooms, so the matching ids of both halves
+   * are concatenated without checking for duplicates.
+   *
+   * <p>{@link RecursiveTask} is {@link java.io.Serializable}, but a search is never serialized, so
+   * the criteria and KD-trees are transient.</p>
+   */
+  private static final class ParallelSearch extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
 
-          // Loop through bathroom type criteria
-          for (BathroomType bathroomTypeCriteria : filteringCriteria.bathroomTypeCriteria()) {
-            if (!bathroomTypeSetInHierarchy.contains(bathroomTypeCriteria)) {
-              continue; // Skip if bathroom type criteria is not in hierarchy
-            }
+    private final transient CompiledCriteria compiledCriteria;
+    private final transient List<KDTreeNode> kdTrees;
+    private final int from;
+    private final int to;
 
-            // Retrieve the KDTreeNode for the fully matched criteria and filter its dorm rooms
-            KDTreeNode kdTreeNode = bathroomTypeMap.get(bathroomTypeCriteria);
-            Set<IDormRoom> filteredRooms = kdTreeNode.filterDormSet(filteringCriteria, 0);
+    /**
+     * Creates a task searching {@code kdTrees[from, to)}.
+     *
+     * @param compiledCriteria the criteria every returned dorm room has to match
+     * @param kdTrees the KD-trees of the query
+     * @param from the first KD-tree to search
+     * @param to one past the last KD-tree to search
+     */
+    ParallelSearch(CompiledCriteria compiledCriteria, List<KDTreeNode> kdTrees, int from, int to) {
+      this.compiledCriteria = compiledCriteria;
+      this.kdTrees = kdTrees;
+      this.from = from;
+      this.to = to;
+    }
 
-            // Only add if there are filtered results
-            if (!filteredRooms.isEmpty()) {
-              result.addAll(filteredRooms);
-            }
-          } // end bathroomType loop
-        } // end hasKitchen loop
-      } // end isSuite loop
-    } // end dormBuilding loop
+    @Override
+    protected int[] compute() {
+      if (this.to - this.from == 1) {
+        IntStream.Builder matches = IntStream.builder();
+        this.kdTrees.get(this.from).filterDormIds(this.compiledCriteria, 0, matches::add);
+        return matches.build().toArray();
+      }
 
-    return result;
+      int mid = (this.from + this.to) >>> 1;
+      ParallelSearch left = new ParallelSearch(this.compiledCriteria, this.kdTrees, this.from, mid);
+      left.fork();
+      int[] rightMatches = new ParallelSearch(this.compiledCriteria, this.kdTrees, mid, this.to).compute();
+      int[] leftMatches = left.join();
+      int[] matches = Arrays.copyOf(leftMatches, leftMatches.length + rightMatches.length);
+      System.arraycopy(rightMatches, 0, matches, leftMatches.length, rightMatches.length);
+      return matches;
+    }
   }
 }
\ No newline at end of file
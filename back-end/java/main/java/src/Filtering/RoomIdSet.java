@@ -0,0 +1,240 @@
+package Filtering;
+
+import DormRoom.IDormRoom;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/**
+ * The {@code RoomIdSet} class is a set of dorm rooms stored as a bitset over the ids of a
+ * {@link RoomTable}. Bit {@code i} is set if the room with id {@code i} is in the set.
+ *
+ * <p>Adding a room and merging two sets never hash a room, and a set takes one bit per room of the
+ * table no matter how many rooms it holds. The rooms are only resolved from the table when the set
+ * is iterated, so the set can be handed to anything expecting a {@code Set<IDormRoom>}, such as the
+ * JSON serializer.</p>
+ *
+ * <p>Rooms can only be added by id, through {@link #add(int)} and {@link #addAll(RoomIdSet)}; the
+ * {@link java.util.Collection} mutators are not supported. A set must not be modified once it has
+ * been returned by an {@link IDormFilter}.</p>
+ */
+public class RoomIdSet extends AbstractSet<IDormRoom> {
+
+  /** The table resolving the ids of this set to rooms. */
+  private final RoomTable roomTable;
+
+  /** The bits of this set, 64 ids per word. */
+  private final long[] words;
+
+  /** The number of ids in this set. */
+  private int size;
+
+  /**
+   * Constructs an empty {@code RoomIdSet} over the ids of the provided table.
+   *
+   * @param roomTable the table resolving the ids of this set
+   */
+  public RoomIdSet(RoomTable roomTable) {
+    this.roomTable = roomTable;
+    this.words = new long[(roomTable.size() + Long.SIZE - 1) / Long.SIZE];
+  }
+
+  /**
+   * Returns the table resolving the ids of this set.
+   *
+   * @return the room table of this set
+   */
+  public RoomTable roomTable() {
+    return this.roomTable;
+  }
+
+  /**
+   * Adds the room with the given id to this set.
+   *
+   * @param id the id of the room
+   * @return {@code true} if the room was not in this set yet
+   */
+  public boolean add(int id) {
+    int word = id >>> 6;
+    long bit = 1L << id;
+    if ((this.words[word] & bit) != 0) {
+      return false;
+    }
+    this.words[word] |= bit;
+    this.size++;
+    return true;
+  }
+
+  /**
+   * Adds every room of another set over the same table to this set.
+   *
+   * @param other the set whose rooms are added
+   * @throws IllegalArgumentException if {@code other} uses a different {@link RoomTable}
+   */
+  public void addAll(RoomIdSet other) {
+    if (other.roomTable != this.roomTable) {
+      throw new IllegalArgumentException("Cannot merge room id sets over different room tables.");
+    }
+    int count = 0;
+    for (int word = 0; word < this.words.length; word++) {
+      this.words[word] |= other.words[word];
+      count += Long.bitCount(this.words[word]);
+    }
+    this.size = count;
+  }
+
+  /**
+   * Returns whether the room with the given id is in this set.
+   *
+   * @param id the id of the room
+   * @return {@code true} if the room is in this set
+   */
+  public boolean containsId(int id) {
+    return id >= 0 && id < this.roomTable.size() && (this.words[id >>> 6] & (1L << id)) != 0;
+  }
+
+  /**
+   * Returns the smallest id in this set that is at least {@code from}, so the ids can be walked
+   * without a callback, e.g. when the walk writes to a stream.
+   *
+   * @param from the smallest id to return
+   * @return the next id in this set, or {@code -1} if there is none
+   */
+  public int nextId(int from) {
+    int word = from >>> 6;
+    if (from < 0 || word >= this.words.length) {
+      return -1;
+    }
+    long bits = this.words[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == this.words.length) {
+        return -1;
+      }
+      bits = this.words[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Passes the id of every room in this set to {@code action}, in ascending order.
+   *
+   * @param action the consumer receiving every id
+   */
+  public void forEachId(IntConsumer action) {
+    for (int word = 0; word < this.words.length; word++) {
+      for (long bits = this.words[word]; bits != 0; bits &= bits - 1) {
+        action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+      }
+    }
+  }
+
+  /**
+   * Returns a new set holding the rooms of this set that match the provided criteria. Used to
+   * answer a query from the result of a broader one without searching the whole dataset.
+   *
+   * @param compiledCriteria the criteria the returned rooms have to match
+   * @return the matching rooms of this set
+   */
+  public RoomIdSet select(CompiledCriteria compiledCriteria) {
+    RoomIdSet result = new RoomIdSet(this.roomTable);
+    this.forEachId(id -> {
+      if (compiledCriteria.matches(this.roomTable.compactRoom(id))) {
+        result.add(id);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the approximate number of heap bytes this set retains: its own header and fields plus
+   * its words. The room table is shared with the filter and not counted.
+   *
+   * @return the estimated retained size in bytes
+   */
+  public long estimatedBytes() {
+    return 32L + 16L + (long) this.words.length * Long.BYTES;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns whether this set holds a room. The room is hashed once to look up its id in the
+   * {@link RoomTable}, as a {@link java.util.HashSet} would hash it; a {@code Suite}
+   * hashes all of its internal rooms.
+   *
+   * @param o the room to look for
+   * @return {@code true} if {@code o} is a room of this set
+   */
+  @Override
+  public boolean contains(Object o) {
+    return this.containsId(this.roomTable.idOf(o));
+  }
+
+  /**
+   * Returns an iterator over the rooms of this set in ascending id order, resolving every id
+   * through the {@link RoomTable}.
+   *
+   * @return an iterator over the rooms of this set
+   */
+  @Override
+  public Iterator<IDormRoom> iterator() {
+    return new Iterator<>() {
+      private int word = 0;
+      private long bits = RoomIdSet.this.words.length > 0 ? RoomIdSet.this.words[0] : 0;
+
+      @Override
+      public boolean hasNext() {
+        while (this.bits == 0 && this.word < RoomIdSet.this.words.length - 1) {
+          this.bits = RoomIdSet.this.words[++this.word];
+        }
+        return this.bits != 0;
+      }
+
+      @Override
+      public IDormRoom next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int id = (this.word << 6) + Long.numberOfTrailingZeros(this.bits);
+        this.bits &= this.bits - 1;
+        return RoomIdSet.this.roomTable.room(id);
+      }
+    };
+  }
+
+  /**
+   * Compares this set to another set of rooms. Two sets over the same {@link RoomTable} are
+   * compared bit by bit. Any other set of the same size is compared room by room, which looks up
+   * every room of {@code o} with {@link #contains(Object)}, so it hashes every room of {@code o}
+   * once.
+   *
+   * @param o the object to compare to
+   * @return {@code true} if {@code o} is a set holding the same rooms
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (o instanceof RoomIdSet other && other.roomTable == this.roomTable) {
+      return Arrays.equals(this.words, other.words);
+    }
+    return super.equals(o);
+  }
+
+  /**
+   * Returns the sum of the hash codes of the rooms of this set, as {@link java.util.Set} requires.
+   * The hash codes are read from the {@link RoomTable} rather than computed, so no room is
+   * resolved or hashed.
+   *
+   * @return the hash code of this set
+   */
+  @Override
+  public int hashCode() {
+    int[] hash = {0};
+    this.forEachId(id -> hash[0] += this.roomTable.roomHash(id));
+    return hash[0];
+  }
+}
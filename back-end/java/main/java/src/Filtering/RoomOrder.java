@@ -0,0 +1,334 @@
+package Filtering;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuildingName;
+import java.util.Arrays;
+
+/**
+ * The {@code RoomOrder} class answers sorted, paginated queries over the rooms of a
+ * {@link RoomTable} without collecting or sorting their matches.
+ *
+ * <p>For every {@link SortKey}, the ids of the rooms are sorted once, when the order is built,
+ * into a permutation in ascending order of the key, with ties broken by id. A page walks the
+ * permutation from its cursor, forwards or backwards, checks every room against the
+ * {@link CompiledCriteria} and stops as soon as the page is full. A query such as the 20 largest
+ * doubles therefore reads the largest rooms until it has found 20 doubles, however many doubles
+ * there are, and the cost of a page only grows with the rooms it skips.</p>
+ *
+ * <p>A selective query would skip most of the permutation, so when the (building, isSuite,
+ * hasKitchen, bathroomType) partitions it allows hold few rooms, see {@link #prefersMatches}, the
+ * page is instead selected from the filtered set of the query with a heap bounded by the limit.
+ * Both ways return the same page and the same next cursor.</p>
+ *
+ * <p>The cursor of a page is its position in the walk, so the next page resumes where the
+ * previous one stopped. The rooms never change, so the pages of a query do not overlap or miss a
+ * room however far apart they are requested.</p>
+ *
+ * <p>This class is immutable after construction.</p>
+ */
+public class RoomOrder {
+
+  /** The number of bathroom types, the last factor of a partition index. */
+  private static final int BATHROOM_TYPE_COUNT = BathroomType.values().length;
+
+  /** The number of distinct (building, isSuite, hasKitchen, bathroomType) partitions. */
+  private static final int PARTITION_COUNT =
+      DormBuildingName.values().length * 2 * 2 * BATHROOM_TYPE_COUNT;
+
+  /** The table whose rooms are ordered. */
+  private final RoomTable roomTable;
+
+  /** The ids of the rooms in ascending order of every key, indexed by {@link SortKey} ordinal. */
+  private final int[][] permutations;
+
+  /** The rank of every room in every permutation, indexed by {@link SortKey} ordinal and id. */
+  private final int[][] ranks;
+
+  /** The number of rooms of every partition. */
+  private final int[] partitionCounts = new int[PARTITION_COUNT];
+
+  /**
+   * A page of a sorted query.
+   *
+   * @param ids the ids of the matching rooms of the page, in order
+   * @param nextCursor the cursor of the next page, or {@code -1} if the walk reached the end. A
+   *                   full page always has a next cursor, whose page may turn out to be empty.
+   */
+  public record Page(int[] ids, int nextCursor) { }
+
+  /**
+   * Sorts the rooms of the provided table by every {@link SortKey}.
+   *
+   * @param roomTable the rooms to order
+   * @throws NullPointerException if {@code roomTable} is null
+   */
+  public RoomOrder(RoomTable roomTable) {
+    if (roomTable == null) {
+      throw new NullPointerException("The room table cannot be null.");
+    }
+    this.roomTable = roomTable;
+    SortKey[] sortKeys = SortKey.values();
+    this.permutations = new int[sortKeys.length][];
+    this.ranks = new int[sortKeys.length][];
+    for (SortKey sortKey : sortKeys) {
+      double[] values = new double[roomTable.size()];
+      for (int id = 0; id < values.length; id++) {
+        values[id] = sortKey.valueOf(roomTable, id);
+      }
+      int[] permutation = sortByValue(values);
+      int[] rank = new int[permutation.length];
+      for (int position = 0; position < permutation.length; position++) {
+        rank[permutation[position]] = position;
+      }
+      this.permutations[sortKey.ordinal()] = permutation;
+      this.ranks[sortKey.ordinal()] = rank;
+    }
+    for (int id = 0; id < roomTable.size(); id++) {
+      CompactRoom room = roomTable.compactRoom(id);
+      this.partitionCounts[partitionIndex(room.buildingOrdinal(), room.isSuite() ? 1 : 0,
+          room.hasKitchen() ? 1 : 0, room.bathroomOrdinal())]++;
+    }
+  }
+
+  /**
+   * Returns the ids in ascending order of their value, with ties broken by id. Every value is
+   * replaced by its rank among the distinct values, and the ranks are packed with the ids into
+   * longs, so the ids are sorted as primitives.
+   *
+   * @param values the value of every id
+   * @return the ids in ascending order of {@code values}
+   */
+  private static int[] sortByValue(double[] values) {
+    double[] distinct = values.clone();
+    Arrays.sort(distinct);
+    int distinctCount = 0;
+    for (double value : distinct) {
+      if (distinctCount == 0 || Double.compare(distinct[distinctCount - 1], value) != 0) {
+        distinct[distinctCount++] = value;
+      }
+    }
+
+    long[] packed = new long[values.length];
+    for (int id = 0; id < values.length; id++) {
+      long valueRank = Arrays.binarySearch(distinct, 0, distinctCount, values[id]);
+      packed[id] = (valueRank << 32) | id;
+    }
+    Arrays.sort(packed);
+
+    int[] permutation = new int[values.length];
+    for (int position = 0; position < permutation.length; position++) {
+      permutation[position] = (int) packed[position];
+    }
+    return permutation;
+  }
+
+  /**
+   * Returns the partition that a room with the given categorical attributes belongs to.
+   *
+   * @param buildingOrdinal the ordinal of the room's building name
+   * @param suite 1 if the room is a suite, 0 otherwise
+   * @param kitchen 1 if the room has a kitchen, 0 otherwise
+   * @param bathroomOrdinal the ordinal of the room's bathroom type
+   * @return an index in {@code [0, PARTITION_COUNT)}
+   */
+  private static int partitionIndex(int buildingOrdinal, int suite, int kitchen,
+      int bathroomOrdinal) {
+    return ((buildingOrdinal * 2 + suite) * 2 + kitchen) * BATHROOM_TYPE_COUNT + bathroomOrdinal;
+  }
+
+  /**
+   * Returns the table whose rooms are ordered.
+   *
+   * @return the room table of this order
+   */
+  public RoomTable roomTable() {
+    return this.roomTable;
+  }
+
+  /**
+   * Returns whether a page of the criteria is cheaper to select from their filtered set than to
+   * walk. A walk reads about {@code limit * size / m} rooms to fill a page when {@code m} rooms
+   * match, while selecting from the set reads its {@code m} rooms, so the set is preferred while
+   * the rooms of the partitions the criteria allow, an upper bound of {@code m}, satisfy
+   * {@code m * m < limit * size}.
+   *
+   * @param compiledCriteria the criteria of the page
+   * @param limit the largest number of rooms in the page
+   * @return {@code true} to call {@link #page(SortKey, boolean, RoomIdSet, int, int)} with the
+   *         filtered set of the criteria
+   */
+  public boolean prefersMatches(CompiledCriteria compiledCriteria, int limit) {
+    long matching = 0;
+    for (long buildings = compiledCriteria.buildingMask(); buildings != 0;
+        buildings &= buildings - 1) {
+      int building = Long.numberOfTrailingZeros(buildings);
+      if (building >= DormBuildingName.values().length) {
+        break;
+      }
+      for (int suite = 0; suite < 2; suite++) {
+        if ((compiledCriteria.suiteMask() & (1 << suite)) == 0) {
+          continue;
+        }
+        for (int kitchen = 0; kitchen < 2; kitchen++) {
+          if ((compiledCriteria.kitchenMask() & (1 << kitchen)) == 0) {
+            continue;
+          }
+          for (int bathroom = 0; bathroom < BATHROOM_TYPE_COUNT; bathroom++) {
+            if ((compiledCriteria.bathroomMask() & (1 << bathroom)) != 0) {
+              matching += this.partitionCounts[partitionIndex(building, suite, kitchen, bathroom)];
+            }
+          }
+        }
+      }
+    }
+    return matching * matching < (long) limit * this.roomTable.size();
+  }
+
+  /**
+   * Returns one page of the rooms matching the criteria, in the order of a key.
+   *
+   * @param sortKey the key to order the rooms by, or {@code null} to order them by id
+   * @param descending whether the rooms are returned from the largest value of the key down
+   * @param compiledCriteria the criteria the rooms of the page have to match
+   * @param cursor the {@link Page#nextCursor()} of the previous page, or 0 for the first page
+   * @param limit the largest number of rooms in the page
+   * @return the page
+   * @throws IllegalArgumentException if {@code cursor} is negative or {@code limit} is not
+   *                                  positive
+   */
+  public Page page(SortKey sortKey, boolean descending, CompiledCriteria compiledCriteria,
+      int cursor, int limit) {
+    checkPage(cursor, limit);
+
+    int[] permutation = sortKey == null ? null : this.permutations[sortKey.ordinal()];
+    int size = this.roomTable.size();
+    int[] ids = new int[Math.min(limit, size)];
+    int count = 0;
+    int position = cursor;
+    while (position < size && count < limit) {
+      int rank = descending ? size - 1 - position : position;
+      int id = permutation == null ? rank : permutation[rank];
+      position++;
+      if (compiledCriteria.matches(this.roomTable.compactRoom(id))) {
+        ids[count++] = id;
+      }
+    }
+    return new Page(Arrays.copyOf(ids, count), position < size ? position : -1);
+  }
+
+  /**
+   * Returns one page of the rooms of a filtered set, in the order of a key. The page and its next
+   * cursor are those {@link #page(SortKey, boolean, CompiledCriteria, int, int)} returns for the
+   * criteria of the set, but only the rooms of the set are read: the {@code limit} first
+   * positions at or after the cursor are kept in a bounded max-heap.
+   *
+   * @param sortKey the key to order the rooms by, or {@code null} to order them by id
+   * @param descending whether the rooms are returned from the largest value of the key down
+   * @param matches the rooms matching the criteria of the page
+   * @param cursor the {@link Page#nextCursor()} of the previous page, or 0 for the first page
+   * @param limit the largest number of rooms in the page
+   * @return the page
+   * @throws IllegalArgumentException if {@code cursor} is negative, {@code limit} is not positive
+   *                                  or {@code matches} holds the rooms of another table
+   */
+  public Page page(SortKey sortKey, boolean descending, RoomIdSet matches, int cursor, int limit) {
+    checkPage(cursor, limit);
+    if (matches.roomTable() != this.roomTable) {
+      throw new IllegalArgumentException("The rooms must belong to the table of this order.");
+    }
+
+    int[] rank = sortKey == null ? null : this.ranks[sortKey.ordinal()];
+    int size = this.roomTable.size();
+    int[] heap = new int[Math.min(limit, size)];
+    int[] count = {0};
+    matches.forEachId(id -> {
+      int position = rank == null ? id : rank[id];
+      if (descending) {
+        position = size - 1 - position;
+      }
+      if (position < cursor) {
+        return;
+      }
+      if (count[0] < heap.length) {
+        siftUp(heap, count[0]++, position);
+      } else if (position < heap[0]) {
+        siftDown(heap, heap.length, position);
+      }
+    });
+
+    int[] positions = Arrays.copyOf(heap, count[0]);
+    Arrays.sort(positions);
+    int[] permutation = sortKey == null ? null : this.permutations[sortKey.ordinal()];
+    int[] ids = new int[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      int position = descending ? size - 1 - positions[i] : positions[i];
+      ids[i] = permutation == null ? position : permutation[position];
+    }
+    // Like the walk, a full page resumes after its last room and any other page ends the walk
+    int next = positions.length == limit ? positions[positions.length - 1] + 1 : size;
+    return new Page(ids, next < size ? next : -1);
+  }
+
+  /**
+   * Checks the cursor and limit of a page.
+   *
+   * @param cursor the cursor of the page
+   * @param limit the largest number of rooms in the page
+   * @throws IllegalArgumentException if {@code cursor} is negative or {@code limit} is not
+   *                                  positive
+   */
+  private static void checkPage(int cursor, int limit) {
+    if (cursor < 0) {
+      throw new IllegalArgumentException("The cursor cannot be negative: " + cursor);
+    }
+    if (limit <= 0) {
+      throw new IllegalArgumentException("The limit must be positive: " + limit);
+    }
+  }
+
+  /**
+   * Adds a position to a max-heap.
+   *
+   * @param heap the heap
+   * @param count the number of positions in the heap before this one
+   * @param position the position to add
+   */
+  private static void siftUp(int[] heap, int count, int position) {
+    int index = count;
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (heap[parent] >= position) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = position;
+  }
+
+  /**
+   * Replaces the largest position of a max-heap.
+   *
+   * @param heap the heap
+   * @param count the number of positions in the heap
+   * @param position the position replacing the largest one
+   */
+  private static void siftDown(int[] heap, int count, int position) {
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= count) {
+        break;
+      }
+      if (child + 1 < count && heap[child + 1] > heap[child]) {
+        child++;
+      }
+      if (heap[child] <= position) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = position;
+  }
+}
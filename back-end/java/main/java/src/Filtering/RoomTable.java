@@ -0,0 +1,250 @@
+package Filtering;
+
+import DormRoom.BathroomType;
+import DormRoom.DormBuilding;
+import DormRoom.DormRoom;
+import DormRoom.IDormRoom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code RoomTable} class assigns every distinct {@link IDormRoom} of a dataset a dense
+ * integer id in {@code [0, size())}, in the order the rooms are first seen.
+ *
+ * <p>The filters identify rooms by these ids and return them as a {@link RoomIdSet}, so rooms
+ * are only hashed once, here at ingest. The room objects themselves are only looked up again when
+ * a result is iterated, e.g. to serialize it.</p>
+ *
+ * <p>Rooms that are equal to an earlier room of the list do not get an id of their own, just like
+ * a {@link java.util.Set} of rooms would only hold one of them.</p>
+ *
+ * <p>Every room is also read once into a {@link CompactRoom}, with its room number and floor plan
+ * link replaced by codes into the sorted dictionaries of distinct room numbers and floor plan
+ * links. The filters build their indexes from the compact rooms.</p>
+ *
+ * <p>This class is immutable after construction.</p>
+ */
+public class RoomTable {
+
+  /** The distinct rooms, indexed by their id. */
+  private final IDormRoom[] rooms;
+
+  /** The id of every room. */
+  private final Map<IDormRoom, Integer> ids;
+
+  /** The compact representation of every room, indexed by id. */
+  private final CompactRoom[] compactRooms;
+
+  /** The {@link Object#hashCode()} of every room, indexed by id. */
+  private final int[] roomHashes;
+
+  /** The distinct room numbers in ascending order, indexed by room number code. */
+  private final String[] roomNumbers;
+
+  /** The distinct floor plan links in ascending order, indexed by floor plan code. */
+  private final String[] floorPlanLinks;
+
+  /**
+   * Constructs a {@code RoomTable} over the provided list of rooms.
+   *
+   * @param dormRoomList the rooms to assign ids to
+   * @throws NullPointerException if {@code dormRoomList} is null
+   * @throws RuntimeException if a dorm room references a null building or bathroom type, or if
+   *                          the floor number of a room cannot be parsed
+   */
+  public RoomTable(List<IDormRoom> dormRoomList) {
+    if (dormRoomList == null) {
+      throw new NullPointerException("The list of dorm rooms cannot be null.");
+    }
+
+    this.ids = new HashMap<>();
+    List<IDormRoom> distinctRooms = new ArrayList<>(dormRoomList.size());
+    for (IDormRoom dormRoom : dormRoomList) {
+      if (this.ids.putIfAbsent(dormRoom, distinctRooms.size()) == null) {
+        distinctRooms.add(dormRoom);
+      }
+    }
+    this.rooms = distinctRooms.toArray(new IDormRoom[0]);
+
+    int[] roomNumberCodes = new int[this.rooms.length];
+    int[] floorPlanCodes = new int[this.rooms.length];
+    this.roomNumbers = dictionary(Arrays.stream(this.rooms).map(IDormRoom::getRoomNumber)
+        .toArray(String[]::new), roomNumberCodes);
+    this.floorPlanLinks = dictionary(Arrays.stream(this.rooms).map(RoomTable::floorPlanLinkOf)
+        .toArray(String[]::new), floorPlanCodes);
+    this.compactRooms = new CompactRoom[this.rooms.length];
+    this.roomHashes = new int[this.rooms.length];
+    for (int id = 0; id < this.rooms.length; id++) {
+      this.compactRooms[id] = this.compact(id, roomNumberCodes[id], floorPlanCodes[id]);
+      this.roomHashes[id] = this.rooms[id].hashCode();
+    }
+  }
+
+  /**
+   * Reads every attribute of the room with the given id into a {@link CompactRoom}.
+   *
+   * @param id the id of the room
+   * @param roomNumberCode the code of the room's number in the room number dictionary
+   * @param floorPlanCode the code of the room's floor plan link, or {@code -1} if it has none
+   * @return the compact representation of the room
+   * @throws RuntimeException if the room references a null building or bathroom type, or if its
+   *                          floor number cannot be parsed
+   */
+  private CompactRoom compact(int id, int roomNumberCode, int floorPlanCode) {
+    IDormRoom dormRoom = this.rooms[id];
+    DormBuilding dormBuilding = dormRoom.getDormBuilding();
+    if (dormBuilding == null) {
+      throw new RuntimeException("Dorm building cannot be null for dorm room: " + dormRoom);
+    }
+    BathroomType bathroomType = dormRoom.getBathroomType();
+    if (bathroomType == null) {
+      throw new RuntimeException("BathroomType cannot be null for dorm room: " + dormRoom);
+    }
+
+    byte flags = 0;
+    if (dormRoom.isSuite()) {
+      flags |= CompactRoom.SUITE;
+    }
+    if (dormRoom.hasKitchen()) {
+      flags |= CompactRoom.KITCHEN;
+    }
+    return new CompactRoom(
+        id,
+        dormRoom.getRoomSize(),
+        (byte) dormRoom.getRoomCapacityInt(),
+        (byte) dormRoom.getFloorNumber(),
+        flags,
+        (byte) bathroomType.ordinal(),
+        (byte) dormBuilding.buildingName().ordinal(),
+        roomNumberCode,
+        floorPlanCode);
+  }
+
+  /**
+   * Returns the floor plan link of a room, which only {@link DormRoom}s expose.
+   *
+   * @param dormRoom the room
+   * @return the floor plan link, or {@code null} if the room has none
+   */
+  private static String floorPlanLinkOf(IDormRoom dormRoom) {
+    return dormRoom instanceof DormRoom room ? room.getFloorPlanLink() : null;
+  }
+
+  /**
+   * Returns the distinct strings of an array in ascending order, and stores the index of every
+   * string in that dictionary. Every string is hashed once and only the distinct strings are
+   * sorted, so no string is searched for in the dictionary.
+   *
+   * @param strings the strings to deduplicate, indexed by room id. A {@code null} string is left
+   *                out of the dictionary.
+   * @param codes receives the index of every string in the dictionary, or {@code -1} for a
+   *              {@code null} string
+   * @return the sorted distinct strings
+   */
+  private static String[] dictionary(String[] strings, int[] codes) {
+    Map<String, Integer> firstSeen = new HashMap<>();
+    List<String> distinct = new ArrayList<>();
+    for (int id = 0; id < strings.length; id++) {
+      if (strings[id] == null) {
+        codes[id] = -1;
+        continue;
+      }
+      Integer code = firstSeen.putIfAbsent(strings[id], distinct.size());
+      if (code == null) {
+        code = distinct.size();
+        distinct.add(strings[id]);
+      }
+      codes[id] = code;
+    }
+
+    String[] sorted = distinct.toArray(new String[0]);
+    Arrays.sort(sorted);
+    int[] sortedCodes = new int[sorted.length];
+    for (int index = 0; index < sorted.length; index++) {
+      sortedCodes[firstSeen.get(sorted[index])] = index;
+    }
+    for (int id = 0; id < codes.length; id++) {
+      if (codes[id] >= 0) {
+        codes[id] = sortedCodes[codes[id]];
+      }
+    }
+    return sorted;
+  }
+
+  /**
+   * Returns the number of rooms in this table. Every id is below this number.
+   *
+   * @return the number of distinct rooms
+   */
+  public int size() {
+    return this.rooms.length;
+  }
+
+  /**
+   * Returns the room with the given id.
+   *
+   * @param id the id of the room
+   * @return the room with that id
+   * @throws ArrayIndexOutOfBoundsException if {@code id} is not in {@code [0, size())}
+   */
+  public IDormRoom room(int id) {
+    return this.rooms[id];
+  }
+
+  /**
+   * Returns the compact representation of the room with the given id.
+   *
+   * @param id the id of the room
+   * @return the {@link CompactRoom} with that id
+   * @throws ArrayIndexOutOfBoundsException if {@code id} is not in {@code [0, size())}
+   */
+  public CompactRoom compactRoom(int id) {
+    return this.compactRooms[id];
+  }
+
+  /**
+   * Returns the room number a room number code stands for.
+   *
+   * @param roomNumberCode a {@link CompactRoom#roomNumberCode()}
+   * @return the room number
+   */
+  public String roomNumber(int roomNumberCode) {
+    return this.roomNumbers[roomNumberCode];
+  }
+
+  /**
+   * Returns the floor plan link a floor plan code stands for.
+   *
+   * @param floorPlanCode a {@link CompactRoom#floorPlanCode()}
+   * @return the floor plan link, or {@code null} for the code {@code -1}
+   */
+  public String floorPlanLink(int floorPlanCode) {
+    return floorPlanCode < 0 ? null : this.floorPlanLinks[floorPlanCode];
+  }
+
+  /**
+   * Returns the hash code of a room, computed once when the table was built. A {@code Suite}
+   * hashes all of its internal rooms, so sets of rooms add these up instead of hashing every room
+   * again.
+   *
+   * @param id the id of the room
+   * @return the {@link Object#hashCode()} of the room
+   */
+  public int roomHash(int id) {
+    return this.roomHashes[id];
+  }
+
+  /**
+   * Returns the id of the given room.
+   *
+   * @param room the room to look up
+   * @return the id of the room, or {@code -1} if it is not in this table
+   */
+  public int idOf(Object room) {
+    Integer id = this.ids.get(room);
+    return id == null ? -1 : id;
+  }
+}
@@ -0,0 +1,49 @@
+package Filtering;
+
+import DormRoom.DormBuilding;
+
+/**
+ * The {@code SortKey} enum lists the attributes a filtered result can be ordered by, see
+ * {@link RoomOrder}.
+ */
+public enum SortKey {
+  ROOM_SIZE("roomSize"),
+  ROOM_CAPACITY("roomCapacity"),
+  FLOOR_NUMBER("floorNumber"),
+  BUILDING_YEAR("buildingYear"),
+  PEOPLE_PER_WASHER("peoplePerWasher");
+
+  private final String queryName;
+
+  SortKey(String queryName) {
+    this.queryName = queryName;
+  }
+
+  /**
+   * Returns the name of this key in the query string.
+   *
+   * @return the query string name
+   */
+  public String queryName() {
+    return this.queryName;
+  }
+
+  /**
+   * Returns the value of this key for a room.
+   *
+   * @param roomTable the table holding the room
+   * @param id the id of the room
+   * @return the value the room is ordered by
+   */
+  public double valueOf(RoomTable roomTable, int id) {
+    CompactRoom room = roomTable.compactRoom(id);
+    DormBuilding building = roomTable.room(id).getDormBuilding();
+    return switch (this) {
+      case ROOM_SIZE -> room.roomSize();
+      case ROOM_CAPACITY -> room.capacity();
+      case FLOOR_NUMBER -> room.floorNumber();
+      case BUILDING_YEAR -> building.year();
+      case PEOPLE_PER_WASHER -> building.peoplePerWasher();
+    };
+  }
+}
@@ -0,0 +1,223 @@
+package Server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletResponse;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import Filtering.CriteriaKey;
+import Filtering.FilteringCache;
+import Filtering.RoomIdSet;
+
+/**
+ * The {@code BatchFilteringHandler} class handles {@code POST /filter/batch} requests, which ask
+ * for the results of several filtering queries in one round trip, e.g. one query per campus
+ * location to populate a comparison view.
+ *
+ * <p>The body is a JSON object whose {@code queries} field lists the queries. Every query is an
+ * object with the parameters of a {@code /filter} request, whose values are strings in the syntax
+ * of the query string, numbers, booleans, or lists of these standing for a comma separated list:
+ * <pre>{@code
+ * {"queries": [
+ *   {"campusLocation": "MainGreen", "isSuite": "all", "hasKitchen": "all", "bathroomType": "all",
+ *    "minRoomSize": 100, "maxRoomSize": "all", "roomCapacity": ["One", "Two"], "floorNumber": "all"},
+ *   ...
+ * ]}
+ * }</pre>
+ * A batch returns every result whole, so a query with a paging parameter is rejected.
+ *
+ * <p>The queries are answered together through {@link FilteringCache#getFilteredDormSets}, so the
+ * filter can evaluate all of the uncached ones in a single traversal of its index. The response
+ * lists one result per query, in order: either the filtered set, or the error of a query that is
+ * invalid, which does not fail the other queries. The sets are written from the pre-rendered
+ * {@link RoomJsonFragments} straight to the servlet output stream.</p>
+ */
+public class BatchFilteringHandler implements Route {
+
+  /** The largest number of queries a batch may hold. */
+  public static final int MAX_BATCH_SIZE = 256;
+
+  /** The adapter reading request bodies and serializing the response maps. */
+  private static final JsonAdapter<Map<String, Object>> MAP_ADAPTER = new Moshi.Builder().build()
+      .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+  private static final byte[] RESULTS_PREFIX =
+      "{\"result\":\"success\",\"results\":[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RESULT_PREFIX =
+      "{\"result\":\"success\",\"filteredDormRoomSet\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RESULT_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SEPARATOR = ",".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RESULTS_SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+  /** The caching layer answering the queries. */
+  private final FilteringCache cache;
+
+  /** The pre-rendered JSON of every room. */
+  private final RoomJsonFragments fragments;
+
+  /**
+   * Constructs a new {@code BatchFilteringHandler}.
+   *
+   * @param cache the {@link FilteringCache} answering the queries
+   * @param fragments the pre-rendered JSON of the rooms the cache filters
+   */
+  public BatchFilteringHandler(FilteringCache cache, RoomJsonFragments fragments) {
+    this.cache = cache;
+    this.fragments = fragments;
+  }
+
+  /**
+   * Handles a batch request.
+   *
+   * @param request  the HTTP request whose body lists the queries
+   * @param response the HTTP response object
+   * @return a JSON-formatted error if the body is not a valid batch, and an empty string once the
+   *         results have been written otherwise
+   * @throws IOException if writing the response fails
+   */
+  @Override
+  public Object handle(Request request, Response response) throws IOException {
+    List<Map<String, String>> queries;
+    try {
+      queries = parseBody(request.body());
+    } catch (IOException | RuntimeException error) {
+      return this.error("Invalid batch body: " + error.getMessage());
+    }
+    if (queries.size() > MAX_BATCH_SIZE) {
+      return this.error("A batch holds at most " + MAX_BATCH_SIZE + " queries: " + queries.size());
+    }
+
+    // Validate every query, then answer the valid ones together
+    List<byte[]> errors = new ArrayList<>(queries.size());
+    List<CriteriaKey> criteriaKeys = new ArrayList<>();
+    for (Map<String, String> parameters : queries) {
+      FilterQuery query = FilterQuery.parseUnpaged(parameters);
+      if (query.isValid()) {
+        criteriaKeys.add(CriteriaKey.of(query.criteria()));
+        errors.add(null);
+      } else {
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("result", "error_bad_request");
+        output.put("error_parameter", query.error().parameter().queryName());
+        output.put("error_message", query.error().message());
+        errors.add(MAP_ADAPTER.toJson(output).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    List<RoomIdSet> results = this.cache.getFilteredDormSets(criteriaKeys);
+
+    ConcurrencyLimitedRoute.releasePermit(request);
+    this.write(response.raw(), errors, results);
+    return "";
+  }
+
+  /**
+   * Streams the results of a batch to the servlet output stream, and commits the response.
+   *
+   * @param raw the servlet response
+   * @param errors the serialized error of every query, or {@code null} for the valid queries
+   * @param results the result of every valid query, in order
+   * @throws IOException if writing fails
+   */
+  private void write(HttpServletResponse raw, List<byte[]> errors, List<RoomIdSet> results)
+      throws IOException {
+    long length = RESULTS_PREFIX.length + RESULTS_SUFFIX.length
+        + (long) Math.max(0, errors.size() - 1) * SEPARATOR.length;
+    int next = 0;
+    for (byte[] error : errors) {
+      length += error != null ? error.length : RESULT_PREFIX.length
+          + this.fragments.length(results.get(next++)) + RESULT_SUFFIX.length;
+    }
+
+    raw.setContentType("application/json;charset=utf-8");
+    raw.setContentLengthLong(length);
+    OutputStream out = raw.getOutputStream();
+    out.write(RESULTS_PREFIX);
+    next = 0;
+    for (int i = 0; i < errors.size(); i++) {
+      if (i > 0) {
+        out.write(SEPARATOR);
+      }
+      if (errors.get(i) != null) {
+        out.write(errors.get(i));
+      } else {
+        out.write(RESULT_PREFIX);
+        this.fragments.writeTo(out, results.get(next++));
+        out.write(RESULT_SUFFIX);
+      }
+    }
+    out.write(RESULTS_SUFFIX);
+    raw.flushBuffer();
+  }
+
+  /**
+   * Reads the queries of a batch body.
+   *
+   * @param body the JSON body of the request
+   * @return the parameters of every query, with every value in the syntax of the query string
+   * @throws IOException if the body is not valid JSON
+   * @throws IllegalArgumentException if the body does not list the queries as objects
+   */
+  private static List<Map<String, String>> parseBody(String body) throws IOException {
+    Map<String, Object> json = body == null || body.isBlank() ? null : MAP_ADAPTER.fromJson(body);
+    if (json == null || !(json.get("queries") instanceof List<?> queryList)) {
+      throw new IllegalArgumentException("the queries field must be a list of queries.");
+    }
+
+    List<Map<String, String>> queries = new ArrayList<>(queryList.size());
+    for (Object queryObject : queryList) {
+      if (!(queryObject instanceof Map<?, ?> query)) {
+        throw new IllegalArgumentException("every query must be an object.");
+      }
+      Map<String, String> parameters = new HashMap<>();
+      for (Map.Entry<?, ?> parameter : query.entrySet()) {
+        parameters.put(String.valueOf(parameter.getKey()), toParameterValue(parameter.getValue()));
+      }
+      queries.add(parameters);
+    }
+    return queries;
+  }
+
+  /**
+   * Converts a JSON value into the query string syntax of a parameter.
+   *
+   * @param value a string, number, boolean or list of these
+   * @return the value as it would appear in a query string, or {@code null} for a JSON null
+   */
+  private static String toParameterValue(Object value) {
+    if (value instanceof List<?> list) {
+      List<String> elements = new ArrayList<>(list.size());
+      for (Object element : list) {
+        elements.add(toParameterValue(element));
+      }
+      return String.join(",", elements);
+    }
+    // Moshi reads every JSON number as a double
+    if (value instanceof Double number && number == Math.rint(number) && !number.isInfinite()) {
+      return Long.toString(number.longValue());
+    }
+    return value == null ? null : String.valueOf(value);
+  }
+
+  /**
+   * Serializes the response of a batch that could not be read.
+   *
+   * @param message the reason the batch was rejected
+   * @return the JSON error response
+   */
+  private String error(String message) {
+    Map<String, Object> output = new LinkedHashMap<>();
+    output.put("result", "error_bad_request");
+    output.put("error_message", message);
+    return MAP_ADAPTER.toJson(output);
+  }
+}
@@ -0,0 +1,88 @@
+package Server;
+
+import com.google.common.cache.CacheStats;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import Filtering.FilteringCache;
+
+/**
+ * The {@code CacheStatsHandler} class handles HTTP requests for the statistics of the
+ * {@link FilteringCache}, so the cache bounds can be sized against the heap in production.
+ * It returns the hit, miss, eviction and load time counters in JSON format.
+ */
+public class CacheStatsHandler implements Route {
+
+  /** The adapter serializing the response maps. Moshi adapters are thread-safe. */
+  private static final JsonAdapter<Map<String, Object>> MAP_ADAPTER = new Moshi.Builder().build()
+      .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+  /** The cache whose statistics are reported. */
+  private final FilteringCache cache;
+
+  /** The response cache whose statistics are reported, or {@code null} if there is none. */
+  private final ResponseCache responseCache;
+
+  /**
+   * Constructs a new {@code CacheStatsHandler} reporting on the provided cache.
+   *
+   * @param cache the {@link FilteringCache} whose statistics are reported
+   */
+  public CacheStatsHandler(FilteringCache cache) {
+    this(cache, null);
+  }
+
+  /**
+   * Constructs a new {@code CacheStatsHandler} reporting on the provided caches. Requests served
+   * by the response cache never reach the filtering cache, so both are needed for the full
+   * picture.
+   *
+   * @param cache the {@link FilteringCache} whose statistics are reported
+   * @param responseCache the {@link ResponseCache} whose statistics are reported
+   */
+  public CacheStatsHandler(FilteringCache cache, ResponseCache responseCache) {
+    this.cache = cache;
+    this.responseCache = responseCache;
+  }
+
+  /**
+   * Handles an HTTP request for the statistics of the cache.
+   *
+   * @param request  the HTTP request
+   * @param response the HTTP response object
+   * @return a JSON-formatted response containing the cache statistics
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    CacheStats stats = this.cache.stats();
+
+    Map<String, Object> output = new LinkedHashMap<>();
+    output.put("result", "success");
+    output.put("entryCount", this.cache.size());
+    output.put("weightedSizeBytes", this.cache.weightedSize());
+    output.put("requestCount", stats.requestCount());
+    output.put("hitCount", stats.hitCount());
+    output.put("missCount", stats.missCount());
+    output.put("hitRate", stats.hitRate());
+    output.put("evictionCount", stats.evictionCount());
+    output.put("admissionRejectionCount", this.cache.rejectionCount());
+    output.put("subsumedMissCount", this.cache.subsumedCount());
+    output.put("loadSuccessCount", stats.loadSuccessCount());
+    output.put("loadExceptionCount", stats.loadExceptionCount());
+    output.put("totalLoadTimeNanos", stats.totalLoadTime());
+    output.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+    if (this.responseCache != null) {
+      CacheStats responseStats = this.responseCache.stats();
+      output.put("responseHitCount", responseStats.hitCount());
+      output.put("responseMissCount", responseStats.missCount());
+      output.put("responseEvictionCount", responseStats.evictionCount());
+      output.put("responseAdmissionRejectionCount", this.responseCache.rejectionCount());
+    }
+    return MAP_ADAPTER.toJson(output);
+  }
+}
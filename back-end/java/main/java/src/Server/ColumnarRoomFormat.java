@@ -0,0 +1,208 @@
+package Server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import DormRoom.BathroomType;
+import DormRoom.DormBuilding;
+import DormRoom.DormBuildingName;
+import Filtering.CompactRoom;
+import Filtering.RoomIdSet;
+import Filtering.RoomTable;
+
+/**
+ * The {@code ColumnarRoomFormat} class encodes rooms into a compact binary layout, the
+ * {@value #MEDIA_TYPE} format that {@code /filter} clients can ask for with their Accept header
+ * instead of JSON.
+ *
+ * <p>Instead of repeating field names and the nested {@link DormBuilding} of every room, the
+ * layout stores every attribute as a column holding one entry per room, and refers to buildings,
+ * room numbers and floor plan links by their index in dictionaries written once per response. The
+ * dictionaries only hold the entries the rooms of the response use, in the ascending order of the
+ * dictionaries of the {@link RoomTable}. The rooms are encoded straight from their
+ * {@link CompactRoom}s, without reading or serializing the room objects.</p>
+ *
+ * <p>Integers marked varint are unsigned LEB128: 7 bits per byte, least significant group first,
+ * with the high bit set on every byte but the last. A string is the varint length of its UTF-8
+ * bytes followed by the bytes. Floats are IEEE 754, big-endian. A response is laid out as:</p>
+ * <pre>
+ * header       magic "DRMC" (4 bytes), version u8 = 1, room count varint
+ * bathrooms    count varint, then the {@link BathroomType} names, in ordinal order
+ * buildings    count varint, then for every building: {@link DormBuildingName} name string,
+ *              campus location string, year varint, people per washer f32,
+ *              has elevator access u8 (0 or 1), address string
+ * roomNumbers  count varint, then the strings
+ * floorPlans   count varint, then the links
+ * columns      each column holds one entry per room, in the order of the rooms:
+ *   building     varint index into buildings
+ *   roomSize     varint
+ *   capacity     u8, the number of people
+ *   floorNumber  u8
+ *   flags        u8, bit 0 set for a suite, bit 1 set if the room has a kitchen
+ *   bathroom     u8 index into bathrooms
+ *   roomNumber   varint index into roomNumbers
+ *   floorPlan    varint, 0 if the room has no floor plan, else its index into floorPlans plus 1
+ * </pre>
+ *
+ * <p>The layout holds the attributes the filters index. The common area and the internal rooms of
+ * a suite are only part of the JSON format.</p>
+ */
+public final class ColumnarRoomFormat {
+
+  /** The media type of the format, in the Accept and Content-Type headers. */
+  public static final String MEDIA_TYPE = "application/x-dorm-columnar";
+
+  /** The first bytes of every response, "DRMC" in ASCII. */
+  public static final int MAGIC = 0x44524d43;
+
+  /** The version of the layout described above. */
+  public static final int VERSION = 1;
+
+  private ColumnarRoomFormat() {}
+
+  /**
+   * Encodes the rooms of a set, in ascending order of id.
+   *
+   * @param rooms the rooms to encode
+   * @return the encoded rooms
+   */
+  public static byte[] encode(RoomIdSet rooms) {
+    int[] ids = new int[rooms.size()];
+    int[] count = {0};
+    rooms.forEachId(id -> ids[count[0]++] = id);
+    return encode(rooms.roomTable(), ids);
+  }
+
+  /**
+   * Encodes rooms in the provided order, e.g. a sorted page of a result.
+   *
+   * @param roomTable the table holding the rooms
+   * @param ids the ids of the rooms, in the order they are encoded
+   * @return the encoded rooms
+   */
+  public static byte[] encode(RoomTable roomTable, int[] ids) {
+    int n = ids.length;
+    CompactRoom[] rooms = new CompactRoom[n];
+    int[] buildingCodes = new int[n];
+    int[] roomNumberCodes = new int[n];
+    int[] floorPlanCodes = new int[n];
+    for (int i = 0; i < n; i++) {
+      rooms[i] = roomTable.compactRoom(ids[i]);
+      buildingCodes[i] = rooms[i].buildingOrdinal();
+      roomNumberCodes[i] = rooms[i].roomNumberCode();
+      floorPlanCodes[i] = rooms[i].floorPlanCode();
+    }
+    int[] buildings = distinctSorted(buildingCodes);
+    int[] roomNumbers = distinctSorted(roomNumberCodes);
+    int[] floorPlans = distinctSorted(floorPlanCodes);
+    // A room without a floor plan has code -1, which is not a dictionary entry
+    if (floorPlans.length > 0 && floorPlans[0] < 0) {
+      floorPlans = Arrays.copyOfRange(floorPlans, 1, floorPlans.length);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(64 + n * 12);
+    writeInt(out, MAGIC);
+    out.write(VERSION);
+    writeVarint(out, n);
+
+    BathroomType[] bathroomTypes = BathroomType.values();
+    writeVarint(out, bathroomTypes.length);
+    for (BathroomType bathroomType : bathroomTypes) {
+      writeString(out, bathroomType.name());
+    }
+    DormBuildingName[] buildingNames = DormBuildingName.values();
+    writeVarint(out, buildings.length);
+    for (int buildingOrdinal : buildings) {
+      DormBuilding building = DormBuilding.of(buildingNames[buildingOrdinal]);
+      writeString(out, building.buildingName().name());
+      writeString(out, building.campusLocation().name());
+      writeVarint(out, building.year());
+      writeInt(out, Float.floatToIntBits(building.peoplePerWasher()));
+      out.write(building.hasElevatorAccess() ? 1 : 0);
+      writeString(out, building.address());
+    }
+    writeVarint(out, roomNumbers.length);
+    for (int code : roomNumbers) {
+      writeString(out, roomTable.roomNumber(code));
+    }
+    writeVarint(out, floorPlans.length);
+    for (int code : floorPlans) {
+      writeString(out, roomTable.floorPlanLink(code));
+    }
+
+    for (int i = 0; i < n; i++) {
+      writeVarint(out, Arrays.binarySearch(buildings, buildingCodes[i]));
+    }
+    for (CompactRoom room : rooms) {
+      writeVarint(out, room.roomSize());
+    }
+    for (CompactRoom room : rooms) {
+      out.write(room.capacity());
+    }
+    for (CompactRoom room : rooms) {
+      out.write(room.floorNumber());
+    }
+    for (CompactRoom room : rooms) {
+      out.write(room.flags());
+    }
+    for (CompactRoom room : rooms) {
+      out.write(room.bathroomOrdinal());
+    }
+    for (int i = 0; i < n; i++) {
+      writeVarint(out, Arrays.binarySearch(roomNumbers, roomNumberCodes[i]));
+    }
+    for (int i = 0; i < n; i++) {
+      writeVarint(out, floorPlanCodes[i] < 0 ? 0 : Arrays.binarySearch(floorPlans, floorPlanCodes[i]) + 1);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns the distinct values of an array in ascending order.
+   *
+   * @param codes the values, which are left unchanged
+   * @return the sorted distinct values
+   */
+  private static int[] distinctSorted(int[] codes) {
+    return Arrays.stream(codes).sorted().distinct().toArray();
+  }
+
+  /**
+   * Writes an {@code int} as an unsigned LEB128 varint.
+   *
+   * @param out the stream to write to
+   * @param value the value, read as unsigned
+   */
+  private static void writeVarint(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7f) != 0) {
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /**
+   * Writes an {@code int} as 4 big-endian bytes.
+   *
+   * @param out the stream to write to
+   * @param value the value
+   */
+  private static void writeInt(ByteArrayOutputStream out, int value) {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+  /**
+   * Writes a string as the varint length of its UTF-8 bytes followed by the bytes.
+   *
+   * @param out the stream to write to
+   * @param value the string
+   */
+  private static void writeString(ByteArrayOutputStream out, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarint(out, bytes.length);
+    out.writeBytes(bytes);
+  }
+}
@@ -0,0 +1,117 @@
+package Server;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * The {@code ConcurrencyLimitedRoute} class wraps a {@link Route} so that at most a fixed number of
+ * requests are handled at once, across every route sharing the same limit.
+ *
+ * <p>A request over the limit waits up to a timeout for another request to finish. If none does,
+ * it is rejected with a {@code 503 Service Unavailable} JSON response, so a burst sheds load
+ * instead of queueing without bound. Waiting parks the request's thread, which with a
+ * {@link VirtualThreadPool} costs no platform thread.</p>
+ *
+ * <p>The limit bounds the requests computing a response, not those sending one. A route that
+ * writes its response itself calls {@link #releasePermit(Request)} once the body is computed, so a
+ * slow client reading a large body does not hold a permit. The permit of any other request is
+ * released when the route returns, before Spark writes what it returned. A newline delimited
+ * response is written while the index searches, so {@link FilteringHandler} limits those streams
+ * with permits of their own.</p>
+ */
+public class ConcurrencyLimitedRoute implements Route {
+
+  /** The response of a request rejected because the limit was reached. */
+  static final String OVERLOADED_RESPONSE =
+      "{\"result\":\"error_overloaded\",\"error_message\":\"The server is handling too many requests.\"}";
+
+  /** The request attribute holding the permit of the request. */
+  private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitedRoute.class.getName() + ".permit";
+
+  /** The route handling the requests within the limit. */
+  private final Route route;
+
+  /** The permits of the requests being handled, shared by every route with the same limit. */
+  private final Semaphore permits;
+
+  /** How long a request over the limit waits for a permit, in milliseconds. */
+  private final long waitMillis;
+
+  /**
+   * Constructs a new {@code ConcurrencyLimitedRoute}.
+   *
+   * @param route the route to limit
+   * @param permits the permits of the requests being handled. Routes sharing the semaphore share
+   *                the limit.
+   * @param waitMillis how long a request over the limit waits for a permit before it is rejected
+   * @throws IllegalArgumentException if {@code waitMillis} is negative
+   */
+  public ConcurrencyLimitedRoute(Route route, Semaphore permits, long waitMillis) {
+    if (waitMillis < 0) {
+      throw new IllegalArgumentException("The wait time cannot be negative: " + waitMillis);
+    }
+    this.route = route;
+    this.permits = permits;
+    this.waitMillis = waitMillis;
+  }
+
+  /**
+   * Handles the request with the wrapped route if a permit is available within the wait time.
+   *
+   * @param request  the HTTP request
+   * @param response the HTTP response object
+   * @return the response of the wrapped route, or an error if the server is overloaded
+   * @throws Exception if the wrapped route throws
+   */
+  @Override
+  public Object handle(Request request, Response response) throws Exception {
+    if (!this.permits.tryAcquire(this.waitMillis, TimeUnit.MILLISECONDS)) {
+      response.status(503);
+      response.type("application/json");
+      return OVERLOADED_RESPONSE;
+    }
+    Permit permit = new Permit(this.permits);
+    request.attribute(PERMIT_ATTRIBUTE, permit);
+    try {
+      return this.route.handle(request, response);
+    } finally {
+      permit.release();
+    }
+  }
+
+  /**
+   * Releases the permit of a request before its route returns, e.g. once the body is computed and
+   * only writing it to the client is left. Does nothing if the request holds no permit, or has
+   * already released it.
+   *
+   * @param request the HTTP request
+   */
+  public static void releasePermit(Request request) {
+    if (request.attribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+      permit.release();
+    }
+  }
+
+  /**
+   * The permit held by one request, released at most once.
+   */
+  private static final class Permit {
+
+    private final Semaphore permits;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Permit(Semaphore permits) {
+      this.permits = permits;
+    }
+
+    void release() {
+      if (this.released.compareAndSet(false, true)) {
+        this.permits.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package Server;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+import DormRoom.CampusLocation;
+import DormRoom.DormBuildingName;
+import DormRoom.RoomCapacity;
+import Filtering.CriteriaKey;
+import Filtering.FacetCounts;
+import Filtering.FilteringCache;
+
+/**
+ * The {@code FacetsHandler} class handles {@code GET /facets} requests, which take the parameters
+ * of a {@code /filter} request and return how many rooms match them, in total and grouped by
+ * building, campus location and room capacity, instead of the rooms themselves.
+ *
+ * <p>The counts come from {@link FilteringCache#countFacets}, which counts the matches while the
+ * index is searched, so neither a set of rooms nor their JSON is built. A response lists every
+ * building, campus location and capacity, including those without matches:</p>
+ * <pre>{@code
+ * {"campusLocation": "all", ..., "result": "success", "total": 412,
+ *  "buildings": {"BUXTON_HOUSE": 31, ...},
+ *  "campusLocations": {"WristonQuad": 160, ...},
+ *  "roomCapacities": {"One": 250, ...}}
+ * }</pre>
+ * The counts cover the whole result, so a query with a paging parameter is rejected.
+ */
+public class FacetsHandler implements Route {
+
+  /** The adapter serializing the response maps. Moshi adapters are thread-safe. */
+  private static final JsonAdapter<Map<String, Object>> MAP_ADAPTER = new Moshi.Builder().build()
+      .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+  /** The caching layer counting the matching rooms. */
+  private final FilteringCache cache;
+
+  /**
+   * Constructs a new {@code FacetsHandler}.
+   *
+   * @param cache the {@link FilteringCache} counting the matching rooms
+   */
+  public FacetsHandler(FilteringCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Handles an HTTP request for the counts of the rooms matching the query parameters.
+   *
+   * @param request  the HTTP request containing query parameters
+   * @param response the HTTP response object
+   * @return a JSON-formatted response containing the counts or an error message
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    Map<String, Object> output = new LinkedHashMap<>();
+    FilterQuery query = FilterQuery.parseUnpaged(request.queryString());
+    for (FilterQuery.Parameter parameter : FilterQuery.Parameter.values()) {
+      output.put(parameter.queryName(), query.value(parameter));
+    }
+    if (!query.isValid()) {
+      FilterQuery.QueryError error = query.error();
+      output.put("result", "error_bad_request");
+      output.put("error_parameter", error.parameter().queryName());
+      output.put("error_message", error.message());
+      return MAP_ADAPTER.toJson(output);
+    }
+
+    FacetCounts counts = this.cache.countFacets(CriteriaKey.of(query.criteria()));
+    Map<String, Object> buildings = new LinkedHashMap<>();
+    for (DormBuildingName buildingName : DormBuildingName.values()) {
+      buildings.put(buildingName.name(), counts.count(buildingName));
+    }
+    Map<String, Object> campusLocations = new LinkedHashMap<>();
+    for (CampusLocation campusLocation : CampusLocation.values()) {
+      campusLocations.put(campusLocation.name(), counts.count(campusLocation));
+    }
+    Map<String, Object> roomCapacities = new LinkedHashMap<>();
+    for (RoomCapacity roomCapacity : RoomCapacity.values()) {
+      roomCapacities.put(roomCapacity.name(), counts.count(roomCapacity));
+    }
+
+    output.put("result", "success");
+    output.put("total", counts.total());
+    output.put("buildings", buildings);
+    output.put("campusLocations", campusLocations);
+    output.put("roomCapacities", roomCapacities);
+    return MAP_ADAPTER.toJson(output);
+  }
+}
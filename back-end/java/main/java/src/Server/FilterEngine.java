@@ -0,0 +1,42 @@
+package Server;
+
+import DormRoom.IDormRoom;
+import Filtering.Bitmap_Index.BitmapIndex;
+import Filtering.Flat_KDTree.FlatKDTree;
+import Filtering.IDormFilter;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Filtering.RoomTable;
+
+/**
+ * An enum of the {@link IDormFilter} implementations that the {@link Server} can be started with.
+ */
+public enum FilterEngine {
+  /**
+   * Uses a {@link KDTreeWrapper}, which stores one {@link Filtering.Node_KDTree.KDTreeNode}
+   * object per dorm room.
+   */
+  KD_TREE,
+  /**
+   * Uses a {@link FlatKDTree}, which stores its KD-trees in parallel primitive arrays.
+   */
+  FLAT_KD_TREE,
+  /**
+   * Uses a {@link BitmapIndex}, which answers queries with bitwise operations over one bitset per
+   * attribute value.
+   */
+  BITMAP;
+
+  /**
+   * Builds the filter this engine stands for over the given dorm rooms.
+   *
+   * @param roomTable the {@link IDormRoom} instances to filter, along with their ids
+   * @return a new {@link IDormFilter} over {@code roomTable}
+   */
+  public IDormFilter create(RoomTable roomTable) {
+    return switch (this) {
+      case KD_TREE -> new KDTreeWrapper(roomTable, KDTreeWrapper.DEFAULT_PARALLEL_THRESHOLD);
+      case FLAT_KD_TREE -> new FlatKDTree(roomTable);
+      case BITMAP -> new BitmapIndex(roomTable);
+    };
+  }
+}
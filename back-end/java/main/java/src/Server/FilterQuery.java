@@ -0,0 +1,933 @@
+package Server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import DormRoom.BathroomType;
+import DormRoom.CampusLocation;
+import DormRoom.RoomCapacity;
+import Filtering.CompiledCriteria;
+import Filtering.CriteriaKey;
+import Filtering.SortKey;
+
+/**
+ * The {@code FilterQuery} class parses the raw query string of a {@code /filter} request straight
+ * into the {@link CompiledCriteria} the filters evaluate.
+ *
+ * <p>The query string is scanned once to find the value of every parameter, and every value is
+ * then read in place: lists are walked comma by comma, names are compared to the enum constants
+ * region by region and numbers are accumulated digit by digit. On the happy path no substring,
+ * boxed value, set or exception is created. Commas and spaces encoded as {@code %2C}, {@code %20}
+ * or {@code +}, as the front-end sends its lists, are read in place as separators and whitespace;
+ * only values holding any other escape are decoded into a copy first.</p>
+ *
+ * <p>An invalid query is not reported with an exception either. {@link #parse} returns a query
+ * holding a {@link QueryError}, so malformed requests never pay for a stack trace. The accepted
+ * syntax and the error messages are the ones of the per-parameter validation this class replaces:
+ * <ul>
+ *   <li>a parameter that is missing or has an empty value is an error</li>
+ *   <li>{@code all}, in any case, stands for every value</li>
+ *   <li>otherwise the value is a comma separated list. Every element is trimmed, enum constants
+ *       must match exactly, booleans in any case and numbers must be integers. Empty elements at
+ *       the end of the list are ignored.</li>
+ *   <li>if a parameter appears more than once, its first value is used</li>
+ * </ul>
+ *
+ * <p>The optional {@code sort}, {@code order}, {@code limit} and {@code cursor} parameters ask for
+ * one page of the result, ordered by a {@link SortKey}, instead of the whole unordered result, see
+ * {@link #isPaged()}. They are validated after the filtering parameters, and an empty value counts
+ * as a missing one. A cursor names the sort and order of its page, see {@link #nextCursor(int)},
+ * and is only valid for a query with the same ones. Endpoints that do not return pages parse their
+ * queries with {@link #parseUnpaged(String)}, which rejects the paging parameters.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class FilterQuery {
+
+  /** The parameters of a {@code /filter} request, in the order they are validated. */
+  public enum Parameter {
+    CAMPUS_LOCATION("campusLocation", true),
+    IS_SUITE("isSuite", true),
+    HAS_KITCHEN("hasKitchen", true),
+    BATHROOM_TYPE("bathroomType", true),
+    MIN_ROOM_SIZE("minRoomSize", true),
+    MAX_ROOM_SIZE("maxRoomSize", true),
+    ROOM_CAPACITY("roomCapacity", true),
+    FLOOR_NUMBER("floorNumber", true),
+    SORT("sort", false),
+    ORDER("order", false),
+    LIMIT("limit", false),
+    CURSOR("cursor", false);
+
+    private final String queryName;
+    private final boolean required;
+
+    Parameter(String queryName, boolean required) {
+      this.queryName = queryName;
+      this.required = required;
+    }
+
+    /**
+     * Returns the name of this parameter in the query string.
+     *
+     * @return the query string name
+     */
+    public String queryName() {
+      return this.queryName;
+    }
+
+    /**
+     * Returns whether a query without this parameter is invalid.
+     *
+     * @return {@code true} for the filtering parameters, {@code false} for the paging ones
+     */
+    public boolean isRequired() {
+      return this.required;
+    }
+  }
+
+  /**
+   * The reason a query is rejected.
+   *
+   * @param parameter the parameter whose value is invalid
+   * @param value the offending element of the value, or {@code null} if the parameter is missing
+   *              or empty
+   * @param unsupported whether the value may be valid, but the parameter is not accepted by the
+   *                    endpoint
+   */
+  public record QueryError(Parameter parameter, String value, boolean unsupported) {
+
+    /**
+     * Constructs the error of an invalid value.
+     *
+     * @param parameter the parameter whose value is invalid
+     * @param value the offending element of the value, or {@code null} if the parameter is
+     *              missing or empty
+     */
+    public QueryError(Parameter parameter, String value) {
+      this(parameter, value, false);
+    }
+
+    /**
+     * Returns the message describing this error to the client.
+     *
+     * @return the error message
+     */
+    public String message() {
+      String name = this.parameter.queryName();
+      if (this.unsupported) {
+        return name + " is not supported here. Only /filter returns pages of its result.";
+      }
+      if (this.value == null) {
+        return name + " parameter is missing or empty.";
+      }
+      return "Invalid value for " + name + ": " + this.value + switch (this.parameter) {
+        case CAMPUS_LOCATION -> ". Valid values are: " + Set.of(CampusLocation.values());
+        case BATHROOM_TYPE -> ". Valid values are: " + Set.of(BathroomType.values());
+        case ROOM_CAPACITY -> ". Valid values are: " + Set.of(RoomCapacity.values());
+        case IS_SUITE, HAS_KITCHEN -> ". Valid values are: true, false.";
+        case MIN_ROOM_SIZE, MAX_ROOM_SIZE, FLOOR_NUMBER -> ". It must be an integer.";
+        case SORT -> ". Valid values are: " + Arrays.stream(SORT_KEYS).map(SortKey::queryName).toList();
+        case ORDER -> ". Valid values are: asc, desc.";
+        case LIMIT -> ". It must be an integer between 1 and " + MAX_PAGE_SIZE + ".";
+        case CURSOR -> ". It must be the nextCursor of a previous page with the same sort and order.";
+      };
+    }
+  }
+
+  /** The number of rooms of a page whose query has no {@code limit}. */
+  public static final int DEFAULT_PAGE_SIZE = 100;
+
+  /** The largest {@code limit} of a page. */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  /** The name a cursor gives the order by room id, used when a query has no {@code sort}. */
+  private static final String ID_ORDER = "id";
+
+  private static final Parameter[] PARAMETERS = Parameter.values();
+  private static final SortKey[] SORT_KEYS = SortKey.values();
+  private static final CampusLocation[] CAMPUS_LOCATIONS = CampusLocation.values();
+  private static final BathroomType[] BATHROOM_TYPES = BathroomType.values();
+  private static final RoomCapacity[] ROOM_CAPACITIES = RoomCapacity.values();
+
+  /** The building mask of {@code campusLocation=all}. */
+  private static final long ALL_BUILDINGS;
+
+  /** The capacity mask of {@code roomCapacity=all}. */
+  private static final long ALL_CAPACITIES;
+
+  static {
+    long allBuildings = 0;
+    for (CampusLocation campusLocation : CAMPUS_LOCATIONS) {
+      allBuildings |= CompiledCriteria.buildingsOf(campusLocation);
+    }
+    ALL_BUILDINGS = allBuildings;
+
+    long allCapacities = 0;
+    for (RoomCapacity roomCapacity : ROOM_CAPACITIES) {
+      allCapacities |= 1L << roomCapacity.toInteger();
+    }
+    ALL_CAPACITIES = allCapacities;
+  }
+
+  /** The mask of every boolean, in the encoding of {@link CompiledCriteria}. */
+  private static final int BOTH_BOOLEANS = 0b11;
+
+  /** The floors {@code floorNumber=all} stands for. */
+  private static final long ALL_FLOORS = ((1L << 11) - 1) & ~1L;
+
+  /** The value a mask parser returns for an invalid element; no valid mask has its sign bit set. */
+  private static final long INVALID = Long.MIN_VALUE;
+
+  /** For every parameter, the string its value is read from, or {@code null} if it is missing. */
+  private final String[] sources = new String[PARAMETERS.length];
+
+  /** For every parameter, the offset of its value in its source. */
+  private final int[] starts = new int[PARAMETERS.length];
+
+  /** For every parameter, the offset after its value in its source. */
+  private final int[] ends = new int[PARAMETERS.length];
+
+  /**
+   * For every parameter, whether its value is read in place from the query string although it
+   * holds {@code %2C}, {@code %20} or {@code +}.
+   */
+  private final boolean[] escaped = new boolean[PARAMETERS.length];
+
+  /** The parsed criteria, or {@code null} if the query is invalid. */
+  private CompiledCriteria criteria;
+
+  /** The reason the query is invalid, or {@code null} if it is valid. */
+  private QueryError error;
+
+  /** Whether a paging parameter is present. */
+  private boolean paged;
+
+  /** The key the page is ordered by, or {@code null} to order it by room id. */
+  private SortKey sortKey;
+
+  /** Whether the page is ordered from the largest value of the key down. */
+  private boolean descending;
+
+  /** The largest number of rooms of the page. */
+  private int limit = DEFAULT_PAGE_SIZE;
+
+  /** The position the page starts at. */
+  private int cursor;
+
+  private FilterQuery() {}
+
+  /**
+   * Parses the raw query string of a request.
+   *
+   * @param queryString the query string, without the leading {@code ?}, or {@code null} if the
+   *                    request has none
+   * @return the parsed query, holding either the criteria or the first error, validating the
+   *         parameters in the order of {@link Parameter}
+   */
+  public static FilterQuery parse(String queryString) {
+    FilterQuery query = new FilterQuery();
+    if (queryString != null) {
+      query.locateValues(queryString);
+    }
+    query.validate();
+    return query;
+  }
+
+  /**
+   * Parses the raw query string of a request to an endpoint that does not return pages.
+   *
+   * @param queryString the query string, without the leading {@code ?}, or {@code null} if the
+   *                    request has none
+   * @return the parsed query, like {@link #parse(String)}, except that the first paging parameter
+   *         of an otherwise valid query is an error
+   */
+  public static FilterQuery parseUnpaged(String queryString) {
+    FilterQuery query = parse(queryString);
+    query.rejectPaging();
+    return query;
+  }
+
+  /**
+   * Parses parameters that have already been separated and decoded, e.g. the fields of one query
+   * of a batch request. The values follow the syntax of the query string.
+   *
+   * @param parameters the value of every parameter by its query string name; other names are
+   *                   ignored
+   * @return the parsed query, holding either the criteria or the first error, validating the
+   *         parameters in the order of {@link Parameter}
+   */
+  public static FilterQuery parse(Map<String, String> parameters) {
+    FilterQuery query = new FilterQuery();
+    for (Parameter parameter : PARAMETERS) {
+      String value = parameters.get(parameter.queryName());
+      if (value != null) {
+        query.sources[parameter.ordinal()] = value;
+        query.starts[parameter.ordinal()] = 0;
+        query.ends[parameter.ordinal()] = value.length();
+      }
+    }
+    query.validate();
+    return query;
+  }
+
+  /**
+   * Parses separated and decoded parameters for an endpoint that does not return pages.
+   *
+   * @param parameters the value of every parameter by its query string name; other names are
+   *                   ignored
+   * @return the parsed query, like {@link #parse(Map)}, except that the first paging parameter of
+   *         an otherwise valid query is an error
+   */
+  public static FilterQuery parseUnpaged(Map<String, String> parameters) {
+    FilterQuery query = parse(parameters);
+    query.rejectPaging();
+    return query;
+  }
+
+  /**
+   * Turns a valid paged query into an invalid one, whose error is its first paging parameter.
+   */
+  private void rejectPaging() {
+    if (this.error != null || !this.paged) {
+      return;
+    }
+    for (Parameter parameter : PARAMETERS) {
+      int index = parameter.ordinal();
+      if (!parameter.isRequired() && this.sources[index] != null
+          && this.starts[index] != this.ends[index]) {
+        this.error = new QueryError(parameter, this.value(parameter), true);
+        this.criteria = null;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns whether every parameter is present and valid.
+   *
+   * @return {@code true} if {@link #criteria()} holds the parsed criteria
+   */
+  public boolean isValid() {
+    return this.error == null;
+  }
+
+  /**
+   * Returns the parsed criteria.
+   *
+   * @return the criteria, or {@code null} if the query is invalid
+   */
+  public CompiledCriteria criteria() {
+    return this.criteria;
+  }
+
+  /**
+   * Returns the reason the query is invalid.
+   *
+   * @return the first error, or {@code null} if the query is valid
+   */
+  public QueryError error() {
+    return this.error;
+  }
+
+  /**
+   * Returns whether the query asks for one page of the result, because it holds a {@code sort},
+   * {@code order}, {@code limit} or {@code cursor} parameter.
+   *
+   * @return {@code true} if the result is to be paged with {@link Filtering.RoomOrder}
+   */
+  public boolean isPaged() {
+    return this.paged;
+  }
+
+  /**
+   * Returns the key a paged result is ordered by.
+   *
+   * @return the key of the {@code sort} parameter, or {@code null} to order the rooms by id
+   */
+  public SortKey sortKey() {
+    return this.sortKey;
+  }
+
+  /**
+   * Returns whether a paged result is ordered from the largest value of its key down.
+   *
+   * @return {@code true} for {@code order=desc}
+   */
+  public boolean descending() {
+    return this.descending;
+  }
+
+  /**
+   * Returns the largest number of rooms of a page.
+   *
+   * @return the {@code limit} parameter, or {@link #DEFAULT_PAGE_SIZE}
+   */
+  public int limit() {
+    return this.limit;
+  }
+
+  /**
+   * Returns the position a page starts at.
+   *
+   * @return the position of the {@code cursor} parameter, or 0 for the first page
+   */
+  public int cursor() {
+    return this.cursor;
+  }
+
+  /**
+   * Returns the cursor a client sends for the page starting at a position, e.g.
+   * {@code roomSize.desc.40}. It names the sort and order of this query, so it is rejected by a
+   * query that orders the rooms differently.
+   *
+   * @param position the position of the next page in the walk of {@link Filtering.RoomOrder}
+   * @return the {@code nextCursor} of the current page
+   */
+  public String nextCursor(int position) {
+    return cursorPrefix(this.sortKey, this.descending) + position;
+  }
+
+  /**
+   * Returns the part of a cursor naming its sort and order.
+   *
+   * @param sortKey the key of the sort, or {@code null} for the order by room id
+   * @param descending whether the order is descending
+   * @return the prefix of every cursor of that sort and order
+   */
+  private static String cursorPrefix(SortKey sortKey, boolean descending) {
+    return (sortKey == null ? ID_ORDER : sortKey.queryName()) + (descending ? ".desc." : ".asc.");
+  }
+
+  /**
+   * Returns the decoded value of a parameter, e.g. to echo it in a response.
+   *
+   * @param parameter the parameter
+   * @return the value, or {@code null} if the parameter is missing
+   */
+  public String value(Parameter parameter) {
+    int index = parameter.ordinal();
+    String source = this.sources[index];
+    return source == null ? null
+        : text(source, this.starts[index], this.ends[index], this.escaped[index]);
+  }
+
+  /**
+   * Finds the first value of every parameter in the query string. A value whose only escapes are
+   * commas and spaces is read in place; pairs with an encoded name or any other escape in their
+   * value are decoded, and pairs that cannot be decoded are ignored.
+   *
+   * @param queryString the raw query string
+   */
+  private void locateValues(String queryString) {
+    int pairStart = 0;
+    while (pairStart <= queryString.length()) {
+      int pairEnd = queryString.indexOf('&', pairStart);
+      if (pairEnd < 0) {
+        pairEnd = queryString.length();
+      }
+      int equals = queryString.indexOf('=', pairStart);
+      int nameEnd = equals < 0 || equals > pairEnd ? pairEnd : equals;
+      int valueStart = Math.min(nameEnd + 1, pairEnd);
+
+      if (needsDecoding(queryString, pairStart, nameEnd)
+          || needsCopy(queryString, valueStart, pairEnd)) {
+        String name = decode(queryString, pairStart, nameEnd);
+        String value = decode(queryString, valueStart, pairEnd);
+        if (name != null && value != null) {
+          this.record(name + "=" + value, 0, name.length(), name.length() + 1);
+        }
+      } else {
+        this.record(queryString, pairStart, nameEnd, valueStart, pairEnd,
+            needsDecoding(queryString, valueStart, pairEnd));
+      }
+      pairStart = pairEnd + 1;
+    }
+  }
+
+  /**
+   * Records a decoded name-value pair, see {@link #record(String, int, int, int, int, boolean)}.
+   *
+   * @param pair the decoded pair, joined by {@code =}
+   * @param nameStart the offset of the name
+   * @param nameEnd the offset after the name
+   * @param valueStart the offset of the value
+   */
+  private void record(String pair, int nameStart, int nameEnd, int valueStart) {
+    this.record(pair, nameStart, nameEnd, valueStart, pair.length(), false);
+  }
+
+  /**
+   * Records the value of a pair if its name is a parameter seen for the first time.
+   *
+   * @param source the string holding the pair
+   * @param nameStart the offset of the name
+   * @param nameEnd the offset after the name
+   * @param valueStart the offset of the value
+   * @param valueEnd the offset after the value
+   * @param escaped whether the value holds {@code %2C}, {@code %20} or {@code +} escapes
+   */
+  private void record(String source, int nameStart, int nameEnd, int valueStart, int valueEnd,
+      boolean escaped) {
+    for (Parameter parameter : PARAMETERS) {
+      String name = parameter.queryName();
+      if (name.length() == nameEnd - nameStart && source.startsWith(name, nameStart)) {
+        if (this.sources[parameter.ordinal()] == null) {
+          this.sources[parameter.ordinal()] = source;
+          this.starts[parameter.ordinal()] = valueStart;
+          this.ends[parameter.ordinal()] = valueEnd;
+          this.escaped[parameter.ordinal()] = escaped;
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * Validates every parameter in order, stopping at the first error.
+   */
+  private void validate() {
+    long buildingMask = 0;
+    int suiteMask = 0;
+    int kitchenMask = 0;
+    int bathroomMask = 0;
+    int minRoomSize = 0;
+    int maxRoomSize = 0;
+    int capacityMask = 0;
+    long floorMask = 0;
+
+    for (Parameter parameter : PARAMETERS) {
+      int index = parameter.ordinal();
+      String source = this.sources[index];
+      int start = this.starts[index];
+      int end = this.ends[index];
+      boolean escaped = this.escaped[index];
+      if (!parameter.isRequired()) {
+        if (source != null && start != end) {
+          this.paged = true;
+          this.parsePaging(parameter, source, start, end, escaped);
+          if (this.error != null) {
+            return;
+          }
+        }
+        continue;
+      }
+      if (source == null || start == end) {
+        this.error = new QueryError(parameter, null);
+        return;
+      }
+
+      long parsed = parameter == Parameter.MIN_ROOM_SIZE || parameter == Parameter.MAX_ROOM_SIZE
+          ? this.parseRoomSize(parameter, source, start, end, escaped)
+          : this.parseList(parameter, source, start, end, escaped);
+      if (this.error != null) {
+        return;
+      }
+
+      switch (parameter) {
+        case CAMPUS_LOCATION -> buildingMask = parsed;
+        case IS_SUITE -> suiteMask = (int) parsed;
+        case HAS_KITCHEN -> kitchenMask = (int) parsed;
+        case BATHROOM_TYPE -> bathroomMask = (int) parsed;
+        case MIN_ROOM_SIZE -> minRoomSize = (int) parsed;
+        case MAX_ROOM_SIZE -> maxRoomSize = (int) parsed;
+        case ROOM_CAPACITY -> capacityMask = (int) parsed;
+        case FLOOR_NUMBER -> floorMask = parsed;
+        default -> { }
+      }
+    }
+
+    this.criteria = new CompiledCriteria(buildingMask, suiteMask, kitchenMask, bathroomMask,
+        minRoomSize, maxRoomSize, capacityMask, floorMask);
+  }
+
+  /**
+   * Parses the value of a paging parameter into its field.
+   *
+   * @param parameter {@link Parameter#SORT}, {@link Parameter#ORDER}, {@link Parameter#LIMIT} or
+   *                  {@link Parameter#CURSOR}
+   * @param source the string holding the value
+   * @param start the offset of the value
+   * @param end the offset after the value
+   * @param escaped whether the value holds {@code %2C}, {@code %20} or {@code +} escapes
+   */
+  private void parsePaging(Parameter parameter, String source, int start, int end,
+      boolean escaped) {
+    int trimmedStart = trimStart(source, start, end, escaped);
+    int trimmedEnd = trimEnd(source, trimmedStart, end, escaped);
+    int length = trimmedEnd - trimmedStart;
+    boolean valid = switch (parameter) {
+      case SORT -> {
+        for (SortKey key : SORT_KEYS) {
+          String name = key.queryName();
+          if (name.length() == length && source.startsWith(name, trimmedStart)) {
+            this.sortKey = key;
+          }
+        }
+        yield this.sortKey != null;
+      }
+      case ORDER -> {
+        this.descending = length == 4 && source.regionMatches(true, trimmedStart, "desc", 0, 4);
+        yield this.descending || length == 3 && source.regionMatches(true, trimmedStart, "asc", 0, 3);
+      }
+      case LIMIT -> {
+        long parsed = parseInt(source, trimmedStart, trimmedEnd);
+        this.limit = (int) parsed;
+        yield parsed >= 1 && parsed <= MAX_PAGE_SIZE;
+      }
+      default -> {
+        // The sort and order are validated before the cursor, which has to name them
+        String prefix = cursorPrefix(this.sortKey, this.descending);
+        long parsed = length > prefix.length() && source.startsWith(prefix, trimmedStart)
+            ? parseInt(source, trimmedStart + prefix.length(), trimmedEnd) : INVALID;
+        this.cursor = (int) parsed;
+        yield parsed >= 0;
+      }
+    };
+    if (!valid) {
+      this.error = new QueryError(parameter, text(source, start, end, escaped));
+    }
+  }
+
+  /**
+   * Parses the value of a room size parameter.
+   *
+   * @param parameter {@link Parameter#MIN_ROOM_SIZE} or {@link Parameter#MAX_ROOM_SIZE}
+   * @param source the string holding the value
+   * @param start the offset of the value
+   * @param end the offset after the value
+   * @param escaped whether the value holds {@code %2C}, {@code %20} or {@code +} escapes
+   * @return the room size, or anything if an error was recorded
+   */
+  private long parseRoomSize(Parameter parameter, String source, int start, int end,
+      boolean escaped) {
+    int trimmedStart = trimStart(source, start, end, escaped);
+    int trimmedEnd = trimEnd(source, trimmedStart, end, escaped);
+    if (isAll(source, trimmedStart, trimmedEnd)) {
+      return parameter == Parameter.MIN_ROOM_SIZE ? 0 : CriteriaKey.MAX_ROOM_SIZE;
+    }
+    long size = parseInt(source, trimmedStart, trimmedEnd);
+    if (size == INVALID) {
+      this.error = new QueryError(parameter, text(source, start, end, escaped));
+    }
+    return size;
+  }
+
+  /**
+   * Parses the comma separated value of a list parameter into the mask of its elements.
+   *
+   * @param parameter the list parameter
+   * @param source the string holding the value
+   * @param start the offset of the value
+   * @param end the offset after the value
+   * @param escaped whether the value holds {@code %2C}, {@code %20} or {@code +} escapes
+   * @return the mask of the elements, or anything if an error was recorded
+   */
+  private long parseList(Parameter parameter, String source, int start, int end,
+      boolean escaped) {
+    if (isAll(source, trimStart(source, start, end, escaped), trimEnd(source, start, end, escaped))) {
+      return switch (parameter) {
+        case CAMPUS_LOCATION -> ALL_BUILDINGS;
+        case IS_SUITE, HAS_KITCHEN -> BOTH_BOOLEANS;
+        case BATHROOM_TYPE -> (1L << BATHROOM_TYPES.length) - 1;
+        case ROOM_CAPACITY -> ALL_CAPACITIES;
+        default -> ALL_FLOORS;
+      };
+    }
+
+    // Empty elements at the end of the list are dropped
+    while (end > start) {
+      if (source.charAt(end - 1) == ',') {
+        end--;
+      } else if (escaped && isEscape(source, end - 3, start, 'C')) {
+        end -= 3;
+      } else {
+        break;
+      }
+    }
+
+    long mask = 0;
+    int elementStart = start;
+    while (elementStart < end) {
+      int elementEnd = elementStart;
+      int separatorLength = 0;
+      while (elementEnd < end) {
+        if (source.charAt(elementEnd) == ',') {
+          separatorLength = 1;
+          break;
+        }
+        if (escaped && isEscape(source, elementEnd, start, 'C')) {
+          separatorLength = 3;
+          break;
+        }
+        elementEnd++;
+      }
+      int trimmedStart = trimStart(source, elementStart, elementEnd, escaped);
+      int trimmedEnd = trimEnd(source, trimmedStart, elementEnd, escaped);
+      long bits = switch (parameter) {
+        case CAMPUS_LOCATION -> {
+          int ordinal = indexOf(CAMPUS_LOCATIONS, source, trimmedStart, trimmedEnd);
+          yield ordinal < 0 ? INVALID : CompiledCriteria.buildingsOf(CAMPUS_LOCATIONS[ordinal]);
+        }
+        case IS_SUITE, HAS_KITCHEN -> parseBoolean(source, trimmedStart, trimmedEnd);
+        case BATHROOM_TYPE -> {
+          int ordinal = indexOf(BATHROOM_TYPES, source, trimmedStart, trimmedEnd);
+          yield ordinal < 0 ? INVALID : 1L << ordinal;
+        }
+        case ROOM_CAPACITY -> {
+          int ordinal = indexOf(ROOM_CAPACITIES, source, trimmedStart, trimmedEnd);
+          yield ordinal < 0 ? INVALID : 1L << ROOM_CAPACITIES[ordinal].toInteger();
+        }
+        default -> {
+          long floor = parseInt(source, trimmedStart, trimmedEnd);
+          // Like compiling a set of floors, floors no room can be on are dropped
+          yield floor == INVALID ? INVALID : floor >= 0 && floor < Long.SIZE ? 1L << floor : 0;
+        }
+      };
+      if (bits == INVALID) {
+        this.error = new QueryError(parameter, text(source, elementStart, elementEnd, escaped));
+        return 0;
+      }
+      mask |= bits;
+      elementStart = elementEnd + separatorLength;
+    }
+    return mask;
+  }
+
+  /**
+   * Returns the constant whose name is exactly the region of {@code source}.
+   *
+   * @param constants the constants of an enum
+   * @param source the string holding the name
+   * @param start the offset of the name
+   * @param end the offset after the name
+   * @return the ordinal of the constant, or -1 if there is none
+   */
+  private static int indexOf(Enum<?>[] constants, String source, int start, int end) {
+    for (Enum<?> constant : constants) {
+      String name = constant.name();
+      if (name.length() == end - start && source.startsWith(name, start)) {
+        return constant.ordinal();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parses {@code true} or {@code false}, in any case, into its bit in a boolean mask.
+   *
+   * @param source the string holding the boolean
+   * @param start the offset of the boolean
+   * @param end the offset after the boolean
+   * @return {@code 0b10} for true, {@code 0b01} for false, or {@link #INVALID}
+   */
+  private static long parseBoolean(String source, int start, int end) {
+    if (end - start == 4 && source.regionMatches(true, start, "true", 0, 4)) {
+      return 0b10;
+    }
+    if (end - start == 5 && source.regionMatches(true, start, "false", 0, 5)) {
+      return 0b01;
+    }
+    return INVALID;
+  }
+
+  /**
+   * Parses a decimal integer with an optional sign, like {@link Integer#parseInt(String)} but
+   * without throwing.
+   *
+   * @param source the string holding the integer
+   * @param start the offset of the integer
+   * @param end the offset after the integer
+   * @return the integer, or {@link #INVALID} if the region is not an {@code int}
+   */
+  private static long parseInt(String source, int start, int end) {
+    if (start == end) {
+      return INVALID;
+    }
+    boolean negative = false;
+    char first = source.charAt(start);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      start++;
+      if (start == end) {
+        return INVALID;
+      }
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char digit = source.charAt(i);
+      if (digit < '0' || digit > '9') {
+        return INVALID;
+      }
+      value = value * 10 + (digit - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return INVALID;
+      }
+    }
+    value = negative ? -value : value;
+    return value > Integer.MAX_VALUE ? INVALID : value;
+  }
+
+  /**
+   * Returns whether the region is {@code all}, in any case.
+   *
+   * @param source the string holding the region
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @return {@code true} if the region stands for every value
+   */
+  private static boolean isAll(String source, int start, int end) {
+    return end - start == 3 && source.regionMatches(true, start, "all", 0, 3);
+  }
+
+  /**
+   * Skips leading whitespace, like {@link String#trim()}.
+   *
+   * @param source the string holding the region
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @param escaped whether {@code %20} and {@code +} stand for spaces
+   * @return the offset of the first character that is not whitespace, or {@code end}
+   */
+  private static int trimStart(String source, int start, int end, boolean escaped) {
+    while (start < end) {
+      char c = source.charAt(start);
+      if (c <= ' ' || escaped && c == '+') {
+        start++;
+      } else if (escaped && isEscape(source, start, start, '0')) {
+        start += 3;
+      } else {
+        break;
+      }
+    }
+    return start;
+  }
+
+  /**
+   * Skips trailing whitespace, like {@link String#trim()}.
+   *
+   * @param source the string holding the region
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @param escaped whether {@code %20} and {@code +} stand for spaces
+   * @return the offset after the last character that is not whitespace, or {@code start}
+   */
+  private static int trimEnd(String source, int start, int end, boolean escaped) {
+    while (end > start) {
+      char c = source.charAt(end - 1);
+      if (c <= ' ' || escaped && c == '+') {
+        end--;
+      } else if (escaped && isEscape(source, end - 3, start, '0')) {
+        end -= 3;
+      } else {
+        break;
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Returns whether the escape {@code %2C} or {@code %20}, in any case, starts at an offset.
+   *
+   * @param source the string holding the region
+   * @param offset the offset the escape may start at
+   * @param start the offset of the region, which the escape may not start before
+   * @param last {@code 'C'} for the escaped comma, {@code '0'} for the escaped space
+   * @return {@code true} if the escape starts at {@code offset}
+   */
+  private static boolean isEscape(String source, int offset, int start, char last) {
+    return offset >= start && offset + 3 <= source.length() && source.charAt(offset) == '%'
+        && source.charAt(offset + 1) == '2' && Character.toUpperCase(source.charAt(offset + 2)) == last;
+  }
+
+  /**
+   * Returns a region of a value as the client sent it, for error messages.
+   *
+   * @param source the string holding the region
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @param escaped whether the region holds {@code %2C}, {@code %20} or {@code +} escapes
+   * @return the decoded region
+   */
+  private static String text(String source, int start, int end, boolean escaped) {
+    return escaped ? decode(source, start, end) : source.substring(start, end);
+  }
+
+  /**
+   * Returns whether a region of the query string is encoded, i.e. holds a {@code %} escape or a
+   * {@code +} standing for a space.
+   *
+   * @param source the query string
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @return {@code true} if the region has to be decoded before it is read
+   */
+  private static boolean needsDecoding(String source, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = source.charAt(i);
+      if (c == '%' || c == '+') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether a region of the query string has to be decoded into a copy, because it holds
+   * an escape other than {@code %2C}, {@code %20} or {@code +}.
+   *
+   * @param source the query string
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @return {@code true} if the region cannot be read in place
+   */
+  private static boolean needsCopy(String source, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (source.charAt(i) == '%') {
+        if (i + 3 > end || !isEscape(source, i, start, 'C') && !isEscape(source, i, start, '0')) {
+          return true;
+        }
+        i += 2;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Decodes a form-encoded region of the query string as UTF-8.
+   *
+   * @param source the query string
+   * @param start the offset of the region
+   * @param end the offset after the region
+   * @return the decoded region, or {@code null} if it holds a malformed escape
+   */
+  private static String decode(String source, int start, int end) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start);
+    for (int i = start; i < end; i++) {
+      char c = source.charAt(i);
+      if (c == '+') {
+        bytes.write(' ');
+      } else if (c == '%') {
+        if (i + 2 >= end) {
+          return null;
+        }
+        int high = Character.digit(source.charAt(i + 1), 16);
+        int low = Character.digit(source.charAt(i + 2), 16);
+        if (high < 0 || low < 0) {
+          return null;
+        }
+        bytes.write(high << 4 | low);
+        i += 2;
+      } else if (c < 0x80) {
+        bytes.write(c);
+      } else {
+        int codePoint = source.codePointAt(i);
+        bytes.writeBytes(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+        i += Character.charCount(codePoint) - 1;
+      }
+    }
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -3,36 +3,170 @@ package Server;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import spark.Request;
 import spark.Response;
 import spark.Route;
-import DormRoom.BathroomType;
-import DormRoom.CampusLocation;
-import DormRoom.IDormRoom;
-import DormRoom.RoomCapacity;
+import javax.servlet.http.HttpServletResponse;
+import Filtering.CriteriaKey;
 import Filtering.FilteringCache;
-import Filtering.FilteringCriteria;
+import Filtering.RoomIdSet;
+import Filtering.RoomOrder;
+import Filtering.RoomTable;
 
 /**
  * The {@code FilteringHandler} class handles HTTP requests for dorm room filtering queries.
  * It validates query parameters, applies filtering criteria, and returns filtered dorm room results in JSON format.
+ *
+ * <p>A query with a {@code sort}, {@code order}, {@code limit} or {@code cursor} parameter gets one
+ * page of its result, ordered by a {@link Filtering.SortKey} and read from a {@link RoomOrder},
+ * along with the {@code nextCursor} of the following page while there may be one.</p>
+ *
+ * <p>A client sending {@code Accept: application/x-ndjson} gets the rooms of a query without a page
+ * as newline delimited JSON, one room per line and in no particular order, without the echoed
+ * parameters. The rooms are written to the response as the index finds them, in a chunked
+ * response that is committed with the first room, so neither the result nor its JSON is held in
+ * memory. Invalid queries get the usual JSON error.</p>
+ *
+ * <p>A stream takes as long as its client reads, so it does not hold the permit of its request
+ * while it writes. It holds one of the handler's stream permits instead, and is rejected with a
+ * {@code 503 Service Unavailable} if none is free, so slow streaming clients cannot use up the
+ * limit of the other requests.</p>
+ *
+ * <p>A client sending {@code Accept: application/x-dorm-columnar} gets the rooms, or the rooms of
+ * the page, in the binary layout of {@link ColumnarRoomFormat}, with the next cursor of a page in
+ * the {@value #NEXT_CURSOR_HEADER} header.</p>
  */
 public class FilteringHandler implements Route {
 
+  /** The adapter serializing the response maps. Moshi adapters are thread-safe. */
+  private static final JsonAdapter<Map<String, Object>> MAP_ADAPTER = new Moshi.Builder().build()
+      .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+
+  /** The bytes closing a success response after the filtered set. */
+  private static final byte[] SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+  /** The media type of the newline delimited JSON streaming mode. */
+  public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+  /** The header holding the next cursor of a page in the binary format. */
+  public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  /**
+   * The request headers a response depends on, since they choose its format and encoding. Every
+   * response names them, so a cache never serves one format to a client asking for another.
+   */
+  private static final String VARY = "Accept, Accept-Encoding";
+
+  /** The byte ending every line of a newline delimited response. */
+  private static final byte NEWLINE = '\n';
+
   /** The caching layer for filtering operations to improve performance. */
   private final FilteringCache cache;
 
   /**
-   * Constructs a new {@code FilteringHandler} with the provided cache for filtering dorm rooms.
+   * The cache of the serialized filtered sets, so hot queries are not serialized again, or
+   * {@code null} to stream every result from the room fragments.
+   */
+  private final ResponseCache responseCache;
+
+  /**
+   * The pre-rendered JSON of every room. Rendered on the first request if the handler was not
+   * given the fragments up front.
+   */
+  private volatile RoomJsonFragments fragments;
+
+  /**
+   * The presorted rooms answering paged queries. Built on the first paged request if the handler
+   * was not given the order up front.
+   */
+  private volatile RoomOrder roomOrder;
+
+  /**
+   * The permits of the newline delimited responses being streamed, or {@code null} to stream them
+   * under the permit of their request.
+   */
+  private final Semaphore streamPermits;
+
+  /**
+   * Constructs a new {@code FilteringHandler} with the provided cache for filtering dorm rooms and
+   * a gzip enabled {@link ResponseCache} with default bounds.
    *
    * @param cache the {@link FilteringCache} to use for filtering operations
    */
   public FilteringHandler(FilteringCache cache) {
+    this(cache, new ResponseCache(ResponseCache.DEFAULT_MAXIMUM_WEIGHT,
+        FilteringCache.DEFAULT_EXPIRE_AFTER_ACCESS, true));
+  }
+
+  /**
+   * Constructs a new {@code FilteringHandler} with the provided caches. The room fragments are
+   * rendered on the first request.
+   *
+   * @param cache the {@link FilteringCache} to use for filtering operations
+   * @param responseCache the {@link ResponseCache} holding the serialized filtered sets, or
+   *                      {@code null} to stream every result
+   */
+  public FilteringHandler(FilteringCache cache, ResponseCache responseCache) {
+    this(cache, responseCache, null);
+  }
+
+  /**
+   * Constructs a new {@code FilteringHandler} with the provided caches and the JSON fragments of
+   * the rooms the cache filters, rendered when the index was built.
+   *
+   * @param cache the {@link FilteringCache} to use for filtering operations
+   * @param responseCache the {@link ResponseCache} holding the serialized filtered sets, or
+   *                      {@code null} to stream every result
+   * @param fragments the pre-rendered JSON of every room
+   */
+  public FilteringHandler(FilteringCache cache, ResponseCache responseCache,
+      RoomJsonFragments fragments) {
+    this(cache, responseCache, fragments, null);
+  }
+
+  /**
+   * Constructs a new {@code FilteringHandler} with the provided caches, and the JSON fragments and
+   * presorted order of the rooms the cache filters, both built when the index was built.
+   *
+   * @param cache the {@link FilteringCache} to use for filtering operations
+   * @param responseCache the {@link ResponseCache} holding the serialized filtered sets, or
+   *                      {@code null} to stream every result
+   * @param fragments the pre-rendered JSON of every room
+   * @param roomOrder the presorted rooms answering paged queries
+   */
+  public FilteringHandler(FilteringCache cache, ResponseCache responseCache,
+      RoomJsonFragments fragments, RoomOrder roomOrder) {
+    this(cache, responseCache, fragments, roomOrder, null);
+  }
+
+  /**
+   * Constructs a new {@code FilteringHandler} like
+   * {@link #FilteringHandler(FilteringCache, ResponseCache, RoomJsonFragments, RoomOrder)}, whose
+   * newline delimited responses are limited by their own permits.
+   *
+   * @param cache the {@link FilteringCache} to use for filtering operations
+   * @param responseCache the {@link ResponseCache} holding the serialized filtered sets, or
+   *                      {@code null} to stream every result
+   * @param fragments the pre-rendered JSON of every room
+   * @param roomOrder the presorted rooms answering paged queries
+   * @param streamPermits the permits of the newline delimited responses being streamed, or
+   *                      {@code null} to stream them under the permit of their request
+   */
+  public FilteringHandler(FilteringCache cache, ResponseCache responseCache,
+      RoomJsonFragments fragments, RoomOrder roomOrder, Semaphore streamPermits) {
     this.cache = cache;
+    this.responseCache = responseCache;
+    this.fragments = fragments;
+    this.roomOrder = roomOrder;
+    this.streamPermits = streamPermits;
   }
 
   /**
@@ -46,331 +180,349 @@ public class FilteringHandler implements Route {
   @Override
   public Object handle(Request request, Response response) throws Exception {
     Map<String, Object> output = new HashMap<>();
+    response.header("Vary", VARY);
 
-    // Get all the parameters from the request
-    String campusLocation = request.queryParams("campusLocation");
-    String isSuite = request.queryParams("isSuite");
-    String hasKitchen = request.queryParams("hasKitchen");
-    String bathroomType = request.queryParams("bathroomType");
-    String minRoomSize = request.queryParams("minRoomSize");
-    String maxRoomSize = request.queryParams("maxRoomSize");
-    String roomCapacity = request.queryParams("roomCapacity");
-    String floorNumber = request.queryParams("floorNumber");
+    // Parse the raw query string in one pass, without going through the servlet parameters
+    FilterQuery query = FilterQuery.parse(request.queryString());
 
     // Add the parameters to the output map for logging or debugging
-    output.put("campusLocation", campusLocation);
-    output.put("isSuite", isSuite);
-    output.put("hasKitchen", hasKitchen);
-    output.put("bathroomType", bathroomType);
-    output.put("minRoomSize", minRoomSize);
-    output.put("maxRoomSize", maxRoomSize);
-    output.put("roomCapacity", roomCapacity);
-    output.put("floorNumber", floorNumber);
-
-    // Variables for parsed filtering criteria
-    Set<CampusLocation> campusLocationCriteria;
-    Set<Boolean> isSuiteCriteria;
-    Set<Boolean> hasKitchenCriteria;
-    Set<BathroomType> bathroomTypeCriteria;
-    int minRoomSizeCriteria;
-    int maxRoomSizeCriteria;
-    Set<RoomCapacity> roomCapacityCriteria;
-    Set<Integer> floorNumberCriteria;
+    for (FilterQuery.Parameter parameter : FilterQuery.Parameter.values()) {
+      output.put(parameter.queryName(), query.value(parameter));
+    }
 
-    try {
-      // Validate and parse query parameters
-      campusLocationCriteria = this.validateCampusLocationString(campusLocation);
-      isSuiteCriteria = this.validateIsSuiteString(isSuite);
-      hasKitchenCriteria = this.validateHasKitchenString(hasKitchen);
-      bathroomTypeCriteria = this.validateBathroomTypeString(bathroomType);
-      minRoomSizeCriteria = this.validateMinRoomSizeString(minRoomSize);
-      maxRoomSizeCriteria = this.validateMaxRoomSizeString(maxRoomSize);
-      roomCapacityCriteria = this.validateRoomCapacityString(roomCapacity);
-      floorNumberCriteria = this.validateFloorNumberString(floorNumber);
-    } catch (Exception error) {
-      // Catch validation errors and return a structured error response
+    if (!query.isValid()) {
+      // Return a structured error response naming the invalid parameter
+      FilterQuery.QueryError error = query.error();
       output.put("result", "error_bad_request");
-      output.put("error_message", error.getMessage());
+      output.put("error_parameter", error.parameter().queryName());
+      output.put("error_message", error.message());
       return this.serialize(output);
     }
 
-    // Apply validated filtering criteria
-    FilteringCriteria filteringCriteria = new FilteringCriteria(
-        campusLocationCriteria, isSuiteCriteria, hasKitchenCriteria,
-        bathroomTypeCriteria, minRoomSizeCriteria, maxRoomSizeCriteria,
-        roomCapacityCriteria, floorNumberCriteria
-    );
-    Set<IDormRoom> filteredDormRoomSet = this.cache.getFilteredDormSet(filteringCriteria);
+    CriteriaKey criteriaKey = CriteriaKey.of(query.criteria());
+
+    // Return success response with filtered results. Only the echoed parameters are serialized
+    //   per request; the set is made of the pre-rendered room fragments.
+    if (accepts(request, ColumnarRoomFormat.MEDIA_TYPE)) {
+      this.writeColumnar(request, response.raw(), query, criteriaKey);
+      return "";
+    }
+    if (!query.isPaged() && accepts(request, NDJSON_MEDIA_TYPE)) {
+      if (this.streamPermits == null) {
+        this.streamNdjson(response.raw(), criteriaKey);
+        return "";
+      }
+      // A stream only waits on its client, so it trades its request permit for a stream permit
+      if (!this.streamPermits.tryAcquire()) {
+        response.status(503);
+        response.type("application/json");
+        return ConcurrencyLimitedRoute.OVERLOADED_RESPONSE;
+      }
+      ConcurrencyLimitedRoute.releasePermit(request);
+      try {
+        this.streamNdjson(response.raw(), criteriaKey);
+      } finally {
+        this.streamPermits.release();
+      }
+      return "";
+    }
 
-    // Return success response with filtered results
     output.put("result", "success");
-    output.put("filteredDormRoomSet", filteredDormRoomSet);
-    return this.serialize(output);
+    if (query.isPaged()) {
+      // A page skips the response cache: its size only depends on the limit
+      RoomOrder order = this.orderFor(criteriaKey);
+      RoomOrder.Page page = this.page(order, query, criteriaKey);
+      if (page.nextCursor() >= 0) {
+        output.put("nextCursor", query.nextCursor(page.nextCursor()));
+      }
+      String head = this.serialize(output);
+      byte[] prefix = (head.substring(0, head.length() - 1) + ",\"filteredDormRoomSet\":")
+          .getBytes(StandardCharsets.UTF_8);
+      ConcurrencyLimitedRoute.releasePermit(request);
+      this.streamPage(response.raw(), prefix, this.fragmentsFor(order.roomTable()), page.ids());
+      return "";
+    }
+    String head = this.serialize(output);
+    byte[] prefix = (head.substring(0, head.length() - 1) + ",\"filteredDormRoomSet\":")
+        .getBytes(StandardCharsets.UTF_8);
+
+    if (this.responseCache == null) {
+      RoomIdSet filteredDormRoomSet = this.cache.getFilteredDormSet(criteriaKey);
+      ConcurrencyLimitedRoute.releasePermit(request);
+      this.stream(response.raw(), prefix, filteredDormRoomSet);
+      return "";
+    }
+
+    ResponseCache.CachedBody body = this.responseCache.get(criteriaKey, () -> {
+      RoomIdSet filteredDormRoomSet = this.cache.getFilteredDormSet(criteriaKey);
+      return this.fragmentsFor(filteredDormRoomSet.roomTable()).toJson(filteredDormRoomSet);
+    });
+    boolean gzip = this.responseCache.gzipEnabled() && acceptsGzip(request);
+    byte[][] chunks = this.responseCache.assemble(prefix, body, SUFFIX, gzip);
+    // Only writing is left, so a slow client does not hold back the requests over the limit
+    ConcurrencyLimitedRoute.releasePermit(request);
+    this.write(response.raw(), chunks, gzip);
+    return "";
   }
 
   /**
-   * Converts a {@link Map} into a JSON string using the Moshi library.
+   * Returns the fragments of the rooms of a table, rendering them if this handler was not given
+   * fragments of that table.
    *
-   * @param dict the dictionary to convert
-   * @return a serialized JSON string
+   * @param roomTable the table of a result
+   * @return the fragments of the rooms of {@code roomTable}
    */
-  private String serialize(Map<String, Object> dict) {
-    Moshi moshi = new Moshi.Builder().build();
-    JsonAdapter<Map<String, Object>> jsonAdapter =
-        moshi.adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
-    return jsonAdapter.toJson(dict);
+  private RoomJsonFragments fragmentsFor(RoomTable roomTable) {
+    RoomJsonFragments current = this.fragments;
+    if (current == null || current.roomTable() != roomTable) {
+      current = new RoomJsonFragments(roomTable);
+      this.fragments = current;
+    }
+    return current;
   }
 
   /**
-   * Validates and parses the campusLocation parameter.
-   * If "all" is provided, returns all possible campus locations.
+   * Streams a response made of {@code prefix}, the fragments of the rooms of a result and the
+   * suffix straight to the servlet output stream, and commits it.
    *
-   * @param campusLocation the input string for campus locations
-   * @return a set of {@link CampusLocation} values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param raw the servlet response
+   * @param prefix the UTF-8 bytes before the filtered set
+   * @param result the filtered set
+   * @throws IOException if writing fails
    */
-  private Set<CampusLocation> validateCampusLocationString(String campusLocation) throws
-      IllegalArgumentException {
-    // Empty case
-    if (campusLocation == null || campusLocation.isEmpty()) {
-      throw new IllegalArgumentException("campusLocation parameter is missing or empty.");
-    }
-
-    // "All" case
-    if ("all".equalsIgnoreCase(campusLocation.trim())) {
-      return Set.of(CampusLocation.values());
-    }
-
-    // Every other possible input
-    Set<CampusLocation> campusLocations = new HashSet<>();
-    for (String location : campusLocation.split(",")) {
-      try {
-        campusLocations.add(CampusLocation.valueOf(location.trim()));
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException(
-            "Invalid value for campusLocation: " + location + ". Valid values are: "
-                + Set.of(CampusLocation.values()));
-      }
-    }
-    return campusLocations;
+  private void stream(HttpServletResponse raw, byte[] prefix, RoomIdSet result)
+      throws IOException {
+    RoomJsonFragments roomFragments = this.fragmentsFor(result.roomTable());
+    raw.setContentType("application/json;charset=utf-8");
+    raw.setContentLength(prefix.length + roomFragments.length(result) + SUFFIX.length);
+    OutputStream out = raw.getOutputStream();
+    out.write(prefix);
+    roomFragments.writeTo(out, result);
+    out.write(SUFFIX);
+    raw.flushBuffer();
   }
 
   /**
-   * Validates and parses the isSuite parameter.
-   * If "all" is provided, returns both true and false.
+   * Streams the rooms matching a key as newline delimited JSON, each room as soon as the cache or
+   * the index passes it on. The response is committed with the first room, so the client gets the
+   * first bytes without waiting for the whole result, and then sent in chunks.
    *
-   * @param isSuite the input string for suite criteria
-   * @return a set of boolean values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param raw the servlet response
+   * @param criteriaKey the key of the query
+   * @throws IOException if writing fails
+   * @throws ExecutionException if filtering the query threw an exception, which only happens if
+   *                            this handler was not given the room fragments
    */
-  private Set<Boolean> validateIsSuiteString(String isSuite) throws IllegalArgumentException {
-    // Empty case
-    if (isSuite == null || isSuite.isEmpty()) {
-      throw new IllegalArgumentException("isSuite parameter is missing or empty.");
-    }
-
-    // "All" case
-    if ("all".equalsIgnoreCase(isSuite.trim())) {
-      return Set.of(true, false);
-    }
-
-    // Every other case
-    Set<Boolean> suiteCriteria = new HashSet<>();
-    for (String suite : isSuite.split(",")) {
-      if (!"true".equalsIgnoreCase(suite.trim()) && !"false".equalsIgnoreCase(suite.trim())) {
-        throw new IllegalArgumentException(
-            "Invalid value for isSuite: " + suite + ". Valid values are: true, false.");
-      }
-      suiteCriteria.add(Boolean.parseBoolean(suite.trim()));
+  private void streamNdjson(HttpServletResponse raw, CriteriaKey criteriaKey)
+      throws IOException, ExecutionException {
+    RoomJsonFragments current = this.fragments;
+    RoomJsonFragments roomFragments = current != null ? current
+        : this.fragmentsFor(this.cache.getFilteredDormSet(criteriaKey).roomTable());
+    raw.setContentType(NDJSON_MEDIA_TYPE + ";charset=utf-8");
+    OutputStream out = raw.getOutputStream();
+    boolean[] committed = {false};
+    try {
+      this.cache.forEachMatch(criteriaKey, id -> {
+        try {
+          roomFragments.writeRoomTo(out, id);
+          out.write(NEWLINE);
+          if (!committed[0]) {
+            raw.flushBuffer();
+            committed[0] = true;
+          }
+        } catch (IOException e) {
+          // Stops the search, e.g. once the client has disconnected
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
-    return suiteCriteria;
+    raw.flushBuffer();
   }
 
   /**
-   * Validates and parses the hasKitchen parameter.
-   * If "all" is provided, returns both true and false.
+   * Writes the rooms of a query, or of its page, in the {@link ColumnarRoomFormat} and commits the
+   * response. The format is encoded from the compact rooms of the result and is much smaller than
+   * the JSON, so it is not kept in the response cache.
    *
-   * @param hasKitchen the input string for kitchen criteria
-   * @return a set of boolean values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param request the HTTP request, whose concurrency permit is released before writing
+   * @param raw the servlet response
+   * @param query the valid query
+   * @param criteriaKey the key of the query
+   * @throws IOException if writing fails
+   * @throws ExecutionException if filtering the query threw an exception
    */
-  private Set<Boolean> validateHasKitchenString(String hasKitchen) throws IllegalArgumentException {
-    if (hasKitchen == null || hasKitchen.isEmpty()) {
-      throw new IllegalArgumentException("hasKitchen parameter is missing or empty.");
-    }
-    if ("all".equalsIgnoreCase(hasKitchen.trim())) {
-      return Set.of(true, false);
-    }
-    Set<Boolean> kitchenCriteria = new HashSet<>();
-    for (String kitchen : hasKitchen.split(",")) {
-      if (!"true".equalsIgnoreCase(kitchen.trim()) && !"false".equalsIgnoreCase(kitchen.trim())) {
-        throw new IllegalArgumentException(
-            "Invalid value for hasKitchen: " + kitchen + ". Valid values are: true, false.");
+  private void writeColumnar(Request request, HttpServletResponse raw, FilterQuery query,
+      CriteriaKey criteriaKey) throws IOException, ExecutionException {
+    byte[] body;
+    if (query.isPaged()) {
+      RoomOrder order = this.orderFor(criteriaKey);
+      RoomOrder.Page page = this.page(order, query, criteriaKey);
+      if (page.nextCursor() >= 0) {
+        raw.setHeader(NEXT_CURSOR_HEADER, query.nextCursor(page.nextCursor()));
       }
-      kitchenCriteria.add(Boolean.parseBoolean(kitchen.trim()));
+      body = ColumnarRoomFormat.encode(order.roomTable(), page.ids());
+    } else {
+      body = ColumnarRoomFormat.encode(this.cache.getFilteredDormSet(criteriaKey));
     }
-    return kitchenCriteria;
+    ConcurrencyLimitedRoute.releasePermit(request);
+    raw.setContentType(ColumnarRoomFormat.MEDIA_TYPE);
+    raw.setContentLength(body.length);
+    raw.getOutputStream().write(body);
+    raw.flushBuffer();
   }
 
   /**
-   * Validates and parses the bathroomType parameter.
-   * If "all" is provided, returns all possible bathroom types.
+   * Returns the presorted rooms the pages are read from, sorting them if this handler was not
+   * given an order. The rooms are those of the fragments, or else those of the filter, which are
+   * only known from one of its results.
    *
-   * @param bathroomType the input string for bathroom types
-   * @return a set of {@link BathroomType} values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param criteriaKey the key of the current query
+   * @return the order of the rooms of the filter
+   * @throws ExecutionException if filtering the current query threw an exception
    */
-  private Set<BathroomType> validateBathroomTypeString(String bathroomType) throws
-      IllegalArgumentException {
-    // Empty case
-    if (bathroomType == null || bathroomType.isEmpty()) {
-      throw new IllegalArgumentException("bathroomType parameter is missing or empty.");
-    }
-
-    // "All" case
-    if ("all".equalsIgnoreCase(bathroomType.trim())) {
-      return Set.of(BathroomType.values());
+  private RoomOrder orderFor(CriteriaKey criteriaKey) throws ExecutionException {
+    RoomOrder current = this.roomOrder;
+    if (current == null) {
+      RoomJsonFragments roomFragments = this.fragments;
+      current = new RoomOrder(roomFragments != null ? roomFragments.roomTable()
+          : this.cache.getFilteredDormSet(criteriaKey).roomTable());
+      this.roomOrder = current;
     }
+    return current;
+  }
 
-    // Every other case
-    Set<BathroomType> bathroomTypes = new HashSet<>();
-    for (String type : bathroomType.split(",")) {
-      try {
-        bathroomTypes.add(BathroomType.valueOf(type.trim()));
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException(
-            "Invalid value for bathroomType: " + type + ". Valid values are: "
-                + Set.of(BathroomType.values()));
+  /**
+   * Returns the page a paged query asks for. The presorted rooms are walked until the page is
+   * full, unless the query is selective enough that its cached filtered set is cheaper to read.
+   *
+   * @param order the presorted rooms
+   * @param query the valid paged query
+   * @param criteriaKey the key of the query
+   * @return the page of the query
+   * @throws ExecutionException if filtering the query threw an exception
+   */
+  private RoomOrder.Page page(RoomOrder order, FilterQuery query, CriteriaKey criteriaKey)
+      throws ExecutionException {
+    if (order.prefersMatches(query.criteria(), query.limit())) {
+      RoomIdSet matches = this.cache.getFilteredDormSet(criteriaKey);
+      if (matches.roomTable() == order.roomTable()) {
+        return order.page(query.sortKey(), query.descending(), matches, query.cursor(),
+            query.limit());
       }
     }
-    return bathroomTypes;
+    return order.page(query.sortKey(), query.descending(), query.criteria(), query.cursor(),
+        query.limit());
   }
 
   /**
-   * Validates and parses the minRoomSize parameter.
-   * If "all" is provided, returns 0 as the minRoomSize.
+   * Streams a response made of {@code prefix}, the fragments of the rooms of a page in order and
+   * the suffix straight to the servlet output stream, and commits it.
    *
-   * @param minRoomSize the input string for minimum room size
-   * @return the parsed integer value
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param raw the servlet response
+   * @param prefix the UTF-8 bytes before the rooms
+   * @param roomFragments the fragments of the rooms
+   * @param ids the ids of the rooms of the page, in order
+   * @throws IOException if writing fails
    */
-  private int validateMinRoomSizeString(String minRoomSize) throws IllegalArgumentException {
-    // Empty case
-    if (minRoomSize == null || minRoomSize.isEmpty()) {
-      throw new IllegalArgumentException("minRoomSize parameter is missing or empty.");
-    }
-
-    // "All" case
-    if ("all".equalsIgnoreCase(minRoomSize.trim())) {
-      return 0;
-    }
-
-    // Every other case
-    try {
-      return Integer.parseInt(minRoomSize.trim());
-    } catch (NumberFormatException e) {
-      throw new IllegalArgumentException("Invalid value for minRoomSize: " + minRoomSize
-          + ". It must be an integer.");
-    }
+  private void streamPage(HttpServletResponse raw, byte[] prefix, RoomJsonFragments roomFragments,
+      int[] ids) throws IOException {
+    raw.setContentType("application/json;charset=utf-8");
+    raw.setContentLength(prefix.length + roomFragments.length(ids) + SUFFIX.length);
+    OutputStream out = raw.getOutputStream();
+    out.write(prefix);
+    roomFragments.writeTo(out, ids);
+    out.write(SUFFIX);
+    raw.flushBuffer();
   }
 
   /**
-   * Validates and parses the maxRoomSize parameter.
-   * If "all" is provided, returns 99999.
+   * Writes a response straight to the servlet output stream, chunk by chunk, and commits it.
    *
-   * @param maxRoomSize the input string for maximum room size
-   * @return the parsed integer value
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param raw the servlet response
+   * @param chunks the bytes of the body, in order
+   * @param gzip whether the chunks are gzipped
+   * @throws IOException if writing fails
    */
-  private int validateMaxRoomSizeString(String maxRoomSize) throws IllegalArgumentException {
-    // Empty case
-    if (maxRoomSize == null || maxRoomSize.isEmpty()) {
-      throw new IllegalArgumentException("maxRoomSize parameter is missing or empty.");
+  private void write(HttpServletResponse raw, byte[][] chunks, boolean gzip)
+      throws IOException {
+    int length = 0;
+    for (byte[] chunk : chunks) {
+      length += chunk.length;
     }
-
-    // "All case"
-    if ("all".equalsIgnoreCase(maxRoomSize.trim())) {
-      return 99999;
+    raw.setContentType("application/json;charset=utf-8");
+    if (gzip) {
+      raw.setHeader("Content-Encoding", "gzip");
     }
-
-    // Every other case
-    try {
-      return Integer.parseInt(maxRoomSize.trim());
-    } catch (NumberFormatException e) {
-      throw new IllegalArgumentException("Invalid value for maxRoomSize: " + maxRoomSize
-          + ". It must be an integer.");
+    raw.setContentLength(length);
+    OutputStream out = raw.getOutputStream();
+    for (byte[] chunk : chunks) {
+      out.write(chunk);
     }
+    raw.flushBuffer();
   }
 
   /**
-   * Validates and parses the roomCapacity parameter.
-   * If "all" is provided, returns all possible room capacities.
+   * Returns whether the client accepts a gzip encoded response.
    *
-   * @param roomCapacity the input string for room capacities
-   * @return a set of {@link RoomCapacity} values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param request the HTTP request
+   * @return {@code true} if the Accept-Encoding header lists gzip
    */
-  private Set<RoomCapacity> validateRoomCapacityString(String roomCapacity) throws
-      IllegalArgumentException{
-    // Empty case
-    if (roomCapacity == null || roomCapacity.isEmpty()) {
-      throw new IllegalArgumentException("roomCapacity parameter is missing or empty.");
-    }
+  private static boolean acceptsGzip(Request request) {
+    String acceptEncoding = request.headers("Accept-Encoding");
+    return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+  }
 
-    // "All" case
-    if ("all".equalsIgnoreCase(roomCapacity.trim())) {
-      return Set.of(RoomCapacity.values());
+  /**
+   * Returns whether the client asks for a media type other than JSON. Wildcard ranges do not
+   * count, since JSON satisfies them.
+   *
+   * @param request the HTTP request
+   * @param mediaType the media type
+   * @return {@code true} if the Accept header lists {@code mediaType} with a quality above 0
+   */
+  private static boolean accepts(Request request, String mediaType) {
+    String accept = request.headers("Accept");
+    if (accept == null) {
+      return false;
     }
-
-    // Every other case
-    Set<RoomCapacity> capacities = new HashSet<>();
-    for (String capacity : roomCapacity.split(",")) {
-      try {
-        capacities.add(RoomCapacity.valueOf(capacity.trim()));
-      } catch (IllegalArgumentException e) {
-        throw new IllegalArgumentException(
-            "Invalid value for roomCapacity: " + capacity + ". Valid values are: "
-                + Set.of(RoomCapacity.values()));
+    for (String mediaRange : accept.split(",")) {
+      String[] parts = mediaRange.split(";");
+      if (parts[0].trim().equalsIgnoreCase(mediaType) && qualityOf(parts) > 0) {
+        return true;
       }
     }
-    return capacities;
+    return false;
   }
 
   /**
-   * Validates and parses the floorNumber parameter.
-   * If "all" is provided, returns all possible floor numbers.
+   * Returns the quality of a media range, i.e. the value of its {@code q} parameter.
    *
-   * @param floorNumber the input string for floor numbers
-   * @return a set of integer values
-   * @throws IllegalArgumentException if the input is invalid or missing
+   * @param parts the media range split at its semicolons, the type first
+   * @return the quality, 1 if the range has none, or 0 if it cannot be parsed
    */
-  private Set<Integer> validateFloorNumberString(String floorNumber) throws
-      IllegalArgumentException{
-    // Empty case
-    if (floorNumber == null || floorNumber.isEmpty()) {
-      throw new IllegalArgumentException("floorNumber parameter is missing or empty.");
-    }
-
-    // "All case
-    if ("all".equalsIgnoreCase(floorNumber.trim())) {
-      // Assume all floor numbers up to a reasonable limit (e.g., 100)
-      Set<Integer> allFloors = new HashSet<>();
-      for (int i = 1; i <= 10; i++) {
-        allFloors.add(i);
+  private static double qualityOf(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      String parameter = parts[i].trim();
+      if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+        try {
+          return Double.parseDouble(parameter.substring(2).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
       }
-      return allFloors;
     }
+    return 1;
+  }
 
-    // Every other case
-    Set<Integer> floors = new HashSet<>();
-    for (String floor : floorNumber.split(",")) {
-      try {
-        floors.add(Integer.parseInt(floor.trim()));
-      } catch (NumberFormatException e) {
-        throw new IllegalArgumentException(
-            "Invalid value for floorNumber: " + floor + ". It must be an integer.");
-      }
-    }
-    return floors;
+  /**
+   * Converts a {@link Map} into a JSON string using the Moshi library.
+   *
+   * @param dict the dictionary to convert
+   * @return a serialized JSON string
+   */
+  private String serialize(Map<String, Object> dict) {
+    return MAP_ADAPTER.toJson(dict);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,300 @@
+package Server;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import Filtering.AdmissionPolicy;
+import Filtering.CriteriaKey;
+import Filtering.FilteringCache;
+import Filtering.FrequencySketch;
+
+/**
+ * The {@code ResponseCache} class caches the serialized JSON of filtering results, keyed by the
+ * {@link CriteriaKey} of the criteria, so a repeated query neither filters nor serializes a room.
+ *
+ * <p>Only the result itself is cached. The rest of a response echoes the raw query parameters,
+ * which differ between equivalent queries, so it is serialized per request and written around the
+ * cached bytes, see {@link #assemble}.</p>
+ *
+ * <p>If enabled, every result is also stored deflated, so gzip responses are assembled without
+ * compressing the result again: the per request prefix, the cached result and the suffix are each
+ * deflated on their own, ending on a byte boundary, which makes their concatenation one valid
+ * deflate stream of a single gzip member.</p>
+ *
+ * <p>Like the {@link FilteringCache} in front of which it sits, what is stored is decided by an
+ * {@link AdmissionPolicy}. Under {@link AdmissionPolicy#TINY_LFU}, once the cached bodies fill the
+ * cache, a body is only stored if its criteria were requested before according to a
+ * {@link FrequencySketch}, so a burst of one-off queries is served without evicting the bodies of
+ * repeated ones.</p>
+ */
+public class ResponseCache {
+
+  /** The default maximum total size of the cached bodies, in bytes. */
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024 * 1024;
+
+  /** The gzip header: magic number, deflate, no flags, no time, no extra flags, unknown OS. */
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  /** The cached bodies, keyed by the criteria they are the result of. */
+  private final Cache<CriteriaKey, CachedBody> cache;
+
+  /** Whether the bodies are also stored deflated. */
+  private final boolean gzip;
+
+  /** The maximum total size of the cached bodies, in bytes. */
+  private final long maximumWeight;
+
+  /** The recent frequency of every key, or {@code null} unless the policy is TINY_LFU. */
+  private final FrequencySketch sketch;
+
+  /** The total size of the cached bodies, in bytes, only tracked under TINY_LFU. */
+  private final AtomicLong weightedSize = new AtomicLong();
+
+  /** The number of bodies that were serialized but not stored by the admission policy. */
+  private final LongAdder rejectionCount = new LongAdder();
+
+  /**
+   * The serialized result of one query.
+   *
+   * @param json the UTF-8 JSON of the result
+   * @param deflated the raw deflate blocks of {@code json}, ending on a byte boundary without a
+   *                 final block, or {@code null} if gzip is disabled
+   */
+  record CachedBody(byte[] json, byte[] deflated) {}
+
+  /**
+   * Constructs a new {@code ResponseCache} that stores every body.
+   *
+   * @param maximumWeight the maximum total size of the cached bodies, in bytes
+   * @param expireAfterAccess the time after which a body that has not been read is dropped
+   * @param gzip whether to also store every body deflated, for clients accepting gzip
+   * @throws NullPointerException if {@code expireAfterAccess} is null
+   * @throws IllegalArgumentException if {@code maximumWeight} or {@code expireAfterAccess} is
+   *                                  negative
+   */
+  public ResponseCache(long maximumWeight, Duration expireAfterAccess, boolean gzip) {
+    this(maximumWeight, expireAfterAccess, gzip, AdmissionPolicy.LRU);
+  }
+
+  /**
+   * Constructs a new {@code ResponseCache}.
+   *
+   * @param maximumWeight the maximum total size of the cached bodies, in bytes
+   * @param expireAfterAccess the time after which a body that has not been read is dropped
+   * @param gzip whether to also store every body deflated, for clients accepting gzip
+   * @param admissionPolicy the policy deciding which bodies are stored
+   * @throws NullPointerException if {@code expireAfterAccess} or {@code admissionPolicy} is null
+   * @throws IllegalArgumentException if {@code maximumWeight} or {@code expireAfterAccess} is
+   *                                  negative
+   */
+  public ResponseCache(long maximumWeight, Duration expireAfterAccess, boolean gzip,
+      AdmissionPolicy admissionPolicy) {
+    if (expireAfterAccess == null) {
+      throw new NullPointerException("The cache expiry cannot be null.");
+    }
+    if (admissionPolicy == null) {
+      throw new NullPointerException("The admission policy cannot be null.");
+    }
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("The maximum cache weight cannot be negative: " + maximumWeight);
+    }
+    if (expireAfterAccess.isNegative()) {
+      throw new IllegalArgumentException("The cache expiry cannot be negative: " + expireAfterAccess);
+    }
+    this.gzip = gzip;
+    this.maximumWeight = maximumWeight;
+    this.sketch = admissionPolicy == AdmissionPolicy.TINY_LFU
+        ? new FrequencySketch(FrequencySketch.DEFAULT_EXPECTED_KEYS) : null;
+    // A single segment evicts by recency across the whole cache, and lets the admission policy
+    //   tell when the cache as a whole is full
+    this.cache = CacheBuilder.newBuilder()
+        .concurrencyLevel(1)
+        .maximumWeight(maximumWeight)
+        .weigher((CriteriaKey key, CachedBody body) -> weight(body))
+        .expireAfterAccess(expireAfterAccess)
+        .recordStats()
+        .removalListener((RemovalNotification<CriteriaKey, CachedBody> notification) -> {
+          if (this.sketch != null) {
+            this.weightedSize.addAndGet(-weight(notification.getValue()));
+          }
+        })
+        .build();
+  }
+
+  /**
+   * Returns the number of bytes a body takes up in the cache.
+   *
+   * @param body a cached body
+   * @return the size of its JSON and of its deflated JSON
+   */
+  private static int weight(CachedBody body) {
+    return body.json().length + (body.deflated() == null ? 0 : body.deflated().length);
+  }
+
+  /**
+   * Returns the cached body of a key, serializing it with {@code serializer} on a miss. The
+   * serialized body is stored if the {@link AdmissionPolicy} admits it, and returned either way.
+   *
+   * @param criteriaKey the key of the criteria
+   * @param serializer produces the UTF-8 JSON of the result on a miss
+   * @return the cached or freshly serialized body
+   * @throws ExecutionException if the serializer threw a checked exception
+   */
+  CachedBody get(CriteriaKey criteriaKey, Callable<byte[]> serializer) throws ExecutionException {
+    if (this.sketch == null) {
+      return this.cache.get(criteriaKey, () -> this.serialize(serializer));
+    }
+
+    this.sketch.increment(criteriaKey);
+    CachedBody cached = this.cache.getIfPresent(criteriaKey);
+    if (cached != null) {
+      return cached;
+    }
+    CachedBody body;
+    try {
+      body = this.serialize(serializer);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutionException(e);
+    }
+    if (this.admits(criteriaKey, body)) {
+      if (this.cache.asMap().putIfAbsent(criteriaKey, body) == null) {
+        this.weightedSize.addAndGet(weight(body));
+      }
+    } else {
+      // Serve the one-off query without storing it, so it cannot evict a hot body
+      this.rejectionCount.increment();
+    }
+    return body;
+  }
+
+  /**
+   * Serializes a result and, if gzip is enabled, deflates it.
+   *
+   * @param serializer produces the UTF-8 JSON of the result
+   * @return the body of the result
+   * @throws Exception if the serializer threw
+   */
+  private CachedBody serialize(Callable<byte[]> serializer) throws Exception {
+    byte[] json = serializer.call();
+    return new CachedBody(json, this.gzip ? deflate(json, false) : null);
+  }
+
+  /**
+   * Returns whether a freshly serialized body may be stored under {@link AdmissionPolicy#TINY_LFU}:
+   * while the cached bodies and this one fit in the cache, or afterwards if the key has been
+   * requested recently.
+   *
+   * @param criteriaKey the key of the current request, already counted by the sketch
+   * @param body the serialized body
+   * @return {@code true} if the body may be stored
+   */
+  private boolean admits(CriteriaKey criteriaKey, CachedBody body) {
+    boolean full = this.weightedSize.get() + weight(body) > this.maximumWeight;
+    return !full || this.sketch.frequency(criteriaKey) >= AdmissionPolicy.ADMISSION_FREQUENCY;
+  }
+
+  /**
+   * Returns the chunks of a response made of {@code prefix}, the cached body and {@code suffix},
+   * gzipped if {@code gzip} is set and bodies are stored deflated. The chunks are meant to be
+   * written one after the other, so the cached bytes are never copied into a larger array.
+   *
+   * @param prefix the UTF-8 bytes before the body
+   * @param body the cached body
+   * @param suffix the UTF-8 bytes after the body
+   * @param gzip whether the client accepts a gzip response
+   * @return the chunks of the response, in order
+   */
+  byte[][] assemble(byte[] prefix, CachedBody body, byte[] suffix, boolean gzip) {
+    if (!gzip || body.deflated() == null) {
+      return new byte[][] {prefix, body.json(), suffix};
+    }
+
+    // The gzip trailer holds the CRC and length of the whole payload. Checksumming the cached
+    //   bytes runs at memory speed, unlike compressing them again
+    CRC32 crc = new CRC32();
+    crc.update(prefix);
+    crc.update(body.json());
+    crc.update(suffix);
+    long crcValue = crc.getValue();
+    int payloadLength = prefix.length + body.json().length + suffix.length;
+    byte[] trailer = {
+        (byte) crcValue, (byte) (crcValue >>> 8), (byte) (crcValue >>> 16), (byte) (crcValue >>> 24),
+        (byte) payloadLength, (byte) (payloadLength >>> 8), (byte) (payloadLength >>> 16),
+        (byte) (payloadLength >>> 24)
+    };
+    return new byte[][] {
+        GZIP_HEADER, deflate(prefix, false), body.deflated(), deflate(suffix, true), trailer
+    };
+  }
+
+  /**
+   * Returns whether bodies are stored deflated, i.e. whether gzip responses can be written.
+   *
+   * @return {@code true} if gzip is enabled
+   */
+  boolean gzipEnabled() {
+    return this.gzip;
+  }
+
+  /**
+   * Returns a snapshot of the hit, miss and eviction counters of this cache.
+   *
+   * @return the statistics recorded since this cache was created
+   */
+  public CacheStats stats() {
+    return this.cache.stats();
+  }
+
+  /**
+   * Returns the number of bodies that were serialized but not stored, because the
+   * {@link AdmissionPolicy} rejected them.
+   *
+   * @return the number of rejected bodies
+   */
+  public long rejectionCount() {
+    return this.rejectionCount.sum();
+  }
+
+  /**
+   * Compresses bytes into raw deflate blocks with a fresh deflater, so the blocks never refer back
+   * to data compressed before them.
+   *
+   * @param bytes the bytes to compress
+   * @param last whether these are the last bytes of the stream, ending it with a final block.
+   *             Otherwise the blocks end with a sync flush on a byte boundary.
+   * @return the deflate blocks
+   */
+  private static byte[] deflate(byte[] bytes, boolean last) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      deflater.setInput(bytes);
+      if (last) {
+        deflater.finish();
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+      byte[] buffer = new byte[8192];
+      while (true) {
+        int count = last ? deflater.deflate(buffer)
+            : deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        out.write(buffer, 0, count);
+        if (last ? deflater.finished() : count < buffer.length) {
+          break;
+        }
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+}
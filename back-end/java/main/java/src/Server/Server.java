@@ -1,15 +1,19 @@
 package Server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
 import Parsing.RoomParser;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 import spark.Spark;
 import DormRoom.IDormRoom;
+import Filtering.AdmissionPolicy;
 import Filtering.FilteringCache;
 import Filtering.IDormFilter;
-import Filtering.Node_KDTree.KDTreeWrapper;
+import Filtering.RoomOrder;
+import Filtering.RoomTable;
 
 /**
  * The {@code Server} class represents the main entry point for the backend of the dorm room filtering system.
@@ -17,46 +21,125 @@ import Filtering.Node_KDTree.KDTreeWrapper;
  * to handle HTTP requests and responses, and it integrates with the filtering backend for dorm room searches.
  */
 public class Server {
+
+  /** The default number of requests handled at once. */
+  public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 1024;
+
+  /** The default number of newline delimited responses streamed at once. */
+  public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 256;
+
+  /** The default time a request over the concurrency limit waits, in milliseconds. */
+  public static final long DEFAULT_CONCURRENCY_WAIT_MILLIS = 1000;
+
   /**
    * Constructs and starts a new {@code Server} instance on the specified port, using the given list
-   * of dorm rooms to initialize the filtering backend.
+   * of dorm rooms to initialize a {@link FilterEngine#KD_TREE} filtering backend.
    *
    * @param dormRoomList the list of {@link IDormRoom} instances used to initialize the filtering system
    */
   public Server(List<IDormRoom> dormRoomList) {
+    this(dormRoomList, FilterEngine.KD_TREE);
+  }
+
+  /**
+   * Constructs and starts a new {@code Server} instance on the specified port, using the given list
+   * of dorm rooms to initialize the filtering backend.
+   *
+   * @param dormRoomList the list of {@link IDormRoom} instances used to initialize the filtering system
+   * @param filterEngine the {@link FilterEngine} used to filter the dorm rooms
+   */
+  public Server(List<IDormRoom> dormRoomList, FilterEngine filterEngine) {
     int portNumber = 3233;
     // Set the server port
     Spark.port(portNumber);
 
-    // Configure CORS headers
-    after(
+    // Choose the threads handling the requests with the server.threadingMode property. The
+    //   requests handled at once are limited by server.maxConcurrentRequests, and a request over
+    //   the limit waits up to server.concurrencyWaitMillis before it is rejected. A newline
+    //   delimited response holds its request's permit until it starts streaming, then one of the
+    //   server.maxConcurrentStreams stream permits until its client has read it, and is rejected
+    //   at once if none is free
+    ThreadingMode threadingMode = ThreadingMode.valueOf(System.getProperty(
+        "server.threadingMode", ThreadingMode.PLATFORM.name()).trim().toUpperCase());
+    threadingMode.install();
+    Semaphore requestPermits = new Semaphore(Integer.getInteger("server.maxConcurrentRequests",
+        DEFAULT_MAX_CONCURRENT_REQUESTS));
+    long concurrencyWaitMillis = Long.getLong("server.concurrencyWaitMillis",
+        DEFAULT_CONCURRENCY_WAIT_MILLIS);
+    Semaphore streamPermits = new Semaphore(Integer.getInteger("server.maxConcurrentStreams",
+        DEFAULT_MAX_CONCURRENT_STREAMS));
+
+    // Configure CORS headers. They are set before the handlers run, since the filtering handler
+    //   writes and commits its response itself
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "*");
           response.header("Access-Control-Allow-Methods", "*");
+          response.header("Access-Control-Allow-Headers", "*");
+          // Lets the front-end read the next cursor of a columnar page
+          response.header("Access-Control-Expose-Headers", FilteringHandler.NEXT_CURSOR_HEADER);
         });
 
-    // Initialize the filtering backend with a KDTreeWrapper
-    IDormFilter filter = new KDTreeWrapper(dormRoomList);
-    FilteringCache cache = new FilteringCache(filter);
+    // Initialize the filtering backend with the chosen engine. The cache can be tuned with the
+    //   filteringCache.maximumWeightBytes, filteringCache.expireAfterAccessSeconds and
+    //   filteringCache.admissionPolicy properties
+    RoomTable roomTable = new RoomTable(dormRoomList);
+    IDormFilter filter = filterEngine.create(roomTable);
+    RoomJsonFragments fragments = new RoomJsonFragments(roomTable);
+    RoomOrder roomOrder = new RoomOrder(roomTable);
+    long maximumWeight = Long.getLong("filteringCache.maximumWeightBytes",
+        FilteringCache.DEFAULT_MAXIMUM_WEIGHT);
+    Duration expireAfterAccess = Duration.ofSeconds(Long.getLong("filteringCache.expireAfterAccessSeconds",
+        FilteringCache.DEFAULT_EXPIRE_AFTER_ACCESS.toSeconds()));
+    AdmissionPolicy admissionPolicy = AdmissionPolicy.valueOf(System.getProperty(
+        "filteringCache.admissionPolicy", AdmissionPolicy.TINY_LFU.name()).trim().toUpperCase());
+    FilteringCache cache = new FilteringCache(filter, maximumWeight, expireAfterAccess,
+        admissionPolicy);
 
-    // Set up endpoint handlers
-    Spark.get("/filter", new FilteringHandler(cache));
+    // Set up endpoint handlers. Without the response cache, every result is streamed from the
+    //   pre-rendered room fragments
+    ResponseCache responseCache = null;
+    if (Boolean.parseBoolean(System.getProperty("responseCache.enabled", "true"))) {
+      responseCache = new ResponseCache(
+          Long.getLong("responseCache.maximumWeightBytes", ResponseCache.DEFAULT_MAXIMUM_WEIGHT),
+          expireAfterAccess, Boolean.parseBoolean(System.getProperty("responseCache.gzip", "true")),
+          admissionPolicy);
+    }
+    Spark.get("/filter", new ConcurrencyLimitedRoute(
+        new FilteringHandler(cache, responseCache, fragments, roomOrder, streamPermits),
+        requestPermits, concurrencyWaitMillis));
+    Spark.post("/filter/batch", new ConcurrencyLimitedRoute(
+        new BatchFilteringHandler(cache, fragments), requestPermits, concurrencyWaitMillis));
+    // Browsers send a preflight request before posting a JSON batch; the CORS headers answer it
+    Spark.options("/filter/batch", (request, response) -> "");
+    Spark.get("/facets", new ConcurrencyLimitedRoute(
+        new FacetsHandler(cache), requestPermits, concurrencyWaitMillis));
+    Spark.get("/cache/stats", new ConcurrencyLimitedRoute(
+        new CacheStatsHandler(cache, responseCache), requestPermits, concurrencyWaitMillis));
 
     // Start the server and wait for initialization
     Spark.init();
     Spark.awaitInitialization();
 
     // Log the server start message
-    System.out.println("Server started at http://localhost:" + portNumber);
+    System.out.println("Server started at http://localhost:" + portNumber + " with "
+        + threadingMode.name().toLowerCase() + " threads");
   }
 
   /**
    * The main method for starting the server. This method creates a default server instance with
    * no dorm rooms and runs it.
    *
-   * @param args the command-line arguments (not used)
+   * @param args the command-line arguments. The optional first argument is the name of the
+   *             {@link FilterEngine} to use, e.g. {@code FLAT_KD_TREE}. Defaults to
+   *             {@link FilterEngine#KD_TREE}.
    */
   public static void main(String[] args) {
+    FilterEngine filterEngine = FilterEngine.KD_TREE;
+    if (args.length > 0) {
+      filterEngine = FilterEngine.valueOf(args[0].trim().toUpperCase());
+    }
+
     // Parse the dorm list
     try {
       // Parse the data when the server is initialized
@@ -64,7 +147,7 @@ public class Server {
       List<IDormRoom> dormRoomList = parser.getRooms();
 
       // Instantiate and start the server
-      Server server = new Server(dormRoomList);
+      Server server = new Server(dormRoomList, filterEngine);
       System.out.println("Server has been activated");
     } catch (IOException ex) {
       System.out.println("Error parsing the data. " + ex.getMessage());
@@ -0,0 +1,31 @@
+package Server;
+
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+/**
+ * An enum of the ways the {@link Server} can run the handling of requests.
+ */
+public enum ThreadingMode {
+  /**
+   * Uses Spark's default Jetty pool of at most 200 platform threads. A request holds its thread
+   * for as long as it takes, including while a slow client reads the response.
+   */
+  PLATFORM,
+  /**
+   * Uses a {@link VirtualThreadPool}, which handles every request on its own virtual thread.
+   */
+  VIRTUAL;
+
+  /**
+   * Makes Spark start its embedded Jetty server with the thread pool of this mode. It has to be
+   * called before the server is initialized.
+   */
+  public void install() {
+    EmbeddedJettyFactory factory = new EmbeddedJettyFactory();
+    if (this == VIRTUAL) {
+      factory.withThreadPool(new VirtualThreadPool());
+    }
+    EmbeddedServers.add(EmbeddedServers.defaultIdentifier(), factory);
+  }
+}
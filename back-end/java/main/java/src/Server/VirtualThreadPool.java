@@ -0,0 +1,148 @@
+package Server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * The {@code VirtualThreadPool} class is a Jetty {@link ThreadPool} that handles every connection
+ * on a new virtual thread instead of a bounded set of platform threads.
+ *
+ * <p>A request blocked on a slow client, e.g. while its response is written, parks its virtual
+ * thread and frees the carrier thread for other requests, so slow clients cannot exhaust the pool.
+ * The number of requests handled at once is bounded by a {@link ConcurrencyLimitedRoute} instead
+ * of the size of the pool.</p>
+ *
+ * <p>Only the tasks submitted by the threads of this pool run on virtual threads. The others are
+ * the acceptor and selector loops that Jetty starts along with its connectors: they run for as long
+ * as the server and block in native calls, which would pin the carrier threads of the virtual
+ * threads, so each of them gets a platform thread. The connections they accept and select are
+ * then handled on virtual threads.</p>
+ *
+ * <p>Jetty starts the pool along with the server. A stopped pool can be started again, which
+ * creates a new executor.</p>
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+  /** How long stopping the pool waits for the running tasks to finish. */
+  private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+  /** Creates the named virtual threads running the tasks of the connections. */
+  private final ThreadFactory virtualThreadFactory =
+      Thread.ofVirtual().name("jetty-virtual-", 0).factory();
+
+  /** Creates the named platform threads running the acceptor and selector loops. */
+  private final ThreadFactory platformThreadFactory =
+      Thread.ofPlatform().name("jetty-platform-", 0).factory();
+
+  /** The pool whose task the current thread runs, if any. */
+  private static final ThreadLocal<VirtualThreadPool> CURRENT_POOL = new ThreadLocal<>();
+
+  /** The number of tasks currently running. */
+  private final AtomicInteger runningTasks = new AtomicInteger();
+
+  /** Starts one virtual thread per task, or {@code null} while the pool is stopped. */
+  private volatile ExecutorService virtualExecutor;
+
+  /** Starts one platform thread per loop, or {@code null} while the pool is stopped. */
+  private volatile ExecutorService platformExecutor;
+
+  @Override
+  protected void doStart() throws Exception {
+    this.virtualExecutor = Executors.newThreadPerTaskExecutor(this.virtualThreadFactory);
+    this.platformExecutor = Executors.newThreadPerTaskExecutor(this.platformThreadFactory);
+    super.doStart();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+    ExecutorService virtualStopped = this.virtualExecutor;
+    ExecutorService platformStopped = this.platformExecutor;
+    this.virtualExecutor = null;
+    this.platformExecutor = null;
+    for (ExecutorService stopped : new ExecutorService[] {virtualStopped, platformStopped}) {
+      if (stopped != null) {
+        stopped.shutdown();
+        if (!stopped.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          stopped.shutdownNow();
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs the task on a new virtual thread if a thread of this pool submitted it, and on a new
+   * platform thread otherwise.
+   *
+   * @param task the task to run
+   * @throws RejectedExecutionException if the pool is not started
+   */
+  @Override
+  public void execute(Runnable task) {
+    ExecutorService current = CURRENT_POOL.get() == this ? this.virtualExecutor
+        : this.platformExecutor;
+    if (current == null) {
+      throw new RejectedExecutionException("The virtual thread pool is not started.");
+    }
+    current.execute(() -> {
+      CURRENT_POOL.set(this);
+      this.runningTasks.incrementAndGet();
+      try {
+        task.run();
+      } finally {
+        this.runningTasks.decrementAndGet();
+        CURRENT_POOL.remove();
+      }
+    });
+  }
+
+  /**
+   * Blocks until the pool is stopped and every task has finished.
+   *
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  @Override
+  public void join() throws InterruptedException {
+    for (ExecutorService current : new ExecutorService[] {this.virtualExecutor, this.platformExecutor}) {
+      if (current != null) {
+        current.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of threads currently running a task.
+   *
+   * @return the number of running tasks
+   */
+  @Override
+  public int getThreads() {
+    return this.runningTasks.get();
+  }
+
+  /**
+   * Returns 0, since a virtual thread ends with its task rather than waiting idle for the next.
+   *
+   * @return 0
+   */
+  @Override
+  public int getIdleThreads() {
+    return 0;
+  }
+
+  /**
+   * Returns {@code false}, since a new thread can always be started.
+   *
+   * @return {@code false}
+   */
+  @Override
+  public boolean isLowOnThreads() {
+    return false;
+  }
+}
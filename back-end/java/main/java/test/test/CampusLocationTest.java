@@ -0,0 +1,35 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class CampusLocationTest {
+
+  @Test
+  public void testBuildingsArePrecomputedOncePerLocation() {
+    for (CampusLocation campusLocation : CampusLocation.values()) {
+      Set<DormBuilding> buildings = campusLocation.dormBuildingsInCampusLocation();
+      assertSame(buildings, campusLocation.dormBuildingsInCampusLocation());
+      assertFalse(buildings.isEmpty());
+      assertThrows(UnsupportedOperationException.class,
+          () -> buildings.add(DormBuilding.of(DormBuildingName.BARBOUR_HALL)));
+    }
+  }
+
+  @Test
+  public void testEveryBuildingIsInItsOwnLocationOnly() {
+    for (DormBuildingName buildingName : DormBuildingName.values()) {
+      DormBuilding building = DormBuilding.of(buildingName);
+      for (CampusLocation campusLocation : CampusLocation.values()) {
+        Set<DormBuilding> buildings = campusLocation.dormBuildingsInCampusLocation();
+        assertEquals(campusLocation == building.campusLocation(), buildings.contains(building),
+            buildingName + " in " + campusLocation);
+        // The precomputed sets hold the canonical instances
+        buildings.stream().filter(building::equals).forEach(b -> assertSame(building, b));
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+import Filtering.*;
+import Parsing.RoomParser;
+import Server.ColumnarRoomFormat;
+import Server.RoomJsonFragments;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ColumnarRoomFormatTest {
+
+  private RoomTable roomTable;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    this.roomTable = new RoomTable(new RoomParser("data/PartialDataset.csv").getRooms());
+  }
+
+  private static int readVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private static String readString(ByteBuffer in) {
+    byte[] bytes = new byte[readVarint(in)];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> readStrings(ByteBuffer in) {
+    List<String> strings = new ArrayList<>();
+    for (int count = readVarint(in); count > 0; count--) {
+      strings.add(readString(in));
+    }
+    return strings;
+  }
+
+  /**
+   * Decodes a response into one attribute map per room, following the documented layout.
+   */
+  private static List<Map<String, Object>> decode(byte[] encoded) {
+    ByteBuffer in = ByteBuffer.wrap(encoded);
+    assertEquals(ColumnarRoomFormat.MAGIC, in.getInt());
+    assertEquals(ColumnarRoomFormat.VERSION, in.get());
+    int n = readVarint(in);
+    List<String> bathrooms = readStrings(in);
+    List<Map<String, Object>> buildings = new ArrayList<>();
+    for (int count = readVarint(in); count > 0; count--) {
+      buildings.add(Map.of("name", readString(in), "campusLocation", readString(in),
+          "year", readVarint(in), "peoplePerWasher", in.getFloat(),
+          "hasElevatorAccess", in.get() == 1, "address", readString(in)));
+    }
+    List<String> roomNumbers = readStrings(in);
+    List<String> floorPlans = readStrings(in);
+
+    List<Map<String, Object>> rooms = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      rooms.add(new HashMap<>(Map.of("building", buildings.get(readVarint(in)))));
+    }
+    for (Map<String, Object> room : rooms) {
+      room.put("roomSize", readVarint(in));
+    }
+    for (Map<String, Object> room : rooms) {
+      room.put("capacity", (int) in.get());
+    }
+    for (Map<String, Object> room : rooms) {
+      room.put("floorNumber", (int) in.get());
+    }
+    for (Map<String, Object> room : rooms) {
+      byte flags = in.get();
+      room.put("isSuite", (flags & 1) != 0);
+      room.put("hasKitchen", (flags & 2) != 0);
+    }
+    for (Map<String, Object> room : rooms) {
+      room.put("bathroomType", bathrooms.get(in.get()));
+    }
+    for (Map<String, Object> room : rooms) {
+      room.put("roomNumber", roomNumbers.get(readVarint(in)));
+    }
+    for (Map<String, Object> room : rooms) {
+      int floorPlan = readVarint(in);
+      room.put("floorPlanLink", floorPlan == 0 ? "" : floorPlans.get(floorPlan - 1));
+    }
+    assertFalse(in.hasRemaining());
+    return rooms;
+  }
+
+  @Test
+  public void testDecodesToTheEncodedRooms() {
+    RoomIdSet rooms = new RoomIdSet(this.roomTable);
+    for (int id = 0; id < this.roomTable.size(); id += 3) {
+      rooms.add(id);
+    }
+    byte[] encoded = ColumnarRoomFormat.encode(rooms);
+    List<Map<String, Object>> decoded = decode(encoded);
+    assertEquals(rooms.size(), decoded.size());
+
+    int i = 0;
+    for (IDormRoom room : rooms) {
+      Map<String, Object> attributes = decoded.get(i++);
+      DormBuilding building = room.getDormBuilding();
+      Map<?, ?> decodedBuilding = (Map<?, ?>) attributes.get("building");
+      assertEquals(building.buildingName().name(), decodedBuilding.get("name"));
+      assertEquals(building.campusLocation().name(), decodedBuilding.get("campusLocation"));
+      assertEquals(building.year(), decodedBuilding.get("year"));
+      assertEquals(building.peoplePerWasher(), decodedBuilding.get("peoplePerWasher"));
+      assertEquals(building.address(), decodedBuilding.get("address"));
+      assertEquals(room.getRoomSize(), attributes.get("roomSize"));
+      assertEquals(room.getRoomCapacityInt(), attributes.get("capacity"));
+      assertEquals(room.getFloorNumber(), attributes.get("floorNumber"));
+      assertEquals(room.isSuite(), attributes.get("isSuite"));
+      assertEquals(room.hasKitchen(), attributes.get("hasKitchen"));
+      assertEquals(room.getBathroomType().name(), attributes.get("bathroomType"));
+      assertEquals(room.getRoomNumber(), attributes.get("roomNumber"));
+      if (room instanceof DormRoom dormRoom && dormRoom.getFloorPlanLink() != null) {
+        assertEquals(dormRoom.getFloorPlanLink(), attributes.get("floorPlanLink"));
+      }
+    }
+
+    // Far smaller than the JSON of the same rooms
+    assertTrue(encoded.length * 4 < new RoomJsonFragments(this.roomTable).length(rooms));
+  }
+
+  @Test
+  public void testEncodesRoomsInTheGivenOrder() {
+    int[] ids = {5, 0, 3};
+    List<Map<String, Object>> decoded = decode(ColumnarRoomFormat.encode(this.roomTable, ids));
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals(this.roomTable.room(ids[i]).getRoomNumber(), decoded.get(i).get("roomNumber"));
+    }
+    assertTrue(decode(ColumnarRoomFormat.encode(this.roomTable, new int[0])).isEmpty());
+  }
+}
@@ -0,0 +1,40 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+import Filtering.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class CompactRoomTest {
+
+  @Test
+  public void testCompactRoomsEncodeEveryAttribute() {
+    IDormRoom suite = new DormRoom(420, "3104B", RoomCapacity.Four, "floorplan.com/b", true, true,
+        BathroomType.SemiPrivate, "Barbour Hall");
+    IDormRoom single = new DormRoom(120, "212", RoomCapacity.One, "floorplan.com/a", false, false,
+        BathroomType.Communal, "Hope College");
+    RoomTable table = new RoomTable(List.of(suite, single));
+
+    CompactRoom compactSuite = table.compactRoom(0);
+    assertEquals(0, compactSuite.id());
+    assertEquals(420, compactSuite.roomSize());
+    assertEquals(4, compactSuite.capacity());
+    assertEquals(suite.getFloorNumber(), compactSuite.floorNumber());
+    assertTrue(compactSuite.isSuite());
+    assertTrue(compactSuite.hasKitchen());
+    assertEquals(BathroomType.SemiPrivate.ordinal(), compactSuite.bathroomOrdinal());
+    assertEquals(DormBuildingName.BARBOUR_HALL.ordinal(), compactSuite.buildingOrdinal());
+    assertEquals("3104B", table.roomNumber(compactSuite.roomNumberCode()));
+    assertEquals("floorplan.com/b", table.floorPlanLink(compactSuite.floorPlanCode()));
+
+    CompactRoom compactSingle = table.compactRoom(1);
+    assertFalse(compactSingle.isSuite());
+    assertFalse(compactSingle.hasKitchen());
+    // Room number codes follow the order of the room number strings
+    assertTrue(compactSingle.roomNumberCode() < compactSuite.roomNumberCode());
+    assertTrue(compactSingle.floorPlanCode() < compactSuite.floorPlanCode());
+  }
+}
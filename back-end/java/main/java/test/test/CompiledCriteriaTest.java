@@ -0,0 +1,72 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+import Filtering.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class CompiledCriteriaTest {
+
+  @Test
+  public void testCompileBuildsMasksAndBounds() {
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true), Set.of(true, false),
+        Set.of(BathroomType.Communal), 150, 300, Set.of(RoomCapacity.Two, RoomCapacity.Four),
+        Set.of(2, 5, 100, -1));
+    CompiledCriteria compiled = CompiledCriteria.compile(criteria);
+
+    long expectedBuildings = (1L << DormBuildingName.fromString("Hope College").ordinal())
+        | (1L << DormBuildingName.fromString("Slater Hall").ordinal());
+    assertEquals(expectedBuildings, compiled.buildingMask());
+    assertEquals(0b10, compiled.suiteMask());
+    assertEquals(0b11, compiled.kitchenMask());
+    assertEquals(1 << BathroomType.Communal.ordinal(), compiled.bathroomMask());
+    assertEquals((1 << 2) | (1 << 4), compiled.capacityMask());
+    assertEquals(2, compiled.minCapacity());
+    assertEquals(4, compiled.maxCapacity());
+
+    // Floors no room can be on are dropped from the mask and the bounds
+    assertEquals((1L << 2) | (1L << 5), compiled.floorMask());
+    assertEquals(2, compiled.minFloor());
+    assertEquals(5, compiled.maxFloor());
+    assertFalse(compiled.isEmpty());
+  }
+
+  @Test
+  public void testEmptyCriteriaCompileToEmpty() {
+    FilteringCriteria noFloors = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, 1000, Set.of(RoomCapacity.values()), Set.of());
+    assertTrue(CompiledCriteria.compile(noFloors).isEmpty());
+
+    FilteringCriteria invertedRange = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 500, 100, Set.of(RoomCapacity.values()), Set.of(1));
+    assertTrue(CompiledCriteria.compile(invertedRange).isEmpty());
+  }
+
+  @Test
+  public void testMatchesAgreesWithRoomAttributes() {
+    IDormRoom room = new DormRoom(200, "312", RoomCapacity.Two, "floorplan.com/312", false, true,
+        BathroomType.Communal, "Slater Hall");
+    CompactRoom compactRoom = new RoomTable(List.of(room)).compactRoom(0);
+
+    FilteringCriteria matching = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true), Set.of(false),
+        Set.of(BathroomType.Communal), 200, 200, Set.of(RoomCapacity.Two), Set.of(3));
+    assertTrue(CompiledCriteria.compile(matching).matches(compactRoom));
+
+    FilteringCriteria wrongFloor = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true), Set.of(false),
+        Set.of(BathroomType.Communal), 200, 200, Set.of(RoomCapacity.Two), Set.of(2));
+    assertFalse(CompiledCriteria.compile(wrongFloor).matches(compactRoom));
+
+    FilteringCriteria wrongLocation = new FilteringCriteria(
+        Set.of(CampusLocation.WristonQuad), Set.of(true), Set.of(false),
+        Set.of(BathroomType.Communal), 200, 200, Set.of(RoomCapacity.Two), Set.of(3));
+    assertFalse(CompiledCriteria.compile(wrongLocation).matches(compactRoom));
+  }
+}
@@ -0,0 +1,100 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import Filtering.*;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+public class CriteriaKeyTest {
+
+  private static FilteringCriteria criteria(int minSize, int maxSize, Set<Integer> floors) {
+    return new FilteringCriteria(
+        Set.of(CampusLocation.WristonQuad, CampusLocation.MainGreen),
+        Set.of(false),
+        Set.of(true, false),
+        Set.of(BathroomType.Communal, BathroomType.SemiPrivate),
+        minSize, maxSize,
+        Set.of(RoomCapacity.One, RoomCapacity.Three),
+        floors
+    );
+  }
+
+  @Test
+  public void testKeyRoundTripsCompiledCriteria() {
+    CompiledCriteria compiled = CompiledCriteria.compile(criteria(120, 400, Set.of(0, 2, 9)));
+    assertEquals(compiled, CriteriaKey.of(compiled).toCompiledCriteria());
+  }
+
+  @Test
+  public void testEquivalentCriteriaShareAKey() {
+    Set<Integer> allFloors = new HashSet<>();
+    for (int i = 1; i <= 10; i++) {
+      allFloors.add(i);
+    }
+    assertEquals(
+        CriteriaKey.of(criteria(0, CriteriaKey.MAX_ROOM_SIZE, allFloors)),
+        CriteriaKey.of(criteria(-50, CriteriaKey.MAX_ROOM_SIZE, Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9))));
+    assertNotEquals(
+        CriteriaKey.of(criteria(0, 500, Set.of(1, 2))),
+        CriteriaKey.of(criteria(0, 500, Set.of(1, 3))));
+  }
+
+  @Test
+  public void testMaximumRoomSizeIsNotLowered() {
+    CriteriaKey all = CriteriaKey.of(criteria(0, CriteriaKey.MAX_ROOM_SIZE, Set.of(1)));
+    CriteriaKey larger = CriteriaKey.of(criteria(0, 150_000, Set.of(1)));
+    assertNotEquals(all, larger);
+    assertEquals(150_000, larger.toCompiledCriteria().maxRoomSize());
+    assertTrue(larger.covers(all));
+    assertFalse(all.covers(larger));
+  }
+
+  @Test
+  public void testUnmatchableCriteriaShareTheEmptyKey() {
+    assertEquals(CriteriaKey.EMPTY, CriteriaKey.of(criteria(500, 100, Set.of(1))));
+    assertEquals(CriteriaKey.EMPTY, CriteriaKey.of(criteria(0, 500, Set.of(42))));
+    assertEquals(CriteriaKey.EMPTY, CriteriaKey.of(new FilteringCriteria(
+        Set.of(), Set.of(), Set.of(), Set.of(), 0, 0, Set.of(), Set.of())));
+    assertTrue(CriteriaKey.EMPTY.toCompiledCriteria().isEmpty());
+  }
+
+  @Test
+  public void testCoversNarrowerKeys() {
+    CriteriaKey broad = CriteriaKey.of(criteria(100, 400, Set.of(1, 2, 3)));
+    assertTrue(broad.covers(broad));
+    assertTrue(broad.covers(CriteriaKey.of(criteria(150, 400, Set.of(1, 2, 3)))));
+    assertTrue(broad.covers(CriteriaKey.of(criteria(100, 200, Set.of(2)))));
+    assertFalse(broad.covers(CriteriaKey.of(criteria(50, 400, Set.of(1, 2, 3)))));
+    assertFalse(broad.covers(CriteriaKey.of(criteria(100, 401, Set.of(1, 2, 3)))));
+    assertFalse(broad.covers(CriteriaKey.of(criteria(100, 400, Set.of(1, 4)))));
+    assertEquals(broad.partitionCategories(),
+        CriteriaKey.of(criteria(0, 10, Set.of(9))).partitionCategories());
+  }
+
+  @Test
+  public void testNeighbouringRoomSizeRangesHashApart() {
+    Set<Integer> hashes = new HashSet<>();
+    for (int minRoomSize = 100; minRoomSize < 500; minRoomSize += 2) {
+      hashes.add(CriteriaKey.of(criteria(minRoomSize, minRoomSize + 1, Set.of(1))).hashCode());
+    }
+    assertEquals(200, hashes.size());
+  }
+
+  @Test
+  public void testCacheServesEquivalentCriteriaFromOneEntry() throws IOException, ExecutionException {
+    KDTreeWrapper wrapper = new KDTreeWrapper(new RoomParser("data/PartialDataset.csv").getRooms());
+    FilteringCache cache = new FilteringCache(wrapper);
+
+    FilteringCriteria listed = criteria(0, CriteriaKey.MAX_ROOM_SIZE, Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    FilteringCriteria unbounded = criteria(-1, CriteriaKey.MAX_ROOM_SIZE, Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11));
+    RoomIdSet result = cache.getFilteredDormSet(listed);
+    assertSame(result, cache.getFilteredDormSet(unbounded));
+    assertEquals(wrapper.filterDormSet(unbounded), result);
+  }
+}
@@ -0,0 +1,34 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+
+import org.junit.jupiter.api.Test;
+
+public class DormBuildingTest {
+
+  @Test
+  public void testOfReturnsOneInstancePerBuilding() {
+    for (DormBuildingName buildingName : DormBuildingName.values()) {
+      DormBuilding building = DormBuilding.of(buildingName);
+      assertSame(building, DormBuilding.of(buildingName));
+      assertEquals(buildingName, building.buildingName());
+      // A building constructed directly is equal to, but not the same as, the canonical one
+      DormBuilding constructed = new DormBuilding(buildingName);
+      assertNotSame(building, constructed);
+      assertEquals(building, constructed);
+      assertEquals(building.hashCode(), constructed.hashCode());
+    }
+  }
+
+  @Test
+  public void testRoomsShareTheCanonicalBuilding() {
+    DormRoom first = new DormRoom(200, "101", RoomCapacity.One, "floorplan.com/101", false, false,
+        BathroomType.Private, "Barbour Hall");
+    DormRoom second = new DormRoom(300, "202", RoomCapacity.Two, "floorplan.com/202", true, false,
+        BathroomType.Communal, "  barbour hall ");
+    assertSame(DormBuilding.of(DormBuildingName.BARBOUR_HALL), first.getDormBuilding());
+    assertSame(first.getDormBuilding(), second.getDormBuilding());
+  }
+}
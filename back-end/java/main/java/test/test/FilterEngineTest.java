@@ -0,0 +1,220 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+import Filtering.*;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+import Server.FilterEngine;
+
+import java.io.IOException;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the same checks against the filter of every {@link FilterEngine}, comparing them with a
+ * {@link KDTreeWrapper} over the same rooms.
+ */
+public class FilterEngineTest {
+
+  private List<IDormRoom> dormList;
+
+  @BeforeEach
+  public void setUp() {
+    // Official Dorm List
+    try {
+      RoomParser parser = new RoomParser("data/PartialDataset.csv");
+      this.dormList = parser.getRooms();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testEveryRoomFilter() {
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.values()),
+        Set.of(true, false),
+        Set.of(true, false),
+        Set.of(BathroomType.values()),
+        0, Integer.MAX_VALUE,
+        Set.of(RoomCapacity.values()),
+        Set.of(0,1,2,3,4,5,6,7,8,9)
+    );
+
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(this.dormList));
+      assertEquals(548, filter.filterDormSet(criteria).size(), engine.name());
+    }
+  }
+
+  @Test
+  public void testEmptyCriteriaReturnsEmptySet() {
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(), Set.of(), Set.of(), Set.of(), 0, 0, Set.of(), Set.of()
+    );
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(this.dormList));
+      assertTrue(filter.filterDormSet(criteria).isEmpty(), engine.name());
+    }
+  }
+
+  @Test
+  public void testInvalidRangeReturnsEmptySet() {
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.values()),
+        Set.of(true, false),
+        Set.of(true, false),
+        Set.of(BathroomType.values()),
+        400, 200,
+        Set.of(RoomCapacity.values()),
+        Set.of(0,1,2,3,4,5,6,7,8,9)
+    );
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(this.dormList));
+      assertTrue(filter.filterDormSet(criteria).isEmpty(), engine.name());
+    }
+  }
+
+  @Test
+  public void testDuplicateRoomValues() {
+    List<IDormRoom> rooms = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      rooms.add(new DormRoom(300, "2" + (10 + i), RoomCapacity.Two, "floorplan.com/" + i, false,
+          false, BathroomType.Communal, "Barbour Hall"));
+    }
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.EastCampus),
+        Set.of(false),
+        Set.of(false),
+        Set.of(BathroomType.Communal),
+        300, 300,
+        Set.of(RoomCapacity.Two),
+        Set.of(2)
+    );
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(rooms));
+      assertEquals(50, filter.filterDormSet(criteria).size(), engine.name());
+    }
+  }
+
+  @Test
+  public void testRoomSizeRangeBoundariesAreInclusive() {
+    List<IDormRoom> rooms = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      rooms.add(new DormRoom(100 + i, "1" + (10 + i % 90), RoomCapacity.One, "floorplan.com/" + i,
+          false, false, BathroomType.Private, "Hope College"));
+    }
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen),
+        Set.of(false),
+        Set.of(false),
+        Set.of(BathroomType.Private),
+        163, 291,
+        Set.of(RoomCapacity.One),
+        Set.of(1)
+    );
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(rooms));
+      assertEquals(129, filter.filterDormSet(criteria).size(), engine.name());
+    }
+  }
+
+  @Test
+  public void testMatchesKDTreeWrapperOnRandomCriteria() {
+    KDTreeWrapper wrapper = new KDTreeWrapper(this.dormList);
+    Map<FilterEngine, IDormFilter> filters = new EnumMap<>(FilterEngine.class);
+    for (FilterEngine engine : FilterEngine.values()) {
+      filters.put(engine, engine.create(new RoomTable(this.dormList)));
+    }
+    Random random = new Random(1234);
+
+    for (int i = 0; i < 500; i++) {
+      FilteringCriteria criteria = new FilteringCriteria(
+          randomSubset(random, CampusLocation.values()),
+          randomSubset(random, new Boolean[]{true, false}),
+          randomSubset(random, new Boolean[]{true, false}),
+          randomSubset(random, BathroomType.values()),
+          random.nextInt(400),
+          100 + random.nextInt(900),
+          randomSubset(random, RoomCapacity.values()),
+          randomSubset(random, new Integer[]{0,1,2,3,4,5,6,7,8,9})
+      );
+      Set<IDormRoom> expected = wrapper.filterDormSet(criteria);
+      for (Map.Entry<FilterEngine, IDormFilter> entry : filters.entrySet()) {
+        assertEquals(expected, entry.getValue().filterDormSet(criteria),
+            entry.getKey() + " differs on query " + i);
+      }
+    }
+  }
+
+  @Test
+  public void testForEachMatchPassesOnEveryMatchOnce() {
+    Random random = new Random(99);
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(this.dormList));
+      for (int i = 0; i < 100; i++) {
+        CompiledCriteria criteria = CompiledCriteria.compile(new FilteringCriteria(
+            randomSubset(random, CampusLocation.values()),
+            randomSubset(random, new Boolean[]{true, false}),
+            randomSubset(random, new Boolean[]{true, false}),
+            randomSubset(random, BathroomType.values()),
+            random.nextInt(400),
+            100 + random.nextInt(900),
+            randomSubset(random, RoomCapacity.values()),
+            randomSubset(random, new Integer[]{0,1,2,3,4,5,6,7,8,9})
+        ));
+        RoomIdSet expected = filter.filterDormSet(criteria);
+        List<Integer> streamed = new ArrayList<>();
+        filter.forEachMatch(criteria, streamed::add);
+        RoomIdSet streamedSet = new RoomIdSet(expected.roomTable());
+        streamed.forEach(streamedSet::add);
+        assertEquals(expected.size(), streamed.size(), engine + " on query " + i);
+        assertEquals(expected, streamedSet, engine + " on query " + i);
+      }
+    }
+  }
+
+  @Test
+  public void testCountFacetsMatchesTheFilteredSet() {
+    Random random = new Random(7);
+    for (FilterEngine engine : FilterEngine.values()) {
+      IDormFilter filter = engine.create(new RoomTable(this.dormList));
+      for (int i = 0; i < 100; i++) {
+        CompiledCriteria criteria = CompiledCriteria.compile(new FilteringCriteria(
+            randomSubset(random, CampusLocation.values()),
+            randomSubset(random, new Boolean[]{true, false}),
+            randomSubset(random, new Boolean[]{true, false}),
+            randomSubset(random, BathroomType.values()),
+            random.nextInt(400),
+            100 + random.nextInt(900),
+            randomSubset(random, RoomCapacity.values()),
+            randomSubset(random, new Integer[]{0,1,2,3,4,5,6,7,8,9})
+        ));
+        FacetCounts expected = FacetCounts.of(filter.filterDormSet(criteria));
+        FacetCounts counts = filter.countFacets(criteria);
+        assertEquals(expected.total(), counts.total(), engine + " on query " + i);
+        for (DormBuildingName buildingName : DormBuildingName.values()) {
+          assertEquals(expected.count(buildingName), counts.count(buildingName),
+              engine + " on query " + i);
+        }
+        for (RoomCapacity roomCapacity : RoomCapacity.values()) {
+          assertEquals(expected.count(roomCapacity), counts.count(roomCapacity),
+              engine + " on query " + i);
+        }
+      }
+    }
+  }
+
+  private static <T> Set<T> randomSubset(Random random, T[] values) {
+    Set<T> subset = new HashSet<>();
+    for (T value : values) {
+      if (random.nextInt(4) != 0) {
+        subset.add(value);
+      }
+    }
+    return subset;
+  }
+}
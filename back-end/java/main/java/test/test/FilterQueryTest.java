@@ -0,0 +1,147 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import Filtering.*;
+import Server.FilterQuery;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class FilterQueryTest {
+
+  private static final String ALL =
+      "campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all"
+          + "&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+
+  @Test
+  public void testParsesLikeCompilingTheCriteria() {
+    FilterQuery all = FilterQuery.parse(ALL);
+    assertTrue(all.isValid());
+    assertEquals(CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.values()),
+        Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10))), all.criteria());
+
+    FilterQuery some = FilterQuery.parse("floorNumber=2,%203,99,&campusLocation=MainGreen,WristonQuad"
+        + "&isSuite=TRUE&hasKitchen=false&bathroomType=Communal&minRoomSize=-5&maxRoomSize=+300"
+        + "&roomCapacity=One,Three&isSuite=false");
+    assertTrue(some.isValid());
+    assertEquals(CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen, CampusLocation.WristonQuad), Set.of(true), Set.of(false),
+        Set.of(BathroomType.Communal), -5, 300, Set.of(RoomCapacity.One, RoomCapacity.Three),
+        Set.of(2, 3, 99))), some.criteria());
+    assertEquals("2, 3,99,", some.value(FilterQuery.Parameter.FLOOR_NUMBER));
+    assertEquals("TRUE", some.value(FilterQuery.Parameter.IS_SUITE));
+  }
+
+  @Test
+  public void testParsesTheListsTheFrontEndEncodes() {
+    // The front-end sends every list as encodeURIComponent(values.join(", "))
+    FilterQuery encoded = FilterQuery.parse("campusLocation=MainGreen%2C%20WristonQuad"
+        + "&isSuite=true%2C%20false&hasKitchen=false&bathroomType=Private%2C%20Communal"
+        + "&minRoomSize=100&maxRoomSize=300&roomCapacity=One%2C%20Two%2C%20Three"
+        + "&floorNumber=1%2C%202%2c%2010%2C");
+    assertTrue(encoded.isValid());
+    assertEquals(CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen, CampusLocation.WristonQuad), Set.of(true, false),
+        Set.of(false), Set.of(BathroomType.Private, BathroomType.Communal), 100, 300,
+        Set.of(RoomCapacity.One, RoomCapacity.Two, RoomCapacity.Three), Set.of(1, 2, 10))),
+        encoded.criteria());
+    assertEquals("One, Two, Three", encoded.value(FilterQuery.Parameter.ROOM_CAPACITY));
+    assertEquals(encoded.criteria(), FilterQuery.parse("campusLocation=MainGreen,+WristonQuad"
+        + "&isSuite=true,+false&hasKitchen=false&bathroomType=Private,+Communal&minRoomSize=100"
+        + "&maxRoomSize=300&roomCapacity=One,+Two,+Three&floorNumber=+1,2,10").criteria());
+
+    FilterQuery invalid = FilterQuery.parse(ALL.replace("bathroomType=all",
+        "bathroomType=Private%2C%20Shared"));
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.BATHROOM_TYPE, " Shared"),
+        invalid.error());
+  }
+
+  @Test
+  public void testReportsTheFirstInvalidParameter() {
+    FilterQuery missing = FilterQuery.parse(ALL.replace("hasKitchen=all", "hasKitchen="));
+    assertFalse(missing.isValid());
+    assertNull(missing.criteria());
+    assertEquals(FilterQuery.Parameter.HAS_KITCHEN, missing.error().parameter());
+    assertEquals("hasKitchen parameter is missing or empty.", missing.error().message());
+
+    FilterQuery invalid = FilterQuery.parse(ALL.replace("roomCapacity=all", "roomCapacity=One,Seven")
+        .replace("floorNumber=all", "floorNumber=First"));
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.ROOM_CAPACITY, "Seven"),
+        invalid.error());
+    assertTrue(invalid.error().message().startsWith("Invalid value for roomCapacity: Seven."));
+
+    FilterQuery overflow = FilterQuery.parse(ALL.replace("maxRoomSize=all", "maxRoomSize=2147483648"));
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.MAX_ROOM_SIZE, "2147483648"),
+        overflow.error());
+
+    FilterQuery malformed = FilterQuery.parse(ALL.replace("isSuite=all", "isSuite=%zz"));
+    assertEquals(FilterQuery.Parameter.IS_SUITE, malformed.error().parameter());
+    assertEquals(FilterQuery.Parameter.CAMPUS_LOCATION, FilterQuery.parse((String) null).error().parameter());
+  }
+
+  @Test
+  public void testParsesThePagingParameters() {
+    FilterQuery unpaged = FilterQuery.parse(ALL);
+    assertFalse(unpaged.isPaged());
+    assertEquals(FilterQuery.DEFAULT_PAGE_SIZE, unpaged.limit());
+
+    FilterQuery paged = FilterQuery.parse(ALL + "&sort=roomSize&order=DESC&limit=20&cursor=roomSize.desc.40");
+    assertTrue(paged.isValid());
+    assertTrue(paged.isPaged());
+    assertEquals(SortKey.ROOM_SIZE, paged.sortKey());
+    assertTrue(paged.descending());
+    assertEquals(20, paged.limit());
+    assertEquals(40, paged.cursor());
+    assertTrue(FilterQuery.parse(ALL + "&limit=5&sort=").isPaged());
+    assertNull(FilterQuery.parse(ALL + "&limit=5&sort=").sortKey());
+
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.SORT, "size"),
+        FilterQuery.parse(ALL + "&sort=size").error());
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.LIMIT, "1001"),
+        FilterQuery.parse(ALL + "&limit=1001").error());
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.CURSOR, "-1"),
+        FilterQuery.parse(ALL + "&cursor=-1").error());
+    // The filtering parameters are validated first
+    assertEquals(FilterQuery.Parameter.CAMPUS_LOCATION,
+        FilterQuery.parse("sort=size").error().parameter());
+  }
+
+  @Test
+  public void testCursorsNameTheirSortAndOrder() {
+    FilterQuery paged = FilterQuery.parse(ALL + "&sort=floorNumber&order=desc");
+    assertEquals("floorNumber.desc.40", paged.nextCursor(40));
+    assertEquals(40, FilterQuery.parse(ALL + "&order=desc&sort=floorNumber&cursor="
+        + paged.nextCursor(40)).cursor());
+    assertEquals("id.asc.7", FilterQuery.parse(ALL + "&limit=5").nextCursor(7));
+    assertEquals(7, FilterQuery.parse(ALL + "&cursor=id.asc.7").cursor());
+
+    for (String cursor : List.of("40", "floorNumber.asc.40", "roomSize.desc.40", "floorNumber.desc.",
+        "floorNumber.desc.-1", "floorNumber.desc.4x")) {
+      FilterQuery mismatched = FilterQuery.parse(ALL + "&sort=floorNumber&order=desc&cursor=" + cursor);
+      assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.CURSOR, cursor),
+          mismatched.error(), cursor);
+    }
+  }
+
+  @Test
+  public void testUnpagedQueriesRejectThePagingParameters() {
+    assertTrue(FilterQuery.parseUnpaged(ALL).isValid());
+    assertTrue(FilterQuery.parseUnpaged(ALL + "&sort=").isValid());
+
+    FilterQuery paged = FilterQuery.parseUnpaged(ALL + "&limit=20&sort=roomSize");
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.SORT, "roomSize", true),
+        paged.error());
+    assertNull(paged.criteria());
+    assertTrue(paged.error().message().startsWith("sort is not supported here."));
+    assertEquals(new FilterQuery.QueryError(FilterQuery.Parameter.LIMIT, "20", true),
+        FilterQuery.parseUnpaged(Map.of("campusLocation", "all", "isSuite", "all", "hasKitchen",
+            "all", "bathroomType", "all", "minRoomSize", "all", "maxRoomSize", "all",
+            "roomCapacity", "all", "floorNumber", "all", "limit", "20")).error());
+    // An invalid filtering parameter is still reported first
+    assertEquals(FilterQuery.Parameter.CAMPUS_LOCATION,
+        FilterQuery.parseUnpaged("sort=roomSize").error().parameter());
+  }
+}
@@ -0,0 +1,97 @@
+package test;
+
+import DormRoom.BathroomType;
+import DormRoom.CampusLocation;
+import DormRoom.RoomCapacity;
+import Filtering.AdmissionPolicy;
+import Filtering.FilteringCache;
+import Filtering.FilteringCriteria;
+import Filtering.IDormFilter;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A benchmark replaying one query trace against a {@link FilteringCache} under every
+ * {@link AdmissionPolicy} and comparing their hit ratios. It is run by hand rather than as part of
+ * the test suite:
+ *
+ * <pre>java test.FilteringCacheReplayBenchmark [traceLength] [cacheEntries]</pre>
+ *
+ * <p>The trace has the shape of our traffic: most requests pick one of a small set of popular
+ * queries, skewed towards the first ones, and the rest are one-off combinations as sent by
+ * scripted clients, which arrive in bursts.
+ */
+public class FilteringCacheReplayBenchmark {
+
+  private static final int HOT_QUERIES = 64;
+  private static final double ONE_OFF_SHARE = 0.4;
+  private static final int BURST_LENGTH = 50;
+
+  public static void main(String[] args) throws IOException, ExecutionException {
+    int traceLength = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int cacheEntries = args.length > 1 ? Integer.parseInt(args[1]) : 48;
+
+    IDormFilter filter = new KDTreeWrapper(new RoomParser("data/PartialDataset.csv").getRooms());
+    long entryWeight = filter.filterDormSet(query(0, 0)).estimatedBytes();
+    List<FilteringCriteria> trace = generateTrace(traceLength);
+    System.out.println("Requests: " + trace.size() + ", cache entries: " + cacheEntries);
+
+    for (AdmissionPolicy admissionPolicy : AdmissionPolicy.values()) {
+      FilteringCache cache = new FilteringCache(filter, cacheEntries * entryWeight,
+          Duration.ofHours(1), admissionPolicy);
+      long start = System.nanoTime();
+      for (FilteringCriteria criteria : trace) {
+        cache.getFilteredDormSet(criteria);
+      }
+      double millis = (System.nanoTime() - start) / 1e6;
+      System.out.printf("%-8s hit ratio: %5.1f%%, evictions: %7d, replay: %.0f ms%n",
+          admissionPolicy, 100 * cache.stats().hitRate(), cache.stats().evictionCount(), millis);
+    }
+  }
+
+  /**
+   * Generates a trace of popular queries interleaved with bursts of one-off queries.
+   *
+   * @param traceLength the number of requests
+   * @return the criteria of every request, in order
+   */
+  private static List<FilteringCriteria> generateTrace(int traceLength) {
+    Random random = new Random(42);
+    List<FilteringCriteria> trace = new ArrayList<>(traceLength);
+    int oneOff = 0;
+    while (trace.size() < traceLength) {
+      if (random.nextDouble() < ONE_OFF_SHARE / BURST_LENGTH) {
+        for (int i = 0; i < BURST_LENGTH && trace.size() < traceLength; i++) {
+          trace.add(query(1000 + oneOff++, 0));
+        }
+      } else {
+        // Squaring a uniform value skews the picks towards the first popular queries
+        double skewed = random.nextDouble();
+        trace.add(query((int) (skewed * skewed * HOT_QUERIES), 1));
+      }
+    }
+    return trace;
+  }
+
+  /**
+   * Returns the criteria of query number {@code index}. Different indexes give criteria that never
+   * share a cache entry.
+   *
+   * @param index the number of the query
+   * @param floor the floor every query asks for, besides the first floor
+   * @return the criteria of the query
+   */
+  private static FilteringCriteria query(int index, int floor) {
+    return new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), index, 99999, Set.of(RoomCapacity.values()),
+        Set.of(1, floor + 2));
+  }
+}
@@ -0,0 +1,113 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import Filtering.*;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FilteringCacheTest {
+
+  private IDormFilter filter;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    this.filter = new KDTreeWrapper(new RoomParser("data/PartialDataset.csv").getRooms());
+  }
+
+  private static FilteringCriteria criteriaWithMinSize(int minSize) {
+    return new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), minSize, CriteriaKey.MAX_ROOM_SIZE,
+        Set.of(RoomCapacity.values()), Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+  }
+
+  @Test
+  public void testStatsRecordHitsAndMisses() throws ExecutionException {
+    FilteringCache cache = new FilteringCache(this.filter);
+    cache.getFilteredDormSet(criteriaWithMinSize(100));
+    cache.getFilteredDormSet(criteriaWithMinSize(100));
+    cache.getFilteredDormSet(criteriaWithMinSize(200));
+
+    assertEquals(1, cache.stats().hitCount());
+    assertEquals(2, cache.stats().missCount());
+    assertEquals(2, cache.stats().loadSuccessCount());
+    assertEquals(2, cache.size());
+    assertEquals(2 * cache.getFilteredDormSet(criteriaWithMinSize(100)).estimatedBytes(),
+        cache.weightedSize());
+  }
+
+  @Test
+  public void testMaximumWeightEvictsEntries() throws ExecutionException {
+    long entryWeight = this.filter.filterDormSet(criteriaWithMinSize(0)).estimatedBytes();
+    FilteringCache cache = new FilteringCache(this.filter, 3 * entryWeight, Duration.ofMinutes(1));
+    for (int minSize = 0; minSize < 20; minSize++) {
+      cache.getFilteredDormSet(criteriaWithMinSize(minSize));
+    }
+
+    assertTrue(cache.size() <= 3);
+    assertTrue(cache.weightedSize() <= 3 * entryWeight);
+    assertTrue(cache.stats().evictionCount() >= 17);
+  }
+
+  @Test
+  public void testTinyLfuKeepsHotEntriesDuringOneOffBurst() throws ExecutionException {
+    long entryWeight = this.filter.filterDormSet(criteriaWithMinSize(0)).estimatedBytes();
+    FilteringCache cache = new FilteringCache(this.filter, 4 * entryWeight, Duration.ofMinutes(1),
+        AdmissionPolicy.TINY_LFU);
+    RoomIdSet hot = cache.getFilteredDormSet(criteriaWithMinSize(0));
+    cache.getFilteredDormSet(criteriaWithMinSize(0));
+
+    // Fill the cache, then flood it with queries that are never repeated
+    for (int minSize = 1; minSize < 200; minSize++) {
+      cache.getFilteredDormSet(criteriaWithMinSize(minSize));
+    }
+
+    assertSame(hot, cache.getFilteredDormSet(criteriaWithMinSize(0)));
+    assertTrue(cache.rejectionCount() > 0);
+    assertEquals(this.filter.filterDormSet(criteriaWithMinSize(150)),
+        cache.getFilteredDormSet(criteriaWithMinSize(150)));
+  }
+
+  @Test
+  public void testNarrowerQueriesArePostFilteredFromBroaderResults() throws ExecutionException {
+    FilteringCache cache = new FilteringCache(this.filter);
+    cache.getFilteredDormSet(criteriaWithMinSize(0));
+
+    // Narrow the room size range, then additionally drop floors and capacities
+    FilteringCriteria narrowerSizes = criteriaWithMinSize(150);
+    FilteringCriteria narrowerEverything = new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 150, 300, Set.of(RoomCapacity.One, RoomCapacity.Two),
+        Set.of(1, 2));
+    assertEquals(this.filter.filterDormSet(narrowerSizes), cache.getFilteredDormSet(narrowerSizes));
+    assertEquals(this.filter.filterDormSet(narrowerEverything),
+        cache.getFilteredDormSet(narrowerEverything));
+    assertEquals(2, cache.subsumedCount());
+
+    // Fewer buildings fall into a different partition and are searched with the filter
+    FilteringCriteria fewerLocations = new FilteringCriteria(
+        Set.of(CampusLocation.MainGreen), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.values()),
+        Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+    assertEquals(this.filter.filterDormSet(fewerLocations), cache.getFilteredDormSet(fewerLocations));
+    assertEquals(2, cache.subsumedCount());
+  }
+
+  @Test
+  public void testInvalidBoundsThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new FilteringCache(this.filter, -1, Duration.ofMinutes(1)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new FilteringCache(this.filter, 1024, Duration.ofMinutes(-1)));
+    assertThrows(NullPointerException.class,
+        () -> new FilteringCache(this.filter, 1024, null));
+  }
+}
@@ -0,0 +1,81 @@
+package test;
+
+import DormRoom.DormRoom;
+import DormRoom.IDormRoom;
+import DormRoom.RoomCapacity;
+import DormRoom.BathroomType;
+import Filtering.Node_KDTree.KDTreeNode;
+import Filtering.RoomTable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark comparing the presorted {@link KDTreeNode} build against the original build, which
+ * sorted a copy of the rooms of every subtree (see {@link RecursiveKDTree}). It is run by hand
+ * rather than as part of the test suite:
+ *
+ * <pre>java test.KDTreeNodeBuildBenchmark [roomCount]</pre>
+ *
+ * <p>Both builds run over the same single tree of synthetic rooms, so the numbers do not depend
+ * on how a {@code KDTreeWrapper} partitions the rooms. The presorted build is timed over a
+ * {@link RoomTable} built beforehand, since a rebuild reuses the table of the dataset, and the
+ * cost of building that table is reported on its own.</p>
+ */
+public class KDTreeNodeBuildBenchmark {
+
+  private static final int WARMUP_ROUNDS = 2;
+  private static final int MEASURED_ROUNDS = 3;
+
+  public static void main(String[] args) {
+    int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    List<IDormRoom> rooms = generateRooms(roomCount);
+    System.out.println("Rooms: " + rooms.size());
+
+    RoomTable roomTable = new RoomTable(rooms);
+    double tableMillis = time(() -> new RoomTable(rooms));
+    double recursiveMillis = time(() -> new RecursiveKDTree(rooms));
+    double presortedMillis = time(() -> new KDTreeNode(roomTable));
+    System.out.printf("Room table:      %.1f ms%n", tableMillis);
+    System.out.printf("Recursive build: %.1f ms%n", recursiveMillis);
+    System.out.printf("Presorted build: %.1f ms%n", presortedMillis);
+    System.out.printf("Speedup:         %.2fx%n", recursiveMillis / presortedMillis);
+  }
+
+  /**
+   * Returns the average time in milliseconds a build takes.
+   *
+   * @param build the build to time
+   * @return the average build time after warming up
+   */
+  private static double time(Runnable build) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      build.run();
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      build.run();
+    }
+    return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+  }
+
+  /**
+   * Creates rooms with random sizes, capacities and room numbers.
+   *
+   * @param roomCount the number of rooms to create
+   * @return the synthetic rooms
+   */
+  private static List<IDormRoom> generateRooms(int roomCount) {
+    Random random = new Random(42);
+    List<IDormRoom> rooms = new ArrayList<>(roomCount);
+    for (int i = 0; i < roomCount; i++) {
+      rooms.add(new DormRoom(
+          100 + random.nextInt(400),
+          (1 + random.nextInt(9)) + String.format("%02d", random.nextInt(100)),
+          RoomCapacity.values()[random.nextInt(RoomCapacity.values().length)],
+          "floorplan.com/" + i,
+          false, false, BathroomType.Communal, "Barbour Hall"));
+    }
+    return rooms;
+  }
+}
@@ -105,6 +105,106 @@ public class KDTreeTest {
     assertTrue(result.isEmpty(), "Invalid range should return an empty set.");
   }
 
+  @Test
+  public void testSinkTraversalMatchesSetTraversal() {
+    List<IDormRoom> largeRooms = generateRoomList(5_000);
+    KDTreeNode node = new KDTreeNode(largeRooms);
+
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.EastCampus),
+        Set.of(true, false),
+        Set.of(true, false),
+        Set.of(BathroomType.values()),
+        200, 450,
+        Set.of(RoomCapacity.Two, RoomCapacity.Five),
+        Set.of(1, 3, 4)
+    );
+
+    List<IDormRoom> collected = new ArrayList<>();
+    node.filterDormSet(criteria, 0, collected::add);
+
+    Set<IDormRoom> expected = largeRooms.stream()
+        .filter(room -> room.getRoomSize() >= 200 && room.getRoomSize() <= 450)
+        .filter(room -> criteria.roomCapacityCriteria().contains(room.getRoomCapacity()))
+        .filter(room -> criteria.floorNumberCriteria().contains(room.getFloorNumber()))
+        .collect(Collectors.toSet());
+    assertEquals(expected.size(), collected.size(), "Every room should be passed to the sink once.");
+    assertEquals(expected, new HashSet<>(collected));
+    assertEquals(expected, node.filterDormSet(criteria, 0));
+  }
+
+  @Test
+  public void testIdsResolveThroughTheRoomTableOfTheTree() {
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 180, 320,
+        Set.of(RoomCapacity.values()), Set.of(0, 1, 2, 3)
+    );
+    KDTreeNode node = new KDTreeNode(baseRooms);
+    Set<IDormRoom> resolved = new HashSet<>();
+    node.filterDormIds(CompiledCriteria.compile(criteria), 0,
+        id -> resolved.add(node.roomTable().room(id)));
+    assertEquals(node.filterDormSet(criteria, 0), resolved);
+    assertEquals(3, resolved.size());
+
+    RoomTable roomTable = new RoomTable(baseRooms);
+    KDTreeNode fromTable = new KDTreeNode(roomTable);
+    assertSame(roomTable, fromTable.roomTable());
+    assertEquals(resolved, fromTable.filterDormSet(criteria, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new KDTreeNode(new RoomTable(Collections.emptyList())));
+  }
+
+  @Test
+  public void testPresortedBuildMatchesRecursiveBuild() {
+    List<IDormRoom> rooms = generateRoomList(3_000);
+    assertBuildsMatch(rooms, new Random(11));
+  }
+
+  @Test
+  public void testPresortedBuildMatchesRecursiveBuildWithDuplicateSplitKeys() {
+    // Few distinct values on every axis, so most medians have equal keys on both sides of them
+    Random random = new Random(3);
+    int[] sizes = {150, 200, 200, 250};
+    String[] roomNumbers = {"101", "101", "205", "310", "310", "310"};
+    List<IDormRoom> rooms = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      rooms.add(new DormRoom(
+          sizes[random.nextInt(sizes.length)],
+          roomNumbers[random.nextInt(roomNumbers.length)],
+          random.nextBoolean() ? RoomCapacity.One : RoomCapacity.Two,
+          "floorplan.com/" + i,
+          false, false, BathroomType.Communal, "Barbour Hall"));
+    }
+    assertBuildsMatch(rooms, random);
+    // Every room is the same on every axis
+    assertBuildsMatch(Collections.nCopies(257, rooms.get(0)), random);
+  }
+
+  /**
+   * Checks that the presorted tree and the original recursively sorted tree over the same rooms
+   * return the same rooms for random size, capacity and floor criteria.
+   */
+  private static void assertBuildsMatch(List<IDormRoom> rooms, Random random) {
+    KDTreeNode presorted = new KDTreeNode(rooms);
+    RecursiveKDTree recursive = new RecursiveKDTree(rooms);
+    for (int i = 0; i < 200; i++) {
+      int minSize = 100 + random.nextInt(250);
+      Set<RoomCapacity> capacities = new HashSet<>();
+      Set<Integer> floors = new HashSet<>();
+      for (int j = random.nextInt(4); j >= 0; j--) {
+        capacities.add(RoomCapacity.values()[random.nextInt(RoomCapacity.values().length)]);
+        floors.add(random.nextInt(5));
+      }
+      FilteringCriteria criteria = new FilteringCriteria(
+          Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+          Set.of(BathroomType.values()), minSize, minSize + random.nextInt(300),
+          capacities, floors);
+      assertEquals(recursive.filterDormSet(criteria), presorted.filterDormSet(criteria, 0),
+          "Query " + i + " differs between the builds.");
+    }
+  }
+
   // --- KDTreeWrapper Tests ---
 
 
@@ -196,6 +296,111 @@ public class KDTreeTest {
     assertEquals(largeRooms.size(), result.size(), "All rooms should match the criteria.");
   }
 
+  @Test
+  public void testParallelWrapperMatchesSequentialWrapper() {
+    List<IDormRoom> largeRooms = generateRoomList(20_000);
+    KDTreeWrapper sequential = new KDTreeWrapper(largeRooms, Integer.MAX_VALUE);
+    KDTreeWrapper parallel = new KDTreeWrapper(largeRooms, 0);
+
+    FilteringCriteria criteria = new FilteringCriteria(
+        Set.of(CampusLocation.EastCampus),
+        Set.of(true, false),
+        Set.of(true, false),
+        Set.of(BathroomType.values()),
+        150, 520,
+        Set.of(RoomCapacity.values()),
+        Set.of(0,1,2,3,4,5,6,7,8,9)
+    );
+
+    Set<IDormRoom> expected = sequential.filterDormSet(criteria);
+    assertFalse(expected.isEmpty());
+    assertEquals(expected, parallel.filterDormSet(criteria));
+  }
+
+  @Test
+  public void testBatchFilteringMatchesSingleQueries() {
+    KDTreeWrapper wrapper = new KDTreeWrapper(generateRoomList(5_000));
+    Random random = new Random(7);
+    List<CompiledCriteria> batch = new ArrayList<>();
+    // More queries than one traversal runs, including ones that cannot match anything
+    for (int i = 0; i < 150; i++) {
+      int minSize = random.nextInt(600);
+      batch.add(CompiledCriteria.compile(new FilteringCriteria(
+          new HashSet<>(List.of(CampusLocation.values()[random.nextInt(CampusLocation.values().length)],
+              CampusLocation.WristonQuad)),
+          i % 5 == 0 ? Set.of() : Set.of(random.nextBoolean()),
+          Set.of(true, false),
+          Set.of(BathroomType.values()[random.nextInt(BathroomType.values().length)]),
+          minSize, minSize + random.nextInt(300),
+          new HashSet<>(List.of(RoomCapacity.values()[random.nextInt(RoomCapacity.values().length)],
+              RoomCapacity.Two)),
+          new HashSet<>(List.of(random.nextInt(10), random.nextInt(10), random.nextInt(10)))
+      )));
+    }
+
+    List<RoomIdSet> results = wrapper.filterDormSets(batch);
+    assertEquals(batch.size(), results.size());
+    int nonEmpty = 0;
+    for (int i = 0; i < batch.size(); i++) {
+      assertEquals(wrapper.filterDormSet(batch.get(i)), results.get(i));
+      nonEmpty += results.get(i).isEmpty() ? 0 : 1;
+    }
+    assertTrue(nonEmpty > 0);
+  }
+
+  @Test
+  public void testFacetCountsMatchTheFilteredSet() {
+    KDTreeWrapper wrapper = new KDTreeWrapper(generateRoomList(5_000));
+    CompiledCriteria compiledCriteria = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.WristonQuad, CampusLocation.EastCampus), Set.of(true, false),
+        Set.of(true, false), Set.of(BathroomType.values()), 100, 400,
+        Set.of(RoomCapacity.One, RoomCapacity.Two, RoomCapacity.Four), Set.of(1, 2, 3, 4)));
+    RoomIdSet filtered = wrapper.filterDormSet(compiledCriteria);
+    FacetCounts counts = wrapper.countFacets(compiledCriteria);
+    assertTrue(filtered.size() > 0);
+    assertEquals(filtered.size(), counts.total());
+
+    for (RoomCapacity roomCapacity : RoomCapacity.values()) {
+      assertEquals(filtered.stream().filter(room -> room.getRoomCapacity() == roomCapacity).count(),
+          counts.count(roomCapacity));
+    }
+    for (CampusLocation campusLocation : CampusLocation.values()) {
+      assertEquals(filtered.stream()
+              .filter(room -> campusLocation.dormBuildingsInCampusLocation().contains(room.getDormBuilding()))
+              .count(), counts.count(campusLocation));
+    }
+    assertEquals(0, counts.count(CampusLocation.MainGreen));
+    assertEquals(counts.total(), counts.count(CampusLocation.WristonQuad)
+        + counts.count(CampusLocation.EastCampus));
+  }
+
+  @Test
+  public void testForEachMatchPassesOnTheFilteredSet() {
+    KDTreeWrapper wrapper = new KDTreeWrapper(generateRoomList(5_000));
+    CompiledCriteria compiledCriteria = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.WristonQuad, CampusLocation.EastCampus), Set.of(true, false),
+        Set.of(true, false), Set.of(BathroomType.values()), 100, 400,
+        Set.of(RoomCapacity.One, RoomCapacity.Two, RoomCapacity.Four), Set.of(1, 2, 3, 4)));
+    RoomIdSet filtered = wrapper.filterDormSet(compiledCriteria);
+    List<Integer> streamed = new ArrayList<>();
+    wrapper.forEachMatch(compiledCriteria, streamed::add);
+    assertEquals(filtered.size(), streamed.size(), "Every match should be passed on once.");
+    RoomIdSet streamedSet = new RoomIdSet(filtered.roomTable());
+    streamed.forEach(streamedSet::add);
+    assertEquals(filtered, streamedSet);
+
+    List<Integer> none = new ArrayList<>();
+    wrapper.forEachMatch(CompiledCriteria.compile(new FilteringCriteria(Set.of(), Set.of(true),
+        Set.of(true), Set.of(BathroomType.values()), 0, 500, Set.of(RoomCapacity.values()),
+        Set.of(1))), none::add);
+    assertTrue(none.isEmpty());
+  }
+
+  @Test
+  public void testNegativeParallelThresholdThrowsException() {
+    assertThrows(IllegalArgumentException.class, () -> new KDTreeWrapper(baseRooms, -1));
+  }
+
   private List<IDormRoom> generateRoomList(int size) {
     return java.util.stream.IntStream.range(1, size + 1)
         .mapToObj(i -> new DormRoom(
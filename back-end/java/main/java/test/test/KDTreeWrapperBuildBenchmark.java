@@ -0,0 +1,83 @@
+package test;
+
+import DormRoom.DormRoom;
+import DormRoom.IDormRoom;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Filtering.RoomTable;
+import Parsing.RoomParser;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark comparing the sequential and parallel construction of a {@link KDTreeWrapper} over a
+ * large synthetic dataset. It is run by hand rather than as part of the test suite:
+ *
+ * <pre>java test.KDTreeWrapperBuildBenchmark [roomCount]</pre>
+ *
+ * <p>The synthetic rooms are copies of the real rooms with jittered room sizes and room numbers,
+ * so they are spread over the same buildings and categories as the real dataset. The
+ * {@link RoomTable} is built once, so only the construction of the trees is timed.
+ */
+public class KDTreeWrapperBuildBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+
+  public static void main(String[] args) throws IOException {
+    int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+    List<IDormRoom> rooms = generateRooms(new RoomParser("data/PartialDataset.csv").getRooms(), roomCount);
+    System.out.println("Rooms: " + rooms.size() + ", cores: " + Runtime.getRuntime().availableProcessors());
+
+    RoomTable roomTable = new RoomTable(rooms);
+    double sequentialMillis = time(roomTable, Integer.MAX_VALUE);
+    double parallelMillis = time(roomTable, KDTreeWrapper.DEFAULT_PARALLEL_THRESHOLD);
+    System.out.printf("Sequential build: %.1f ms%n", sequentialMillis);
+    System.out.printf("Parallel build:   %.1f ms%n", parallelMillis);
+    System.out.printf("Speedup:          %.2fx%n", sequentialMillis / parallelMillis);
+  }
+
+  /**
+   * Returns the average time in milliseconds it takes to build a {@link KDTreeWrapper}.
+   *
+   * @param roomTable the rooms to build the wrapper from
+   * @param parallelThreshold the parallel threshold of the wrapper
+   * @return the average build time after warming up
+   */
+  private static double time(RoomTable roomTable, int parallelThreshold) {
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      new KDTreeWrapper(roomTable, parallelThreshold);
+    }
+    long start = System.nanoTime();
+    for (int round = 0; round < MEASURED_ROUNDS; round++) {
+      new KDTreeWrapper(roomTable, parallelThreshold);
+    }
+    return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+  }
+
+  /**
+   * Creates {@code roomCount} rooms by copying the template rooms round robin.
+   *
+   * @param templates the real rooms to copy
+   * @param roomCount the number of rooms to create
+   * @return the synthetic rooms
+   */
+  private static List<IDormRoom> generateRooms(List<IDormRoom> templates, int roomCount) {
+    Random random = new Random(42);
+    List<IDormRoom> rooms = new ArrayList<>(roomCount);
+    for (int i = 0; i < roomCount; i++) {
+      IDormRoom template = templates.get(i % templates.size());
+      rooms.add(new DormRoom(
+          Math.max(1, template.getRoomSize() + random.nextInt(101) - 50),
+          template.getRoomNumber() + (char) ('A' + random.nextInt(26)),
+          template.getRoomCapacity(),
+          "floorplan.com/" + i,
+          template.hasKitchen(),
+          template.isSuite(),
+          template.getBathroomType(),
+          template.getDormBuilding().buildingName().toString()));
+    }
+    return rooms;
+  }
+}
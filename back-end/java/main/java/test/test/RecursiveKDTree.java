@@ -0,0 +1,121 @@
+package test;
+
+import DormRoom.IDormRoom;
+import DormRoom.RoomCapacity;
+import Filtering.FilteringCriteria;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A port of the original recursive {@code KDTreeNode} build, which copied and sorted the rooms of
+ * every subtree on the axis of its depth and took the room at {@code size / 2} as the node, and of
+ * its pruning search. The tests check the presorted build against it, and
+ * {@link KDTreeNodeBuildBenchmark} times the two builds against each other.
+ */
+final class RecursiveKDTree {
+
+  private static final int K = 4;
+
+  private final IDormRoom value;
+  private final RecursiveKDTree left;
+  private final RecursiveKDTree right;
+
+  RecursiveKDTree(List<IDormRoom> rooms) {
+    this(rooms, 0);
+  }
+
+  private RecursiveKDTree(List<IDormRoom> rooms, int depth) {
+    List<IDormRoom> sorted = new ArrayList<>(rooms);
+    sorted.sort(comparatorForAxis(depth % K));
+    int medianIndex = sorted.size() / 2;
+    this.value = sorted.get(medianIndex);
+    this.left = medianIndex > 0 ? new RecursiveKDTree(sorted.subList(0, medianIndex), depth + 1) : null;
+    this.right = medianIndex < sorted.size() - 1
+        ? new RecursiveKDTree(sorted.subList(medianIndex + 1, sorted.size()), depth + 1) : null;
+  }
+
+  private static Comparator<IDormRoom> comparatorForAxis(int axis) {
+    return switch (axis) {
+      case 0 -> Comparator.comparingInt(IDormRoom::getRoomSize);
+      case 1 -> Comparator.comparingInt(IDormRoom::getRoomCapacityInt);
+      case 2 -> Comparator.comparing(IDormRoom::getRoomNumber);
+      default -> Comparator.comparingInt(IDormRoom::getFloorNumber);
+    };
+  }
+
+  /**
+   * Returns the rooms matching the size, capacity and floor criteria, pruning the subtrees the
+   * same way the original search did.
+   */
+  Set<IDormRoom> filterDormSet(FilteringCriteria criteria) {
+    Set<IDormRoom> output = new HashSet<>();
+    this.collect(criteria, 0, criteria.minRoomSizeCriteria(), criteria.maxRoomSizeCriteria(), output);
+    return output;
+  }
+
+  private void collect(FilteringCriteria criteria, int axis, int minSize, int maxSize,
+      Set<IDormRoom> output) {
+    if (axis % K == 0 && minSize > maxSize) {
+      return;
+    }
+    if (axis % K == 3 && criteria.floorNumberCriteria().isEmpty()) {
+      return;
+    }
+    IDormRoom room = this.value;
+    if (room.getRoomSize() >= minSize && room.getRoomSize() <= maxSize
+        && criteria.roomCapacityCriteria().contains(room.getRoomCapacity())
+        && criteria.floorNumberCriteria().contains(room.getFloorNumber())) {
+      output.add(room);
+    }
+
+    int currVal;
+    int min;
+    int max;
+    switch (axis % K) {
+      case 0 -> {
+        currVal = room.getRoomSize();
+        min = minSize;
+        max = maxSize;
+      }
+      case 1 -> {
+        currVal = room.getRoomCapacityInt();
+        min = criteria.roomCapacityCriteria().stream().mapToInt(RoomCapacity::toInteger).min()
+            .orElse(Integer.MAX_VALUE);
+        max = criteria.roomCapacityCriteria().stream().mapToInt(RoomCapacity::toInteger).max()
+            .orElse(Integer.MIN_VALUE);
+      }
+      case 3 -> {
+        currVal = room.getFloorNumber();
+        min = criteria.floorNumberCriteria().stream().mapToInt(Integer::intValue).min().getAsInt();
+        max = criteria.floorNumberCriteria().stream().mapToInt(Integer::intValue).max().getAsInt();
+      }
+      default -> {
+        // Room numbers are not a search dimension, so both subtrees are searched
+        currVal = 0;
+        min = Integer.MIN_VALUE;
+        max = Integer.MAX_VALUE;
+      }
+    }
+
+    boolean sizeAxis = axis % K == 0;
+    if (currVal < min) {
+      if (this.right != null) {
+        this.right.collect(criteria, axis + 1, minSize, maxSize, output);
+      }
+    } else if (currVal > max) {
+      if (this.left != null) {
+        this.left.collect(criteria, axis + 1, minSize, maxSize, output);
+      }
+    } else {
+      if (this.left != null) {
+        this.left.collect(criteria, axis + 1, minSize, sizeAxis ? currVal : maxSize, output);
+      }
+      if (this.right != null) {
+        this.right.collect(criteria, axis + 1, sizeAxis ? currVal : minSize, maxSize, output);
+      }
+    }
+  }
+}
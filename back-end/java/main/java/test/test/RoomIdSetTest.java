@@ -0,0 +1,119 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import DormRoom.DormRoom;
+import Filtering.*;
+
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoomIdSetTest {
+
+  private List<IDormRoom> rooms;
+  private RoomTable roomTable;
+
+  @BeforeEach
+  public void setUp() {
+    this.rooms = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      this.rooms.add(new DormRoom(100 + i, "1" + (10 + i), RoomCapacity.One, "floorplan.com/" + i,
+          false, false, BathroomType.Private, "Hope College"));
+    }
+    this.roomTable = new RoomTable(this.rooms);
+  }
+
+  @Test
+  public void testRoomTableAssignsIdsInListOrder() {
+    assertEquals(150, this.roomTable.size());
+    for (int id = 0; id < this.rooms.size(); id++) {
+      assertSame(this.rooms.get(id), this.roomTable.room(id));
+      assertEquals(id, this.roomTable.idOf(this.rooms.get(id)));
+    }
+    assertEquals(-1, this.roomTable.idOf("not a room"));
+  }
+
+  @Test
+  public void testRoomTableDropsEqualRooms() {
+    IDormRoom room = new DormRoom(300, "102", RoomCapacity.Two, "floorplan.com/102", true, false,
+        BathroomType.Communal, "Buxton House");
+    IDormRoom copy = new DormRoom(300, "102", RoomCapacity.Two, "floorplan.com/102", true, false,
+        BathroomType.Communal, "Buxton House");
+    RoomTable table = new RoomTable(List.of(room, copy));
+    assertEquals(1, table.size());
+    assertEquals(0, table.idOf(copy));
+  }
+
+  @Test
+  public void testAddAndIterateAcrossWords() {
+    RoomIdSet set = new RoomIdSet(this.roomTable);
+    assertTrue(set.isEmpty());
+    assertFalse(set.iterator().hasNext());
+
+    assertTrue(set.add(3));
+    assertTrue(set.add(64));
+    assertTrue(set.add(149));
+    assertFalse(set.add(64), "Adding an id twice should not change the set.");
+
+    assertEquals(3, set.size());
+    assertEquals(List.of(this.rooms.get(3), this.rooms.get(64), this.rooms.get(149)), new ArrayList<>(set));
+    assertTrue(set.contains(this.rooms.get(149)));
+    assertFalse(set.contains(this.rooms.get(148)));
+    assertEquals(Set.of(this.rooms.get(3), this.rooms.get(64), this.rooms.get(149)), set);
+  }
+
+  @Test
+  public void testAddAllMergesSets() {
+    RoomIdSet left = new RoomIdSet(this.roomTable);
+    RoomIdSet right = new RoomIdSet(this.roomTable);
+    left.add(1);
+    left.add(70);
+    right.add(70);
+    right.add(140);
+
+    left.addAll(right);
+    assertEquals(3, left.size());
+    List<Integer> ids = new ArrayList<>();
+    left.forEachId(ids::add);
+    assertEquals(List.of(1, 70, 140), ids);
+
+    RoomIdSet other = new RoomIdSet(new RoomTable(this.rooms));
+    assertThrows(IllegalArgumentException.class, () -> left.addAll(other));
+  }
+
+  @Test
+  public void testEqualsAndHashCodeMatchAHashSetOfTheSameRooms() {
+    List<DormRoom> internalRooms = List.of(
+        new DormRoom(120, "310A", RoomCapacity.One, null, false, false, BathroomType.Private,
+            "Hope College"),
+        new DormRoom(130, "310B", RoomCapacity.One, null, false, false, BathroomType.Private,
+            "Hope College"));
+    List<IDormRoom> withSuite = new ArrayList<>(this.rooms);
+    withSuite.add(new Suite(400, "310", RoomCapacity.Two, "floorplan.com/310", true, true,
+        BathroomType.Private, "Hope College", 150, internalRooms));
+    RoomTable table = new RoomTable(withSuite);
+
+    RoomIdSet set = new RoomIdSet(table);
+    Set<IDormRoom> expected = new HashSet<>();
+    for (int id = 0; id < table.size(); id += 7) {
+      set.add(id);
+      expected.add(table.room(id));
+    }
+    set.add(table.size() - 1);
+    expected.add(table.room(table.size() - 1));
+
+    assertEquals(expected.hashCode(), set.hashCode());
+    assertEquals(expected, set);
+    assertEquals(set, expected);
+    assertTrue(set.contains(withSuite.get(withSuite.size() - 1)));
+    expected.remove(table.room(0));
+    assertNotEquals(set, expected);
+  }
+
+  @Test
+  public void testCollectionMutatorsAreUnsupported() {
+    RoomIdSet set = new RoomIdSet(this.roomTable);
+    assertThrows(UnsupportedOperationException.class, () -> set.add(this.rooms.get(0)));
+  }
+}
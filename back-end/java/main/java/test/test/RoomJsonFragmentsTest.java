@@ -0,0 +1,44 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import Filtering.*;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+import Server.RoomJsonFragments;
+
+import com.squareup.moshi.Moshi;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class RoomJsonFragmentsTest {
+
+  @Test
+  public void testFragmentsMatchMoshiSerialization() throws IOException {
+    IDormFilter filter = new KDTreeWrapper(new RoomParser("data/PartialDataset.csv").getRooms());
+    RoomIdSet everyRoom = filter.filterDormSet(new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE,
+        Set.of(RoomCapacity.values()), Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)));
+    RoomIdSet someRooms = filter.filterDormSet(new FilteringCriteria(
+        Set.of(CampusLocation.WristonQuad), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 100, 300, Set.of(RoomCapacity.One), Set.of(1, 2, 3)));
+    RoomIdSet noRooms = filter.filterDormSet(new FilteringCriteria(
+        Set.of(), Set.of(), Set.of(), Set.of(), 0, 0, Set.of(), Set.of()));
+    RoomJsonFragments fragments = new RoomJsonFragments(everyRoom.roomTable());
+
+    for (RoomIdSet rooms : List.of(everyRoom, someRooms, noRooms)) {
+      String expected = new Moshi.Builder().build().adapter(Object.class).toJson(rooms);
+      byte[] json = fragments.toJson(rooms);
+      assertEquals(expected, new String(json, StandardCharsets.UTF_8));
+      assertEquals(json.length, fragments.length(rooms));
+
+      ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+      fragments.writeTo(streamed, rooms);
+      assertArrayEquals(json, streamed.toByteArray());
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import DormRoom.*;
+import Filtering.*;
+import Parsing.RoomParser;
+
+import java.io.IOException;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RoomOrderTest {
+
+  private RoomTable roomTable;
+  private RoomOrder roomOrder;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    this.roomTable = new RoomTable(new RoomParser("data/PartialDataset.csv").getRooms());
+    this.roomOrder = new RoomOrder(this.roomTable);
+  }
+
+  /**
+   * Collects every page of a query, checking that only the last one has no next cursor.
+   */
+  private List<Integer> allPages(SortKey sortKey, boolean descending, CompiledCriteria criteria,
+      int limit) {
+    List<Integer> ids = new ArrayList<>();
+    int cursor = 0;
+    while (cursor >= 0) {
+      RoomOrder.Page page = this.roomOrder.page(sortKey, descending, criteria, cursor, limit);
+      assertTrue(page.ids().length <= limit);
+      if (page.nextCursor() >= 0) {
+        assertEquals(limit, page.ids().length);
+      }
+      Arrays.stream(page.ids()).forEach(ids::add);
+      cursor = page.nextCursor();
+    }
+    return ids;
+  }
+
+  @Test
+  public void testPagesListEveryMatchInOrder() {
+    CompiledCriteria doubles = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.Two),
+        Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+    Set<Integer> expected = new HashSet<>();
+    for (int id = 0; id < this.roomTable.size(); id++) {
+      if (doubles.matches(this.roomTable.compactRoom(id))) {
+        expected.add(id);
+      }
+    }
+    assertFalse(expected.isEmpty());
+
+    for (SortKey sortKey : SortKey.values()) {
+      for (boolean descending : new boolean[] {false, true}) {
+        List<Integer> ids = this.allPages(sortKey, descending, doubles, 7);
+        assertEquals(expected, new HashSet<>(ids));
+        assertEquals(expected.size(), ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+          double previous = sortKey.valueOf(this.roomTable, ids.get(i - 1));
+          double current = sortKey.valueOf(this.roomTable, ids.get(i));
+          assertTrue(descending ? previous >= current : previous <= current);
+          if (previous == current) {
+            // Ties are broken by id, so descending pages list equal rooms from the largest id
+            assertEquals(descending, ids.get(i - 1) > ids.get(i));
+          }
+        }
+      }
+    }
+    assertEquals(new ArrayList<>(new TreeSet<>(expected)), this.allPages(null, false, doubles, 50));
+  }
+
+  @Test
+  public void testPagesOfTheFilteredSetMatchTheWalk() {
+    CompiledCriteria selective = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.ThayerStreet), Set.of(false), Set.of(true, false),
+        Set.of(BathroomType.Communal), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.values()),
+        Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+    CompiledCriteria everything = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.values()),
+        Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+    assertTrue(this.roomOrder.prefersMatches(selective, 10));
+    assertFalse(this.roomOrder.prefersMatches(everything, 10));
+
+    RoomIdSet matches = new RoomIdSet(this.roomTable);
+    for (int id = 0; id < this.roomTable.size(); id++) {
+      if (selective.matches(this.roomTable.compactRoom(id))) {
+        matches.add(id);
+      }
+    }
+    assertFalse(matches.isEmpty());
+
+    List<SortKey> sortKeys = new ArrayList<>(Arrays.asList(SortKey.values()));
+    sortKeys.add(null);
+    for (SortKey sortKey : sortKeys) {
+      for (boolean descending : new boolean[] {false, true}) {
+        for (int limit : new int[] {1, 3, 10, 5000}) {
+          int cursor = 0;
+          while (cursor >= 0) {
+            RoomOrder.Page walked = this.roomOrder.page(sortKey, descending, selective, cursor, limit);
+            RoomOrder.Page selected = this.roomOrder.page(sortKey, descending, matches, cursor, limit);
+            assertArrayEquals(walked.ids(), selected.ids(), sortKey + " from " + cursor);
+            assertEquals(walked.nextCursor(), selected.nextCursor(), sortKey + " from " + cursor);
+            cursor = walked.nextCursor();
+          }
+        }
+      }
+    }
+    assertThrows(IllegalArgumentException.class, () -> this.roomOrder.page(SortKey.ROOM_SIZE,
+        false, new RoomIdSet(new RoomTable(List.of())), 0, 10));
+  }
+
+  @Test
+  public void testTopPageStopsAtTheLimit() {
+    CompiledCriteria everything = CompiledCriteria.compile(new FilteringCriteria(
+        Set.of(CampusLocation.values()), Set.of(true, false), Set.of(true, false),
+        Set.of(BathroomType.values()), 0, CriteriaKey.MAX_ROOM_SIZE, Set.of(RoomCapacity.values()),
+        Set.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+    RoomOrder.Page largest = this.roomOrder.page(SortKey.ROOM_SIZE, true, everything, 0, 20);
+    assertEquals(20, largest.ids().length);
+    // The walk stopped right after the 20th match, far before the end of the rooms
+    assertTrue(largest.nextCursor() >= 20 && largest.nextCursor() < this.roomTable.size() / 2);
+    int largestSize = 0;
+    for (int id = 0; id < this.roomTable.size(); id++) {
+      if (everything.matches(this.roomTable.compactRoom(id))) {
+        largestSize = Math.max(largestSize, this.roomTable.compactRoom(id).roomSize());
+      }
+    }
+    assertEquals(largestSize, this.roomTable.compactRoom(largest.ids()[0]).roomSize());
+
+    RoomOrder.Page pastTheEnd = this.roomOrder.page(SortKey.ROOM_SIZE, false, everything,
+        this.roomTable.size(), 20);
+    assertEquals(0, pastTheEnd.ids().length);
+    assertEquals(-1, pastTheEnd.nextCursor());
+    assertThrows(IllegalArgumentException.class,
+        () -> this.roomOrder.page(SortKey.ROOM_SIZE, false, everything, -1, 20));
+    assertThrows(IllegalArgumentException.class,
+        () -> this.roomOrder.page(SortKey.ROOM_SIZE, false, everything, 0, 0));
+  }
+}
@@ -0,0 +1,228 @@
+package test;
+
+import Filtering.FilteringCache;
+import Filtering.Node_KDTree.KDTreeWrapper;
+import Parsing.RoomParser;
+import Server.ConcurrencyLimitedRoute;
+import Server.FilteringHandler;
+import Server.Server;
+import Server.ThreadingMode;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import spark.Spark;
+
+/**
+ * A load test comparing the throughput and latency of the {@code /filter} endpoint under every
+ * {@link ThreadingMode}, with many connections open at once. It is run by hand rather than as part
+ * of the test suite:
+ *
+ * <pre>java test.ServerLoadBenchmark [connections] [seconds] [slowShare] [permits]</pre>
+ *
+ * <p>Every connection is a keep-alive client sending one request after the other. A share of them
+ * are slow clients: they ask for every room, about 200 KB, with a small receive buffer, and read
+ * the response a little at a time, so the server blocks while writing to them. The others ask for
+ * the rooms of one campus location and read at full speed; their throughput and latency are
+ * reported. With fewer permits than connections, the limit of {@link ConcurrencyLimitedRoute} is
+ * reached, and the fast clients wait for the permits of the slow ones.
+ */
+public class ServerLoadBenchmark {
+
+  private static final String FAST_QUERY = "/filter?campusLocation=MainGreen&isSuite=all"
+      + "&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all"
+      + "&floorNumber=all";
+  private static final String SLOW_QUERY = FAST_QUERY.replace("MainGreen", "all");
+  private static final int SLOW_RECEIVE_BUFFER = 4096;
+  private static final long SLOW_READ_PAUSE_MILLIS = 2;
+  private static final int WARMUP_SECONDS = 2;
+
+  public static void main(String[] args) throws Exception {
+    int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    double slowShare = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+    int permits = args.length > 3 ? Integer.parseInt(args[3]) : Server.DEFAULT_MAX_CONCURRENT_REQUESTS;
+    System.out.printf("Connections: %d (%.0f%% slow), duration: %d s, permits: %d%n",
+        connections, 100 * slowShare, seconds, permits);
+
+    FilteringCache cache = new FilteringCache(
+        new KDTreeWrapper(new RoomParser("data/PartialDataset.csv").getRooms()));
+    for (ThreadingMode threadingMode : ThreadingMode.values()) {
+      start(threadingMode, cache, permits);
+      run(connections, WARMUP_SECONDS, slowShare);
+      long[] latencies = run(connections, seconds, slowShare);
+      Spark.stop();
+      Spark.awaitStop();
+
+      Arrays.sort(latencies);
+      System.out.printf("%-8s fast requests: %7d (%6.0f/s), p50: %6.1f ms, p99: %7.1f ms%n",
+          threadingMode, latencies.length, (double) latencies.length / seconds,
+          percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+    }
+  }
+
+  /**
+   * Starts the server with the provided thread pool, limited like {@link Server}.
+   *
+   * @param threadingMode the threads handling the requests
+   * @param cache the cache answering the queries
+   * @param permits the number of requests handled at once
+   */
+  private static void start(ThreadingMode threadingMode, FilteringCache cache, int permits) {
+    threadingMode.install();
+    Spark.port(0);
+    Spark.get("/filter", new ConcurrencyLimitedRoute(new FilteringHandler(cache),
+        new Semaphore(permits), Server.DEFAULT_CONCURRENCY_WAIT_MILLIS));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  /**
+   * Sends requests over every connection for the provided time.
+   *
+   * @param connections the number of connections
+   * @param seconds how long to send requests
+   * @param slowShare the share of the connections that are slow clients
+   * @return the latency of every request of a fast client, in nanoseconds
+   * @throws InterruptedException if interrupted while waiting for the clients
+   */
+  private static long[] run(int connections, int seconds, double slowShare)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+    int slowConnections = (int) (connections * slowShare);
+    AtomicLong failures = new AtomicLong();
+    AtomicLong rejections = new AtomicLong();
+    long[][] latencies = new long[connections][];
+    List<Thread> clients = new ArrayList<>();
+    for (int i = 0; i < connections; i++) {
+      int client = i;
+      boolean slow = client < slowConnections;
+      // Platform threads keep the clients off the carrier threads of the server's virtual threads
+      clients.add(Thread.ofPlatform().start(
+          () -> latencies[client] = client(slow, deadline, failures, rejections)));
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    if (failures.get() > 0) {
+      System.out.println("Failed connections: " + failures.get());
+    }
+    if (rejections.get() > 0) {
+      System.out.println("Rejected requests: " + rejections.get());
+    }
+
+    // Only the fast clients are measured
+    return Arrays.stream(latencies, slowConnections, connections)
+        .flatMapToLong(Arrays::stream)
+        .toArray();
+  }
+
+  /**
+   * Runs one keep-alive client until the deadline.
+   *
+   * @param slow whether the client reads slowly
+   * @param deadline the time to stop at, in {@link System#nanoTime()}
+   * @param failures counts the requests that failed
+   * @param rejections counts the requests rejected because the server was overloaded
+   * @return the latency of every request that was not rejected, in nanoseconds
+   */
+  private static long[] client(boolean slow, long deadline, AtomicLong failures,
+      AtomicLong rejections) {
+    long[] latencies = new long[1024];
+    int count = 0;
+    byte[] request = ("GET " + (slow ? SLOW_QUERY : FAST_QUERY)
+        + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    while (System.nanoTime() < deadline) {
+      try (Socket socket = new Socket()) {
+        if (slow) {
+          socket.setReceiveBufferSize(SLOW_RECEIVE_BUFFER);
+        }
+        socket.connect(new InetSocketAddress("localhost", Spark.port()));
+        OutputStream out = socket.getOutputStream();
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        while (System.nanoTime() < deadline) {
+          long start = System.nanoTime();
+          out.write(request);
+          out.flush();
+          if (readResponse(in, slow) == 503) {
+            rejections.incrementAndGet();
+            continue;
+          }
+          if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+          }
+          latencies[count++] = System.nanoTime() - start;
+        }
+      } catch (IOException | InterruptedException e) {
+        failures.incrementAndGet();
+      }
+    }
+    return Arrays.copyOf(latencies, count);
+  }
+
+  /**
+   * Reads one response, using its Content-Length header to find its end.
+   *
+   * @param in the stream of the connection
+   * @param slow whether to pause between small reads
+   * @return the status code of the response
+   * @throws IOException if the connection fails or the response has no length
+   * @throws InterruptedException if interrupted while pausing
+   */
+  private static int readResponse(InputStream in, boolean slow)
+      throws IOException, InterruptedException {
+    StringBuilder headers = new StringBuilder();
+    while (!headers.toString().endsWith("\r\n\r\n")) {
+      int b = in.read();
+      if (b < 0) {
+        throw new IOException("The connection closed before the response.");
+      }
+      headers.append((char) b);
+    }
+    int status = Integer.parseInt(headers.substring(9, 12));
+    int contentLength = -1;
+    for (String line : headers.toString().split("\r\n")) {
+      if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+        contentLength = Integer.parseInt(line.substring(15).trim());
+      }
+    }
+    if (contentLength < 0) {
+      throw new IOException("The response has no Content-Length.");
+    }
+
+    byte[] buffer = new byte[slow ? 1024 : 64 * 1024];
+    while (contentLength > 0) {
+      int read = in.read(buffer, 0, Math.min(buffer.length, contentLength));
+      if (read < 0) {
+        throw new IOException("The connection closed during the response.");
+      }
+      contentLength -= read;
+      if (slow) {
+        Thread.sleep(SLOW_READ_PAUSE_MILLIS);
+      }
+    }
+    return status;
+  }
+
+  /**
+   * Returns a percentile of sorted values.
+   *
+   * @param sorted the values, in ascending order
+   * @param percentile the percentile, between 0 and 1
+   * @return the value at the percentile, or 0 if there are no values
+   */
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+  }
+}
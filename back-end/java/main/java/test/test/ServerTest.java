@@ -1,24 +1,39 @@
 package test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 
 import DormRoom.IDormRoom;
+import Filtering.AdmissionPolicy;
 import Filtering.FilteringCache;
 import Filtering.IDormFilter;
+import Filtering.RoomTable;
 import Filtering.Node_KDTree.KDTreeWrapper;
 import Parsing.RoomParser;
+import Server.BatchFilteringHandler;
+import Server.CacheStatsHandler;
+import Server.ColumnarRoomFormat;
+import Server.FacetsHandler;
 import Server.FilteringHandler;
+import Server.ResponseCache;
+import Server.RoomJsonFragments;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import okio.Buffer;
@@ -30,6 +45,12 @@ import spark.Spark;
 
 public class ServerTest {
 
+  /** The size of the response cache of /filter/bounded, in bytes. */
+  private static final long BOUNDED_RESPONSE_CACHE_WEIGHT = 20_000;
+
+  /** The single stream permit of /filter/limited. */
+  private Semaphore streamPermits;
+
   @BeforeAll
   public static void setup_before_everything() {
     // Set the Spark port number to an arbitrary available port
@@ -46,11 +67,29 @@ public class ServerTest {
     RoomParser parser = new RoomParser("data/PartialDataset.csv");
     List<IDormRoom> dormRoomList = parser.getRooms();
     // Initialize the filtering backend with a KDTreeWrapper
-    IDormFilter filter = new KDTreeWrapper(dormRoomList);
+    RoomTable roomTable = new RoomTable(dormRoomList);
+    IDormFilter filter = new KDTreeWrapper(roomTable, KDTreeWrapper.DEFAULT_PARALLEL_THRESHOLD);
     FilteringCache cache = new FilteringCache(filter);
 
     // Map the routes for the handlers
-    Spark.get("/filter", new FilteringHandler(cache));
+    ResponseCache responseCache = new ResponseCache(ResponseCache.DEFAULT_MAXIMUM_WEIGHT,
+        FilteringCache.DEFAULT_EXPIRE_AFTER_ACCESS, true);
+    Spark.get("/filter", new FilteringHandler(cache, responseCache));
+    Spark.get("/cache/stats", new CacheStatsHandler(cache, responseCache));
+    Spark.get("/filter/streamed", new FilteringHandler(cache, null));
+    Spark.post("/filter/batch", new BatchFilteringHandler(cache, new RoomJsonFragments(roomTable)));
+    Spark.get("/facets", new FacetsHandler(cache));
+    ResponseCache admittingCache = new ResponseCache(1, FilteringCache.DEFAULT_EXPIRE_AFTER_ACCESS,
+        false, AdmissionPolicy.TINY_LFU);
+    Spark.get("/filter/admitted", new FilteringHandler(cache, admittingCache));
+    Spark.get("/cache/admitted/stats", new CacheStatsHandler(cache, admittingCache));
+    // Holds the bodies of several single room size queries
+    ResponseCache boundedCache = new ResponseCache(BOUNDED_RESPONSE_CACHE_WEIGHT,
+        FilteringCache.DEFAULT_EXPIRE_AFTER_ACCESS, false, AdmissionPolicy.TINY_LFU);
+    Spark.get("/filter/bounded", new FilteringHandler(cache, boundedCache));
+    Spark.get("/cache/bounded/stats", new CacheStatsHandler(cache, boundedCache));
+    this.streamPermits = new Semaphore(1);
+    Spark.get("/filter/limited", new FilteringHandler(cache, null, null, null, this.streamPermits));
 
     // Initialize Spark
     Spark.init();
@@ -61,6 +100,15 @@ public class ServerTest {
   public void teardown() {
     // Unmap the routes and stop the server
     Spark.unmap("/filter");
+    Spark.unmap("/cache/stats");
+    Spark.unmap("/filter/streamed");
+    Spark.unmap("/filter/batch");
+    Spark.unmap("/facets");
+    Spark.unmap("/filter/admitted");
+    Spark.unmap("/cache/admitted/stats");
+    Spark.unmap("/filter/bounded");
+    Spark.unmap("/cache/bounded/stats");
+    Spark.unmap("/filter/limited");
     Spark.awaitStop();
   }
 
@@ -274,6 +322,318 @@ public class ServerTest {
     connection.disconnect();
   }
 
+  @Test
+  public void testGzipResponseMatchesPlainResponse() throws IOException {
+    String query = "filter?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    HttpURLConnection plain = tryRequest(query);
+    String plainBody = new Buffer().readFrom(plain.getInputStream()).readUtf8();
+    plain.disconnect();
+
+    // Ask twice, so the second response is assembled from the cached result
+    for (int i = 0; i < 2; i++) {
+      URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + query);
+      HttpURLConnection gzipped = (HttpURLConnection) requestURL.openConnection();
+      gzipped.setRequestProperty("Accept-Encoding", "gzip");
+      gzipped.connect();
+      assertEquals(200, gzipped.getResponseCode());
+      assertEquals("gzip", gzipped.getHeaderField("Content-Encoding"));
+      String body = new Buffer().readFrom(new GZIPInputStream(gzipped.getInputStream())).readUtf8();
+      assertEquals(plainBody, body);
+      gzipped.disconnect();
+    }
+    assertTrue(plainBody.startsWith("{"));
+    assertTrue(plainBody.contains("\"filteredDormRoomSet\":[{"));
+  }
+
+  @Test
+  public void testStreamedResponseMatchesCachedResponse() throws IOException {
+    String query = "?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=100&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    HttpURLConnection cached = tryRequest("filter" + query);
+    String cachedBody = new Buffer().readFrom(cached.getInputStream()).readUtf8();
+    HttpURLConnection streamed = tryRequest("filter/streamed" + query);
+    assertEquals(200, streamed.getResponseCode());
+    String streamedBody = new Buffer().readFrom(streamed.getInputStream()).readUtf8();
+    assertEquals(cachedBody, streamedBody);
+    assertEquals(streamedBody.getBytes(StandardCharsets.UTF_8).length,
+        streamed.getContentLengthLong());
+  }
+
+  @Test
+  public void testBatchMatchesSingleQueries() throws IOException {
+    String params = "isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    String batch = "{\"queries\": ["
+        + "{\"campusLocation\": \"MainGreen\", \"isSuite\": \"all\", \"hasKitchen\": \"all\","
+        + " \"bathroomType\": \"all\", \"minRoomSize\": \"all\", \"maxRoomSize\": \"all\","
+        + " \"roomCapacity\": \"all\", \"floorNumber\": \"all\"},"
+        + "{\"campusLocation\": [\"WristonQuad\", \"GradCenter\"], \"isSuite\": \"all\","
+        + " \"hasKitchen\": \"all\", \"bathroomType\": \"all\", \"minRoomSize\": 100,"
+        + " \"maxRoomSize\": \"all\", \"roomCapacity\": \"all\", \"floorNumber\": \"all\"},"
+        + "{\"campusLocation\": \"Nowhere\"},"
+        + "{\"campusLocation\": \"all\", \"isSuite\": \"all\", \"hasKitchen\": \"all\","
+        + " \"bathroomType\": \"all\", \"minRoomSize\": \"all\", \"maxRoomSize\": \"all\","
+        + " \"roomCapacity\": \"all\", \"floorNumber\": \"all\", \"limit\": 10}]}";
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/filter/batch");
+    HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.getOutputStream().write(batch.getBytes(StandardCharsets.UTF_8));
+    assertEquals(200, connection.getResponseCode());
+    JsonAdapter<Map<String, Object>> adapter = new Moshi.Builder().build()
+        .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+    Map<String, Object> response = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()).readUtf8());
+    assertEquals("success", response.get("result"));
+    List<?> results = (List<?>) response.get("results");
+    assertEquals(4, results.size());
+
+    String[] singleQueries = {"campusLocation=MainGreen&" + params,
+        "campusLocation=WristonQuad,GradCenter&" + params.replace("minRoomSize=all", "minRoomSize=100")};
+    for (int i = 0; i < singleQueries.length; i++) {
+      Map<String, Object> single = adapter.fromJson(
+          new Buffer().readFrom(tryRequest("filter?" + singleQueries[i]).getInputStream()).readUtf8());
+      Map<?, ?> result = (Map<?, ?>) results.get(i);
+      assertEquals("success", result.get("result"));
+      assertEquals(single.get("filteredDormRoomSet"), result.get("filteredDormRoomSet"));
+    }
+    Map<?, ?> invalid = (Map<?, ?>) results.get(2);
+    assertEquals("error_bad_request", invalid.get("result"));
+    assertEquals("campusLocation", invalid.get("error_parameter"));
+    // A batch returns every result whole, so it does not take paging parameters
+    Map<?, ?> paged = (Map<?, ?>) results.get(3);
+    assertEquals("error_bad_request", paged.get("result"));
+    assertEquals("limit", paged.get("error_parameter"));
+  }
+
+  @Test
+  public void testFacetsCountTheFilteredRooms() throws IOException {
+    String params = "isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=One,Two&floorNumber=all";
+    JsonAdapter<Map<String, Object>> adapter = new Moshi.Builder().build()
+        .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+    Map<String, Object> facets = adapter.fromJson(new Buffer().readFrom(
+        tryRequest("facets?campusLocation=all&" + params).getInputStream()).readUtf8());
+    assertEquals("success", facets.get("result"));
+    assertEquals("One,Two", facets.get("roomCapacity"));
+
+    Map<?, ?> campusLocations = (Map<?, ?>) facets.get("campusLocations");
+    for (String campusLocation : List.of("MainGreen", "WristonQuad")) {
+      Map<String, Object> filtered = adapter.fromJson(new Buffer().readFrom(
+          tryRequest("filter?campusLocation=" + campusLocation + "&" + params).getInputStream()).readUtf8());
+      assertEquals((double) ((List<?>) filtered.get("filteredDormRoomSet")).size(),
+          campusLocations.get(campusLocation));
+    }
+    Map<?, ?> roomCapacities = (Map<?, ?>) facets.get("roomCapacities");
+    assertEquals(0.0, roomCapacities.get("Three"));
+    assertEquals(facets.get("total"),
+        (double) roomCapacities.get("One") + (double) roomCapacities.get("Two"));
+
+    Map<String, Object> invalid = adapter.fromJson(new Buffer().readFrom(
+        tryRequest("facets?campusLocation=Nowhere&" + params).getInputStream()).readUtf8());
+    assertEquals("error_bad_request", invalid.get("result"));
+    assertEquals("campusLocation", invalid.get("error_parameter"));
+
+    // Facets count the whole result, so they do not take paging parameters
+    Map<String, Object> paged = adapter.fromJson(new Buffer().readFrom(
+        tryRequest("facets?campusLocation=all&" + params + "&sort=roomSize").getInputStream()).readUtf8());
+    assertEquals("error_bad_request", paged.get("result"));
+    assertEquals("sort", paged.get("error_parameter"));
+  }
+
+  @Test
+  public void testSortedPagesOfTheFilteredRooms() throws IOException {
+    String query = "filter?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=Two&floorNumber=all";
+    JsonAdapter<Map<String, Object>> adapter = new Moshi.Builder().build()
+        .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+    List<?> all = (List<?>) adapter.fromJson(new Buffer().readFrom(
+        tryRequest(query).getInputStream()).readUtf8()).get("filteredDormRoomSet");
+
+    List<Object> paged = new ArrayList<>();
+    String pageQuery = query + "&sort=roomSize&order=desc&limit=25";
+    while (pageQuery != null) {
+      Map<String, Object> page = adapter.fromJson(new Buffer().readFrom(tryRequest(pageQuery)
+          .getInputStream()).readUtf8());
+      assertEquals("success", page.get("result"));
+      paged.addAll((List<?>) page.get("filteredDormRoomSet"));
+      String cursor = (String) page.get("nextCursor");
+      pageQuery = cursor == null ? null
+          : query + "&sort=roomSize&order=desc&limit=25&cursor=" + cursor;
+    }
+    assertEquals(all.size(), paged.size());
+    assertEquals(new HashSet<>(all), new HashSet<>(paged));
+    for (int i = 1; i < paged.size(); i++) {
+      assertTrue((double) ((Map<?, ?>) paged.get(i - 1)).get("roomSize")
+          >= (double) ((Map<?, ?>) paged.get(i)).get("roomSize"));
+    }
+
+    Map<String, Object> invalid = adapter.fromJson(new Buffer().readFrom(
+        tryRequest(query + "&sort=size").getInputStream()).readUtf8());
+    assertEquals("error_bad_request", invalid.get("result"));
+    assertEquals("sort", invalid.get("error_parameter"));
+
+    // A cursor only continues the sort and order it was returned for
+    Map<String, Object> first = adapter.fromJson(new Buffer().readFrom(tryRequest(
+        query + "&sort=roomSize&order=desc&limit=25").getInputStream()).readUtf8());
+    Map<String, Object> reordered = adapter.fromJson(new Buffer().readFrom(tryRequest(
+        query + "&sort=roomSize&order=asc&limit=25&cursor=" + first.get("nextCursor"))
+        .getInputStream()).readUtf8());
+    assertEquals("error_bad_request", reordered.get("result"));
+    assertEquals("cursor", reordered.get("error_parameter"));
+  }
+
+  @Test
+  public void testNdjsonStreamsTheFilteredRooms() throws IOException {
+    String query = "filter?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    JsonAdapter<Map<String, Object>> adapter = new Moshi.Builder().build()
+        .adapter(Types.newParameterizedType(Map.class, String.class, Object.class));
+    List<?> all = (List<?>) adapter.fromJson(new Buffer().readFrom(
+        tryRequest(query).getInputStream()).readUtf8()).get("filteredDormRoomSet");
+
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + query);
+    HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+    connection.setRequestProperty("Accept", FilteringHandler.NDJSON_MEDIA_TYPE);
+    assertEquals(200, connection.getResponseCode());
+    assertTrue(connection.getContentType().startsWith(FilteringHandler.NDJSON_MEDIA_TYPE));
+    assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+    String body = new Buffer().readFrom(connection.getInputStream()).readUtf8();
+    assertTrue(body.endsWith("\n"));
+    List<Object> streamed = new ArrayList<>();
+    for (String line : body.split("\n")) {
+      streamed.add(new Moshi.Builder().build().adapter(Object.class).fromJson(line));
+    }
+    assertEquals(all.size(), streamed.size());
+    assertEquals(new HashSet<>(all), new HashSet<>(streamed));
+  }
+
+  @Test
+  public void testNdjsonIsNotSelectedWithQualityZero() throws IOException {
+    String query = "filter?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    String[][] cases = {
+        // Spark itself answers 404 before the handler runs when the q=0 range is listed first
+        {"application/json, " + FilteringHandler.NDJSON_MEDIA_TYPE + ";q=0", "application/json"},
+        {"*/*, " + FilteringHandler.NDJSON_MEDIA_TYPE + "; Q=0.0", "application/json"},
+        {"application/json;q=0.5, " + FilteringHandler.NDJSON_MEDIA_TYPE + ";q=0.8",
+            FilteringHandler.NDJSON_MEDIA_TYPE}};
+    for (String[] accept : cases) {
+      URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + query);
+      HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+      connection.setRequestProperty("Accept", accept[0]);
+      assertEquals(200, connection.getResponseCode(), accept[0]);
+      assertTrue(accept[0], connection.getContentType().startsWith(accept[1]));
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void testNdjsonStreamsHoldTheirOwnPermits() throws IOException, InterruptedException {
+    String query = "filter/limited?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + query);
+    HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+    connection.setRequestProperty("Accept", FilteringHandler.NDJSON_MEDIA_TYPE);
+    assertEquals(200, connection.getResponseCode());
+    new Buffer().readFrom(connection.getInputStream());
+    // The permit is returned once the stream is written
+    assertTrue(this.streamPermits.tryAcquire(1, TimeUnit.SECONDS));
+
+    // While every stream permit is taken, streams are rejected and other responses are not
+    HttpURLConnection rejected = (HttpURLConnection) requestURL.openConnection();
+    rejected.setRequestProperty("Accept", FilteringHandler.NDJSON_MEDIA_TYPE);
+    assertEquals(503, rejected.getResponseCode());
+    assertEquals(200, tryRequest(query).getResponseCode());
+    this.streamPermits.release();
+  }
+
+  @Test
+  public void testColumnarFormatIsNegotiated() throws IOException {
+    String query = "filter?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    for (String paging : List.of("", "&sort=roomSize&limit=10")) {
+      URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + query + paging);
+      HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+      connection.setRequestProperty("Accept", ColumnarRoomFormat.MEDIA_TYPE);
+      assertEquals(200, connection.getResponseCode());
+      assertEquals(ColumnarRoomFormat.MEDIA_TYPE, connection.getContentType());
+      byte[] body = new Buffer().readFrom(connection.getInputStream()).readByteArray();
+      assertEquals(ColumnarRoomFormat.MAGIC, java.nio.ByteBuffer.wrap(body).getInt());
+      // Only a page has a next cursor
+      assertEquals(paging.isEmpty(),
+          connection.getHeaderField(FilteringHandler.NEXT_CURSOR_HEADER) == null);
+    }
+  }
+
+  @Test
+  public void testEveryFilterResponseVariesOnAcceptAndEncoding() throws IOException {
+    String query = "campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    // The cached, streamed, paged and invalid JSON, the newline delimited and the columnar paths
+    String[][] requests = {
+        {"filter?" + query, null},
+        {"filter/streamed?" + query, null},
+        {"filter?" + query + "&limit=10", null},
+        {"filter?" + query.replace("isSuite=all", "isSuite=maybe"), null},
+        {"filter/streamed?" + query, FilteringHandler.NDJSON_MEDIA_TYPE},
+        {"filter?" + query + "&limit=10", ColumnarRoomFormat.MEDIA_TYPE}};
+    for (String[] request : requests) {
+      URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + request[0]);
+      HttpURLConnection connection = (HttpURLConnection) requestURL.openConnection();
+      if (request[1] != null) {
+        connection.setRequestProperty("Accept", request[1]);
+      }
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("Accept, Accept-Encoding", connection.getHeaderField("Vary"), request[0]);
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  public void testCacheStatsCountHitsAndMisses() throws IOException {
+    String query = "filter?campusLocation=MainGreen&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    tryRequest(query).getResponseCode();
+    tryRequest(query).getResponseCode();
+
+    HttpURLConnection connection = tryRequest("cache/stats");
+    assertEquals(200, connection.getResponseCode());
+    String responseBody = new Buffer().readFrom(connection.getInputStream()).readUtf8();
+    // The repeated request is served from the cached response without reaching the result cache
+    assertTrue(responseBody.contains("\"responseHitCount\":1"));
+    assertTrue(responseBody.contains("\"responseMissCount\":1"));
+    assertTrue(responseBody.contains("\"hitCount\":0"));
+    assertTrue(responseBody.contains("\"missCount\":1"));
+    assertTrue(responseBody.contains("\"entryCount\":1"));
+    connection.disconnect();
+  }
+
+  @Test
+  public void testFullResponseCacheOnlyAdmitsRepeatedQueries() throws IOException {
+    String query = "filter/admitted?campusLocation=MainGreen&isSuite=all&hasKitchen=all&bathroomType=all&minRoomSize=all&maxRoomSize=all&roomCapacity=all&floorNumber=all";
+    assertEquals(200, tryRequest(query).getResponseCode());
+    String first = new Buffer().readFrom(tryRequest("cache/admitted/stats").getInputStream()).readUtf8();
+    // The body does not fit, so it is only stored once the query has been seen before
+    assertTrue(first.contains("\"responseAdmissionRejectionCount\":1"));
+
+    assertEquals(200, tryRequest(query).getResponseCode());
+    String second = new Buffer().readFrom(tryRequest("cache/admitted/stats").getInputStream()).readUtf8();
+    assertTrue(second.contains("\"responseAdmissionRejectionCount\":1"));
+  }
+
+  @Test
+  public void testHotResponseSurvivesABurstOfOneOffQueries() throws IOException {
+    String query = "filter/bounded?campusLocation=all&isSuite=all&hasKitchen=all&bathroomType=all&roomCapacity=all&floorNumber=all";
+    String hot = query + "&minRoomSize=243&maxRoomSize=243";
+    for (int i = 0; i < 3; i++) {
+      assertEquals(200, tryRequest(hot).getResponseCode());
+    }
+    // Every one-off query is seen once, and together they weigh far more than the cache holds
+    for (int minRoomSize = 100; minRoomSize < 500; minRoomSize += 2) {
+      if (minRoomSize != 242) {
+        HttpURLConnection connection = tryRequest(query + "&minRoomSize=" + minRoomSize + "&maxRoomSize=" + (minRoomSize + 1));
+        assertEquals(200, connection.getResponseCode());
+      }
+    }
+    assertEquals(200, tryRequest(hot).getResponseCode());
+
+    String stats = new Buffer().readFrom(tryRequest("cache/bounded/stats").getInputStream()).readUtf8();
+    // The hot body was stored on its first request and served from the cache every time after
+    assertTrue(stats.contains("\"responseHitCount\":3"));
+    assertTrue(stats.contains("\"responseEvictionCount\":0"));
+    assertFalse(stats.contains("\"responseAdmissionRejectionCount\":0"));
+  }
+
 
 
 
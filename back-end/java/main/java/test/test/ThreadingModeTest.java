@@ -0,0 +1,81 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import Server.ConcurrencyLimitedRoute;
+import Server.ThreadingMode;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import spark.Spark;
+
+public class ThreadingModeTest {
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final CountDownLatch entered = new CountDownLatch(1);
+
+  @BeforeEach
+  public void setup() {
+    // Other tests leave the server running, and the pool is only chosen when it starts
+    Spark.stop();
+    Spark.awaitStop();
+    ThreadingMode.VIRTUAL.install();
+    Spark.port(0);
+    Spark.get("/thread", (request, response) -> Thread.currentThread().isVirtual());
+    Spark.get("/limited", new ConcurrencyLimitedRoute((request, response) -> {
+      this.entered.countDown();
+      this.release.await(10, TimeUnit.SECONDS);
+      return "done";
+    }, new Semaphore(1), 0));
+    Spark.init();
+    Spark.awaitInitialization();
+  }
+
+  @AfterEach
+  public void teardown() {
+    this.release.countDown();
+    Spark.unmap("/thread");
+    Spark.unmap("/limited");
+    Spark.stop();
+    Spark.awaitStop();
+    ThreadingMode.PLATFORM.install();
+    Spark.port(0);
+  }
+
+  private static HttpURLConnection request(String path) throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + Spark.port() + path).openConnection();
+  }
+
+  @Test
+  public void testRequestsRunOnVirtualThreads() throws IOException {
+    HttpURLConnection connection = request("/thread");
+    assertEquals(200, connection.getResponseCode());
+    assertEquals("true", new Buffer().readFrom(connection.getInputStream()).readUtf8());
+  }
+
+  @Test
+  public void testRequestsOverTheLimitAreRejected() throws Exception {
+    Thread first = Thread.ofVirtual().start(() -> {
+      try {
+        request("/limited").getResponseCode();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    assertTrue(this.entered.await(10, TimeUnit.SECONDS));
+
+    HttpURLConnection rejected = request("/limited");
+    assertEquals(503, rejected.getResponseCode());
+    this.release.countDown();
+    first.join();
+
+    assertEquals(200, request("/limited").getResponseCode());
+  }
+}